@@ -0,0 +1,242 @@
+package com.cybc.updatehelper.processor;
+
+import com.cybc.updatehelper.UpdateVersion;
+import com.cybc.updatehelper.VersionMap;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates the registry classes of the {@link UpdateVersion} annotated updates. The updates are sorted and validated at compile time, so a duplicate version or an update
+ * the registry can't create fails the build. The generated registry registers the updates in ascending order and creates them via a switch, without any reflection.
+ * <p>The updates of one registry must be compiled together, a registry is generated once.</p>
+ */
+public class UpdateVersionProcessor extends AbstractProcessor {
+
+    static final String DEFAULT_REGISTRY_NAME = "GeneratedUpdateRegistry";
+
+    private static final String UPDATE_CLASS   = "com.cybc.updatehelper.Update";
+    //updates per generated method, keeps every method far below the byte code limit of 64KB
+    private static final int    METHOD_SHIFT   = 10;
+
+    private final Set<String> generatedRegistries = new HashSet<>();
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(UpdateVersion.class.getCanonicalName());
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        final TypeMirror updateType = processingEnv.getTypeUtils().erasure(processingEnv.getElementUtils().getTypeElement(UPDATE_CLASS).asType());
+        final Map<String, VersionMap<TypeElement>> registries = new LinkedHashMap<>();
+        final Set<String> invalidRegistries = new HashSet<>();
+
+        for (Element element : roundEnv.getElementsAnnotatedWith(UpdateVersion.class)) {
+            if (element.getKind() != ElementKind.CLASS) {
+                error(element, "@UpdateVersion is only allowed on classes!");
+                continue;
+            }
+            final TypeElement update = (TypeElement) element;
+            final UpdateVersion annotation = update.getAnnotation(UpdateVersion.class);
+            final String registryName = getRegistryName(update, annotation);
+            if (!SourceVersion.isName(registryName)) {
+                error(update, "Invalid registry name: " + registryName);
+                continue;
+            }
+            if (generatedRegistries.contains(registryName)) {
+                error(update, "Registry " + registryName + " was already generated, the updates of a registry must be compiled together!");
+                continue;
+            }
+            if (!isValidUpdate(update, updateType, getPackageName(registryName))) {
+                invalidRegistries.add(registryName);
+                continue;
+            }
+
+            VersionMap<TypeElement> updates = registries.get(registryName);
+            if (updates == null) {
+                updates = new VersionMap<>();
+                registries.put(registryName, updates);
+            }
+            final TypeElement previous = updates.get(annotation.value());
+            if (previous != null) {
+                error(update, "Version " + annotation.value() + " of " + registryName + " is already used by " + previous.getQualifiedName());
+                error(previous, "Version " + annotation.value() + " of " + registryName + " is also used by " + update.getQualifiedName());
+                invalidRegistries.add(registryName);
+                continue;
+            }
+            updates.put(annotation.value(), update);
+        }
+
+        for (Map.Entry<String, VersionMap<TypeElement>> registry : registries.entrySet()) {
+            if (!invalidRegistries.contains(registry.getKey())) {
+                generate(registry.getKey(), registry.getValue());
+            }
+            generatedRegistries.add(registry.getKey());
+        }
+        return true;
+    }
+
+    private boolean isValidUpdate(TypeElement update, TypeMirror updateType, String registryPackage) {
+        if (update.getModifiers().contains(Modifier.ABSTRACT)) {
+            error(update, "@UpdateVersion class must not be abstract!");
+            return false;
+        }
+        if (!processingEnv.getTypeUtils().isAssignable(processingEnv.getTypeUtils().erasure(update.asType()), updateType)) {
+            error(update, "@UpdateVersion class must implement " + UPDATE_CLASS);
+            return false;
+        }
+        final boolean samePackage = registryPackage.equals(processingEnv.getElementUtils().getPackageOf(update).getQualifiedName().toString());
+        Element type = update;
+        while (type.getKind().isClass() || type.getKind().isInterface()) {
+            if (!isAccessible(type, samePackage)) {
+                error(update, "@UpdateVersion class must be accessible from the registry package " + registryPackage + ": " + type);
+                return false;
+            }
+            if (type.getEnclosingElement().getKind() != ElementKind.PACKAGE && !type.getModifiers().contains(Modifier.STATIC)) {
+                error(update, "Nested @UpdateVersion class must be static!");
+                return false;
+            }
+            type = type.getEnclosingElement();
+        }
+        for (ExecutableElement constructor : ElementFilter.constructorsIn(update.getEnclosedElements())) {
+            if (constructor.getParameters().isEmpty() && isAccessible(constructor, samePackage)) {
+                return true;
+            }
+        }
+        error(update, "@UpdateVersion class needs a no-argument constructor which is accessible from the registry package " + registryPackage);
+        return false;
+    }
+
+    private static boolean isAccessible(Element element, boolean samePackage) {
+        final Set<Modifier> modifiers = element.getModifiers();
+        return modifiers.contains(Modifier.PUBLIC) || samePackage && !modifiers.contains(Modifier.PRIVATE);
+    }
+
+    private String getRegistryName(TypeElement update, UpdateVersion annotation) {
+        if (!annotation.registry().isEmpty()) {
+            return annotation.registry();
+        }
+        final PackageElement updatePackage = processingEnv.getElementUtils().getPackageOf(update);
+        return updatePackage.isUnnamed() ? DEFAULT_REGISTRY_NAME : updatePackage.getQualifiedName() + "." + DEFAULT_REGISTRY_NAME;
+    }
+
+    private static String getPackageName(String registryName) {
+        final int separator = registryName.lastIndexOf('.');
+        return separator < 0 ? "" : registryName.substring(0, separator);
+    }
+
+    private void generate(String registryName, VersionMap<TypeElement> updates) {
+        final TypeElement[] originatingElements = updates.values().toArray(new TypeElement[updates.size()]);
+        try (PrintWriter writer = new PrintWriter(processingEnv.getFiler().createSourceFile(registryName, originatingElements).openWriter())) {
+            write(writer, registryName, updates);
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Writing " + registryName + " failed: " + e);
+        }
+    }
+
+    private static void write(PrintWriter writer, String registryName, VersionMap<TypeElement> updates) {
+        final String packageName = getPackageName(registryName);
+        final String simpleName = registryName.substring(registryName.lastIndexOf('.') + 1);
+        final int methods = ((updates.size() - 1) >> METHOD_SHIFT) + 1;
+
+        writer.println("// Generated by " + UpdateVersionProcessor.class.getName() + " from the @UpdateVersion annotations, do not edit!");
+        if (!packageName.isEmpty()) {
+            writer.println("package " + packageName + ";");
+            writer.println();
+        }
+        writer.println("/**");
+        writer.println(" * Registry of the " + updates.size() + " @UpdateVersion annotated updates, sorted by their version.");
+        writer.println(" */");
+        writer.println("@SuppressWarnings(\"rawtypes\")");
+        writer.println("public final class " + simpleName + " {");
+        writer.println();
+        writer.println("    public static final int LATEST_VERSION = " + updates.lastVersion() + ";");
+        writer.println();
+        writer.println("    private " + simpleName + "() {}");
+        writer.println();
+        writer.println("    /**");
+        writer.println("     * @return a new registry of every annotated update, each of them must be an implementation of UpdateImpl");
+        writer.println("     */");
+        writer.println("    public static <UpdateImpl extends " + UPDATE_CLASS + "> com.cybc.updatehelper.UpdateRegistry<UpdateImpl> create() {");
+        writer.println("        final com.cybc.updatehelper.UpdateRegistry<UpdateImpl> registry = new com.cybc.updatehelper.UpdateRegistry<>();");
+        for (int method = 0; method < methods; method++) {
+            writer.println("        register" + method + "(registry);");
+        }
+        writer.println("        return registry;");
+        writer.println("    }");
+
+        for (int method = 0; method < methods; method++) {
+            final int first = method << METHOD_SHIFT;
+            final int end = Math.min(updates.size(), first + (1 << METHOD_SHIFT));
+            writer.println();
+            writer.println("    private static <UpdateImpl extends " + UPDATE_CLASS + "> void register" + method + "(com.cybc.updatehelper.UpdateRegistry<UpdateImpl> registry) {");
+            for (int position = first; position < end; position++) {
+                writer.println("        registry.register(" + updates.versionAt(position) + ", new Factory<UpdateImpl>(" + position + "));");
+            }
+            writer.println("    }");
+            writer.println();
+            writer.println("    private static " + UPDATE_CLASS + " create" + method + "(int position) {");
+            writer.println("        switch (position) {");
+            for (int position = first; position < end; position++) {
+                writer.println("            case " + position + ":");
+                writer.println("                return new " + updates.valueAt(position).getQualifiedName() + "();");
+            }
+            writer.println("            default:");
+            writer.println("                throw new IllegalArgumentException(\"Unknown position: \" + position);");
+            writer.println("        }");
+            writer.println("    }");
+        }
+
+        writer.println();
+        writer.println("    private static final class Factory<UpdateImpl extends " + UPDATE_CLASS + "> implements com.cybc.updatehelper.UpdateFactory<UpdateImpl> {");
+        writer.println();
+        writer.println("        private final int position;");
+        writer.println();
+        writer.println("        private Factory(int position) {");
+        writer.println("            this.position = position;");
+        writer.println("        }");
+        writer.println();
+        writer.println("        @Override");
+        writer.println("        @SuppressWarnings(\"unchecked\")");
+        writer.println("        public UpdateImpl create() {");
+        writer.println("            switch (position >> " + METHOD_SHIFT + ") {");
+        for (int method = 0; method < methods; method++) {
+            writer.println("                case " + method + ":");
+            writer.println("                    return (UpdateImpl) create" + method + "(position);");
+        }
+        writer.println("                default:");
+        writer.println("                    throw new IllegalArgumentException(\"Unknown position: \" + position);");
+        writer.println("            }");
+        writer.println("        }");
+        writer.println("    }");
+        writer.println("}");
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -0,0 +1,150 @@
+package com.cybc.updatehelper.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.cybc.updatehelper.Update;
+import com.cybc.updatehelper.UpdateRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+@RunWith(JUnit4.class)
+public class UpdateVersionProcessorTest {
+
+    @Test
+    public void generatesSortedRegistry() throws Exception {
+        final Compilation compilation = compile(
+                update("app", "UpdateThree", "@UpdateVersion(3)", 3),
+                update("app", "UpdateOne", "@UpdateVersion(1)", 1),
+                update("app", "UpdateTwo", "@UpdateVersion(2)", 2));
+        assertTrue(compilation.errors.toString(), compilation.errors.isEmpty());
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[]{compilation.output.toUri().toURL()}, getClass().getClassLoader())) {
+            final Class<?> registryClass = classLoader.loadClass("app." + UpdateVersionProcessor.DEFAULT_REGISTRY_NAME);
+            assertEquals(3, registryClass.getField("LATEST_VERSION").getInt(null));
+
+            @SuppressWarnings("unchecked")
+            final UpdateRegistry<Update> registry = (UpdateRegistry<Update>) registryClass.getMethod("create").invoke(null);
+            assertEquals(3, registry.size());
+            registry.validate(3).throwIfCorrupted();
+            final List<Update> pendingUpdates = registry.createPendingUpdates(1);
+            assertEquals(2, pendingUpdates.size());
+            assertEquals("app.UpdateTwo", pendingUpdates.get(0).getClass().getName());
+            assertEquals("app.UpdateThree", pendingUpdates.get(1).getClass().getName());
+        }
+    }
+
+    @Test
+    public void registryAcrossPackages() throws Exception {
+        final Compilation compilation = compile(
+                update("app.core", "CoreUpdate", "@UpdateVersion(value = 1, registry = \"app.AppUpdates\")", 1),
+                update("app.search", "SearchUpdate", "@UpdateVersion(value = 2, registry = \"app.AppUpdates\")", 2));
+        assertTrue(compilation.errors.toString(), compilation.errors.isEmpty());
+        assertTrue(Files.exists(compilation.output.resolve("app/AppUpdates.class")));
+    }
+
+    @Test
+    public void duplicateVersionFailsTheBuild() throws Exception {
+        final Compilation compilation = compile(
+                update("app", "UpdateOne", "@UpdateVersion(1)", 1),
+                update("app", "UpdateAlsoOne", "@UpdateVersion(1)", 1));
+        assertEquals(2, compilation.errors.size());
+        assertTrue(compilation.errors.get(0).contains("Version 1 of app.GeneratedUpdateRegistry is"));
+        assertFalse(Files.exists(compilation.output.resolve("app/GeneratedUpdateRegistry.class")));
+    }
+
+    @Test
+    public void invalidUpdatesFailTheBuild() throws Exception {
+        assertErrors(compile(source("app", "NoUpdate", "@UpdateVersion(1) public class NoUpdate {}")), "must implement");
+        assertErrors(compile(source("app", "AbstractUpdate", "@UpdateVersion(1) public abstract class AbstractUpdate implements Update<Object> {}")), "must not be abstract");
+        assertErrors(compile(source("app", "ArgumentUpdate", "@UpdateVersion(1) public class ArgumentUpdate implements Update<Object> {"
+                + " public ArgumentUpdate(int version) {}"
+                + " public void execute(Object storage) {}"
+                + " public int getUpdateVersion() { return 1; } }")), "no-argument constructor");
+        assertErrors(compile(source("app.hidden", "HiddenUpdate", "@UpdateVersion(value = 1, registry = \"app.Registry\") class HiddenUpdate implements Update<Object> {"
+                + " public void execute(Object storage) {}"
+                + " public int getUpdateVersion() { return 1; } }")), "must be accessible");
+    }
+
+    private static void assertErrors(Compilation compilation, String expectedMessage) {
+        assertEquals(compilation.errors.toString(), 1, compilation.errors.size());
+        assertTrue(compilation.errors.get(0), compilation.errors.get(0).contains(expectedMessage));
+    }
+
+    private static String[] update(String packageName, String className, String annotation, int version) {
+        return source(packageName, className, annotation + " public class " + className + " implements Update<Object> {"
+                + " public void execute(Object storage) {}"
+                + " public int getUpdateVersion() { return " + version + "; } }");
+    }
+
+    private static String[] source(String packageName, String className, String body) {
+        return new String[]{packageName.replace('.', '/') + "/" + className + ".java",
+                "package " + packageName + ";\n"
+                        + "import com.cybc.updatehelper.Update;\n"
+                        + "import com.cybc.updatehelper.UpdateVersion;\n"
+                        + body + "\n"};
+    }
+
+    private static Compilation compile(String[]... sources) throws IOException {
+        final Path sourceDirectory = Files.createTempDirectory("processor-sources");
+        final Path output = Files.createTempDirectory("processor-output");
+        final List<File> files = new ArrayList<>();
+        for (String[] source : sources) {
+            final Path file = sourceDirectory.resolve(source[0]);
+            Files.createDirectories(file.getParent());
+            Files.write(file, source[1].getBytes(StandardCharsets.UTF_8));
+            files.add(file.toFile());
+        }
+
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, Locale.ROOT, StandardCharsets.UTF_8)) {
+            final List<String> options = Arrays.asList("-classpath", System.getProperty("java.class.path"), "-d", output.toString(), "-s", output.toString());
+            final JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null, fileManager.getJavaFileObjectsFromFiles(files));
+            task.setProcessors(Collections.singletonList(new UpdateVersionProcessor()));
+            task.call();
+        }
+
+        final List<String> errors = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                errors.add(diagnostic.getMessage(Locale.ROOT));
+            }
+        }
+        return new Compilation(output, errors);
+    }
+
+    private static class Compilation {
+
+        private final Path         output;
+        private final List<String> errors;
+
+        private Compilation(Path output, List<String> errors) {
+            this.output = output;
+            this.errors = errors;
+        }
+    }
+}
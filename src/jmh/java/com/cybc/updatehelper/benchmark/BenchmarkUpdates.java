@@ -0,0 +1,150 @@
+package com.cybc.updatehelper.benchmark;
+
+import com.cybc.updatehelper.Update;
+import com.cybc.updatehelper.UpdateWorker;
+import com.cybc.updatehelper.testing.UpdateTest;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Creates update chains and workers for the benchmarks. Versions always start at 1 and end at the chain size.
+ */
+public final class BenchmarkUpdates {
+
+    /**
+     * Where the old storage version is placed inside the update chain.
+     */
+    public enum OldVersionPosition {
+        /**
+         * Fresh storage, every update is pending.
+         */
+        START,
+        /**
+         * Half of the updates are pending.
+         */
+        MIDDLE,
+        /**
+         * Only the last update is pending.
+         */
+        END;
+
+        int oldVersionFor(int chainSize) {
+            switch (this) {
+                case START:
+                    return 0;
+                case MIDDLE:
+                    return chainSize / 2;
+                default:
+                    return chainSize - 1;
+            }
+        }
+    }
+
+    private BenchmarkUpdates() {
+    }
+
+    static List<Update<CounterStorage>> createChain(int chainSize) {
+        final List<Update<CounterStorage>> updates = new ArrayList<>(chainSize);
+        for (int version = 1; version <= chainSize; version++) {
+            updates.add(new CounterUpdate(version));
+        }
+        return updates;
+    }
+
+    static List<UpdateTest<CounterStorage>> createTestChain(int chainSize) {
+        final List<UpdateTest<CounterStorage>> tests = new ArrayList<>(chainSize);
+        for (int version = 1; version <= chainSize; version++) {
+            tests.add(new CounterUpdateTest(new CounterUpdate(version)));
+        }
+        return tests;
+    }
+
+    static final class CounterUpdate implements Update<CounterStorage> {
+
+        private final int version;
+
+        CounterUpdate(int version) {
+            this.version = version;
+        }
+
+        @Override
+        public void execute(CounterStorage storage) throws Exception {
+            storage.onUpdateExecuted();
+        }
+
+        @Override
+        public int getUpdateVersion() {
+            return version;
+        }
+    }
+
+    static final class CounterUpdateTest implements UpdateTest<CounterStorage> {
+
+        private final Update<CounterStorage> update;
+
+        CounterUpdateTest(Update<CounterStorage> update) {
+            this.update = update;
+        }
+
+        @Override
+        public void insertMockData(CounterStorage storage) {
+            storage.onUpdateExecuted();
+        }
+
+        @Override
+        public void testConsistency(CounterStorage storage) {
+            if (storage.getVersion() != update.getUpdateVersion()) {
+                throw new IllegalStateException("Unexpected version " + storage.getVersion() + " for update " + update.getUpdateVersion());
+            }
+        }
+
+        @Override
+        public Update<CounterStorage> getUpdateToTest() {
+            return update;
+        }
+    }
+
+    /**
+     * Worker which returns a prebuilt chain, so only the orchestration of the helper gets measured.
+     */
+    static final class CounterUpdateWorker implements UpdateWorker<Update<CounterStorage>, CounterStorage> {
+
+        private final Collection<Update<CounterStorage>> updates;
+        private final int                                latestVersion;
+
+        CounterUpdateWorker(Collection<Update<CounterStorage>> updates, int latestVersion) {
+            this.updates = updates;
+            this.latestVersion = latestVersion;
+        }
+
+        @Override
+        public int getLatestUpdateVersion(CounterStorage storage) {
+            return latestVersion;
+        }
+
+        @Override
+        public Collection<Update<CounterStorage>> createUpdates() {
+            return updates;
+        }
+
+        @Override
+        public void onPreUpdate(CounterStorage storage, Update<CounterStorage> update) {
+        }
+
+        @Override
+        public void onPostUpdate(CounterStorage storage, Update<CounterStorage> update) {
+            storage.setVersion(update.getUpdateVersion());
+        }
+
+        @Override
+        public void onUpgradingDone(CounterStorage storage) {
+        }
+
+        @Override
+        public boolean isStorageClosed(CounterStorage storage) {
+            return storage.isClosed();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.cybc.updatehelper.benchmark;
+
+/**
+ * In-memory storage for the benchmarks. Unlike the test IntegerStorage it doesn't grow with every update, so repeated upgrades in one
+ * benchmark iteration don't measure list resizing instead of the helper itself.
+ */
+public class CounterStorage {
+
+    private int     version;
+    private long    executedUpdates;
+    private boolean closed;
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    public void onUpdateExecuted() {
+        executedUpdates++;
+    }
+
+    public long getExecutedUpdates() {
+        return executedUpdates;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public void setClosed(boolean closed) {
+        this.closed = closed;
+    }
+}
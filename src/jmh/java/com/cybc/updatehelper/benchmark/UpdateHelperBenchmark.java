@@ -0,0 +1,62 @@
+package com.cybc.updatehelper.benchmark;
+
+import com.cybc.updatehelper.Update;
+import com.cybc.updatehelper.UpdateHelper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the orchestration overhead of {@link UpdateHelper#validateUpdates(java.util.Collection, int)} and {@link UpdateHelper#onUpgrade(Object, int, int)}. The updates
+ * itself only increment a counter.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UpdateHelperBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int chainSize;
+
+    @Param({"START", "MIDDLE", "END"})
+    public BenchmarkUpdates.OldVersionPosition oldVersionPosition;
+
+    private List<Update<CounterStorage>>                         updates;
+    private UpdateHelper<Update<CounterStorage>, CounterStorage> helper;
+    private CounterStorage                                       storage;
+    private int                                                  oldVersion;
+
+    @Setup
+    public void setUp() {
+        updates = BenchmarkUpdates.createChain(chainSize);
+        helper = new UpdateHelper<>(new BenchmarkUpdates.CounterUpdateWorker(updates, chainSize));
+        storage = new CounterStorage();
+        oldVersion = oldVersionPosition.oldVersionFor(chainSize);
+    }
+
+    @Benchmark
+    public UpdateHelper.UpdateValidationResult validateUpdates() {
+        return UpdateHelper.validateUpdates(updates, chainSize);
+    }
+
+    @Benchmark
+    public long onUpgrade() {
+        helper.onUpgrade(storage, oldVersion, chainSize);
+        return storage.getExecutedUpdates();
+    }
+}
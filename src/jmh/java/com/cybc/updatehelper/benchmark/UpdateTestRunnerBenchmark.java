@@ -0,0 +1,71 @@
+package com.cybc.updatehelper.benchmark;
+
+import com.cybc.updatehelper.Update;
+import com.cybc.updatehelper.testing.UpdateTest;
+import com.cybc.updatehelper.testing.UpdateTestRunner;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link UpdateTestRunner#runTestUpdates(Object, int, int)}, including the version lookup of the matching {@link UpdateTest} for every executed update.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UpdateTestRunnerBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int chainSize;
+
+    @Param({"START", "MIDDLE", "END"})
+    public BenchmarkUpdates.OldVersionPosition oldVersionPosition;
+
+    private UpdateTestRunner<CounterStorage> runner;
+    private CounterStorage                   storage;
+    private int                              oldVersion;
+
+    @Setup
+    public void setUp() {
+        final List<UpdateTest<CounterStorage>> tests = BenchmarkUpdates.createTestChain(chainSize);
+        runner = new UpdateTestRunner<>(new UpdateTestRunner.StorageProvider<CounterStorage>() {
+            @Override
+            public void setVersionBy(Update<CounterStorage> lastUpdate, CounterStorage storage) {
+                storage.setVersion(lastUpdate.getUpdateVersion());
+            }
+
+            @Override
+            public boolean isStorageClosed(CounterStorage storage) {
+                return storage.isClosed();
+            }
+
+            @Override
+            public void closeStorage(CounterStorage storage) {
+                //the storage is reused for every invocation, keep it open
+            }
+        }, tests);
+        storage = new CounterStorage();
+        oldVersion = oldVersionPosition.oldVersionFor(chainSize);
+    }
+
+    @Benchmark
+    public long runTestUpdates() {
+        runner.runTestUpdates(storage, oldVersion, chainSize);
+        return storage.getExecutedUpdates();
+    }
+}
@@ -0,0 +1,22 @@
+package com.cybc.updatehelper;
+
+/**
+ * An {@link UpdateWorker} which can abort a running update, e.g. by cancelling the running database statement. Interrupting the executing thread is not enough for every
+ * storage.
+ *
+ * @param <UpdateImpl>      The implementation of {@link Update}
+ * @param <StorageToUpdate> The storage you want to update (Like databases, Files or similar)
+ * @see UpdateHelper#setStepTimeout(long, java.util.concurrent.TimeUnit)
+ * @see UpdateHelper#setUpgradeTimeout(long, java.util.concurrent.TimeUnit)
+ */
+public interface AbortableUpdateWorker<UpdateImpl extends Update<StorageToUpdate>, StorageToUpdate> extends UpdateWorker<UpdateImpl, StorageToUpdate> {
+
+    /**
+     * Is called by the watchdog thread when an update timed out, right after the executing thread was interrupted. The update fails with an {@link
+     * com.cybc.updatehelper.exceptions.UpdateTimeoutException} as soon as it returns.
+     *
+     * @param storageToUpdate The storage which gets updated
+     * @param update          The running update
+     */
+    void onAbortUpdate(StorageToUpdate storageToUpdate, UpdateImpl update);
+}
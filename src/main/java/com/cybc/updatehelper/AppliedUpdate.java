@@ -0,0 +1,47 @@
+package com.cybc.updatehelper;
+
+/**
+ * A record of the {@link AppliedUpdateHistory}: an update which was applied to the storage.
+ */
+public final class AppliedUpdate {
+
+    private final int  version;
+    private final long checksum;
+    private final long durationNanos;
+    private final long appliedAtMillis;
+
+    /**
+     * @param version         the version of the update
+     * @param checksum        the {@link UpdateChecksum} of the update when it was applied
+     * @param durationNanos   the duration of the update
+     * @param appliedAtMillis the time the update was finished, in milliseconds since the epoch
+     */
+    public AppliedUpdate(int version, long checksum, long durationNanos, long appliedAtMillis) {
+        this.version = version;
+        this.checksum = checksum;
+        this.durationNanos = durationNanos;
+        this.appliedAtMillis = appliedAtMillis;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public long getChecksum() {
+        return checksum;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public long getAppliedAtMillis() {
+        return appliedAtMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "AppliedUpdate{version=" + version + ", checksum=" + Long.toHexString(checksum) + ", durationNanos=" + durationNanos + ", appliedAtMillis=" + appliedAtMillis
+               + "}";
+    }
+}
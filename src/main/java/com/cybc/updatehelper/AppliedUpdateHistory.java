@@ -0,0 +1,151 @@
+package com.cybc.updatehelper;
+
+import java.util.Collection;
+
+/**
+ * The applied updates of a storage with their checksums, loaded once per upgrade by a {@link HistoryUpdateWorker}. The records are held in primitive arrays behind an open
+ * addressing hash table of the versions, so the decision whether an update is {@link Status#APPLIED applied}, {@link Status#CHANGED changed} or {@link Status#PENDING
+ * pending} takes constant time and no boxing. The history is immutable.
+ */
+public final class AppliedUpdateHistory {
+
+    public enum Status {
+        /**
+         * The update wasn't applied yet.
+         */
+        PENDING,
+        /**
+         * The update was applied with the same checksum.
+         */
+        APPLIED,
+        /**
+         * The update was applied with another checksum, it was changed afterwards.
+         */
+        CHANGED
+    }
+
+    private static final AppliedUpdateHistory EMPTY = new AppliedUpdateHistory(new int[0], new long[0], new long[0], new long[0], 0);
+
+    //position + 1 of the record of a version, 0 marks a free slot
+    private final int[]  table;
+    private final int    mask;
+    private final int[]  versions;
+    private final long[] checksums;
+    private final long[] durations;
+    private final long[] appliedAt;
+    private final int    size;
+
+    private AppliedUpdateHistory(int[] versions, long[] checksums, long[] durations, long[] appliedAt, int size) {
+        this.versions = versions;
+        this.checksums = checksums;
+        this.durations = durations;
+        this.appliedAt = appliedAt;
+        this.size = size;
+        //at most half full, keeps the probe sequences short
+        int capacity = 2;
+        while (capacity < size * 2) {
+            capacity <<= 1;
+        }
+        this.table = new int[capacity];
+        this.mask = capacity - 1;
+        for (int position = 0; position < size; position++) {
+            table[slotOf(versions[position])] = position + 1;
+        }
+    }
+
+    public static AppliedUpdateHistory empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Creates the history of the applied updates. A version which was applied more than once keeps its last record.
+     *
+     * @param appliedUpdates the records, null or empty for a storage without applied updates
+     */
+    public static AppliedUpdateHistory of(Collection<AppliedUpdate> appliedUpdates) {
+        if (appliedUpdates == null || appliedUpdates.isEmpty()) {
+            return EMPTY;
+        }
+        final VersionMap<AppliedUpdate> latest = new VersionMap<>();
+        for (AppliedUpdate appliedUpdate : appliedUpdates) {
+            if (appliedUpdate == null) {
+                throw new IllegalArgumentException("The applied updates must not contain null!");
+            }
+            latest.put(appliedUpdate.getVersion(), appliedUpdate);
+        }
+        final int size = latest.size();
+        final int[] versions = new int[size];
+        final long[] checksums = new long[size];
+        final long[] durations = new long[size];
+        final long[] appliedAt = new long[size];
+        for (int position = 0; position < size; position++) {
+            final AppliedUpdate appliedUpdate = latest.valueAt(position);
+            versions[position] = appliedUpdate.getVersion();
+            checksums[position] = appliedUpdate.getChecksum();
+            durations[position] = appliedUpdate.getDurationNanos();
+            appliedAt[position] = appliedUpdate.getAppliedAtMillis();
+        }
+        return new AppliedUpdateHistory(versions, checksums, durations, appliedAt, size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int version) {
+        return positionOf(version) >= 0;
+    }
+
+    /**
+     * @param version  the version of the update
+     * @param checksum the current {@link UpdateChecksum} of the update
+     */
+    public Status getStatus(int version, long checksum) {
+        final int position = positionOf(version);
+        if (position < 0) {
+            return Status.PENDING;
+        }
+        return checksums[position] == checksum ? Status.APPLIED : Status.CHANGED;
+    }
+
+    /**
+     * @return the record of the version, or null if it wasn't applied
+     */
+    public AppliedUpdate get(int version) {
+        final int position = positionOf(version);
+        return position < 0 ? null : getAt(position);
+    }
+
+    /**
+     * @return the record at the position
+     */
+    private AppliedUpdate getAt(int position) {
+        return new AppliedUpdate(versions[position], checksums[position], durations[position], appliedAt[position]);
+    }
+
+    private int positionOf(int version) {
+        int slot = hash(version) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            if (versions[entry - 1] == version) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int slotOf(int version) {
+        int slot = hash(version) & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static int hash(int version) {
+        //versions are mostly consecutive, spread them over the table
+        final int hash = version * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,30 @@
+package com.cybc.updatehelper;
+
+/**
+ * An {@link UpdateWorker} which can bring a storage to a newer version with an {@link UpdateBaseline} instead of executing every update. {@link
+ * UpdateHelper#onUpgrade(Object, int, int)} applies the baseline when the old version is below it and only executes the updates after the baseline version.
+ *
+ * @param <UpdateImpl>      The implementation of {@link Update}
+ * @param <StorageToUpdate> The storage you want to update (Like databases, Files or similar)
+ */
+public interface BaselineUpdateWorker<UpdateImpl extends Update<StorageToUpdate>, StorageToUpdate> extends UpdateWorker<UpdateImpl, StorageToUpdate> {
+
+    /**
+     * Provides the baseline for a storage. Return null when the storage can't use a baseline, e.g. because it already contains data which the baseline would drop.
+     *
+     * @param storageToUpdate The storage to update
+     * @param oldVersion      The old storage version
+     *
+     * @return the baseline, or null to execute every update
+     */
+    UpdateBaseline<StorageToUpdate> getBaseline(StorageToUpdate storageToUpdate, int oldVersion);
+
+    /**
+     * Is called after the baseline was applied successfully. Persist the baseline version here.
+     *
+     * @param storageToUpdate The storage which got the baseline
+     * @param baseline        The applied baseline
+     */
+    void onBaselineApplied(StorageToUpdate storageToUpdate, UpdateBaseline<StorageToUpdate> baseline);
+
+}
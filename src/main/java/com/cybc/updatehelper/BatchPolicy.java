@@ -0,0 +1,73 @@
+package com.cybc.updatehelper;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when a batch of a {@link BatchUpdateWorker} gets committed. A batch is committed as soon as one of the limits is reached, and always after the last update.
+ * <p>Instances are immutable, every <code>with</code> method returns a new policy.</p>
+ */
+public final class BatchPolicy {
+
+    private static final long UNLIMITED = Long.MAX_VALUE;
+
+    private final int  maxUpdates;
+    private final long maxDurationNanos;
+    private final long maxBytes;
+
+    private BatchPolicy(int maxUpdates, long maxDurationNanos, long maxBytes) {
+        this.maxUpdates = maxUpdates;
+        this.maxDurationNanos = maxDurationNanos;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @param maxUpdates the maximum count of updates per batch
+     */
+    public static BatchPolicy ofUpdates(int maxUpdates) {
+        if (maxUpdates < 1) {
+            throw new IllegalArgumentException("maxUpdates must be at least 1, was: " + maxUpdates);
+        }
+        return new BatchPolicy(maxUpdates, UNLIMITED, UNLIMITED);
+    }
+
+    /**
+     * @return a policy which puts every update into one single batch
+     */
+    public static BatchPolicy unlimited() {
+        return new BatchPolicy(Integer.MAX_VALUE, UNLIMITED, UNLIMITED);
+    }
+
+    /**
+     * @param maxDuration the time budget of a batch, the batch is committed after the update which exceeded it
+     */
+    public BatchPolicy withMaxDuration(long maxDuration, TimeUnit unit) {
+        return new BatchPolicy(maxUpdates, unit.toNanos(maxDuration), maxBytes);
+    }
+
+    /**
+     * @param maxBytes the byte budget of a batch, see {@link BatchUpdateWorker#getUncommittedBytes(Object)}
+     */
+    public BatchPolicy withMaxBytes(long maxBytes) {
+        return new BatchPolicy(maxUpdates, maxDurationNanos, maxBytes);
+    }
+
+    public int getMaxUpdates() {
+        return maxUpdates;
+    }
+
+    public long getMaxDurationNanos() {
+        return maxDurationNanos;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    boolean hasByteBudget() {
+        return maxBytes != UNLIMITED;
+    }
+
+    boolean isExhausted(int updates, long durationNanos, long bytes) {
+        return updates >= maxUpdates || durationNanos >= maxDurationNanos || bytes >= maxBytes;
+    }
+}
@@ -0,0 +1,43 @@
+package com.cybc.updatehelper;
+
+/**
+ * An {@link UpdateWorker} which groups consecutive updates into batches, e.g. to execute them inside one database transaction instead of one transaction per update.
+ *
+ * @param <UpdateImpl>      The implementation of {@link Update}
+ * @param <StorageToUpdate> The storage you want to update (Like databases, Files or similar)
+ * @see UpdateHelper#setBatchPolicy(BatchPolicy)
+ */
+public interface BatchUpdateWorker<UpdateImpl extends Update<StorageToUpdate>, StorageToUpdate> extends UpdateWorker<UpdateImpl, StorageToUpdate> {
+
+    /**
+     * Is called before the first update of a batch, e.g. to begin a transaction.
+     *
+     * @param storageToUpdate The storage to update
+     */
+    void onBatchBegin(StorageToUpdate storageToUpdate);
+
+    /**
+     * Is called after the last update of a batch was finished successfully, e.g. to persist the version and commit the transaction.
+     *
+     * @param storageToUpdate The storage which got updated
+     * @param lastUpdate      The last update of the batch, the storage has its version now
+     */
+    void onBatchCommit(StorageToUpdate storageToUpdate, UpdateImpl lastUpdate);
+
+    /**
+     * Is called when an update of the batch or the commit failed. Every change of the batch must be rolled back, the storage stays on the last committed version.
+     *
+     * @param storageToUpdate The storage to update
+     */
+    void onBatchRollback(StorageToUpdate storageToUpdate);
+
+    /**
+     * The size of the not yet committed changes, e.g. the size of the write ahead log. Only called when the {@link BatchPolicy} has a byte budget.
+     *
+     * @param storageToUpdate The storage to update
+     *
+     * @return the uncommitted bytes
+     */
+    long getUncommittedBytes(StorageToUpdate storageToUpdate);
+
+}
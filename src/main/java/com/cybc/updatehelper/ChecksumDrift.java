@@ -0,0 +1,36 @@
+package com.cybc.updatehelper;
+
+/**
+ * An applied update whose checksum differs from the current update of the same version, so the update was changed after it was applied.
+ */
+public final class ChecksumDrift {
+
+    private final AppliedUpdate appliedUpdate;
+    private final long          currentChecksum;
+
+    public ChecksumDrift(AppliedUpdate appliedUpdate, long currentChecksum) {
+        this.appliedUpdate = appliedUpdate;
+        this.currentChecksum = currentChecksum;
+    }
+
+    public int getVersion() {
+        return appliedUpdate.getVersion();
+    }
+
+    /**
+     * @return the record of the applied update, with the checksum at the time it was applied
+     */
+    public AppliedUpdate getAppliedUpdate() {
+        return appliedUpdate;
+    }
+
+    public long getCurrentChecksum() {
+        return currentChecksum;
+    }
+
+    @Override
+    public String toString() {
+        return "ChecksumDrift{version=" + getVersion() + ", appliedChecksum=" + Long.toHexString(appliedUpdate.getChecksum()) + ", currentChecksum="
+               + Long.toHexString(currentChecksum) + "}";
+    }
+}
@@ -0,0 +1,16 @@
+package com.cybc.updatehelper;
+
+/**
+ * An {@link Update} which provides its own checksum for the {@link AppliedUpdateHistory}, instead of the checksum of its class byte code. Useful when the byte code changes
+ * without a change of the update, e.g. by another compiler, or when several versions share one class.
+ *
+ * @param <StorageToUpdate> The implementation of the storage which gets this update.
+ */
+public interface ChecksummedUpdate<StorageToUpdate> extends Update<StorageToUpdate> {
+
+    /**
+     * @return the checksum, which must change whenever the update changes
+     */
+    long getChecksum();
+
+}
@@ -0,0 +1,116 @@
+package com.cybc.updatehelper;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides how a {@link ChunkedUpdate} is driven: the size of the chunks, optionally adapted to the observed latency per chunk, and the maximum rate of processed items.
+ * <p>Instances are immutable, every <code>with</code> method returns a new policy.</p>
+ */
+public final class ChunkPolicy {
+
+    /**
+     * The chunk size when no policy is set.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    //a chunk size changes at most by this factor per chunk, so single outliers don't dominate
+    private static final double MAX_ADAPTION = 2;
+
+    private final int    chunkSize;
+    private final int    minChunkSize;
+    private final int    maxChunkSize;
+    private final long   targetLatencyNanos;
+    private final double maxItemsPerSecond;
+
+    private ChunkPolicy(int chunkSize, int minChunkSize, int maxChunkSize, long targetLatencyNanos, double maxItemsPerSecond) {
+        this.chunkSize = chunkSize;
+        this.minChunkSize = minChunkSize;
+        this.maxChunkSize = maxChunkSize;
+        this.targetLatencyNanos = targetLatencyNanos;
+        this.maxItemsPerSecond = maxItemsPerSecond;
+    }
+
+    /**
+     * @param chunkSize the fixed count of items per chunk
+     */
+    public static ChunkPolicy ofSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize must be at least 1, was: " + chunkSize);
+        }
+        return new ChunkPolicy(chunkSize, chunkSize, chunkSize, 0, 0);
+    }
+
+    /**
+     * Adapts the chunk size after every chunk, so a chunk takes about the target latency. The first chunk has the size of this policy.
+     *
+     * @param minChunkSize  the lower bound of the chunk size
+     * @param maxChunkSize  the upper bound of the chunk size
+     * @param targetLatency the desired duration of a single chunk
+     */
+    public ChunkPolicy withAdaptiveSize(int minChunkSize, int maxChunkSize, long targetLatency, TimeUnit unit) {
+        if (minChunkSize < 1 || maxChunkSize < minChunkSize) {
+            throw new IllegalArgumentException("Invalid chunk size bounds: min[" + minChunkSize + "] max[" + maxChunkSize + "]");
+        }
+        if (targetLatency <= 0) {
+            throw new IllegalArgumentException("targetLatency must be positive, was: " + targetLatency);
+        }
+        final int chunkSize = Math.min(maxChunkSize, Math.max(minChunkSize, this.chunkSize));
+        return new ChunkPolicy(chunkSize, minChunkSize, maxChunkSize, unit.toNanos(targetLatency), maxItemsPerSecond);
+    }
+
+    /**
+     * Pauses between the chunks, so on average at most the given count of items is processed per second.
+     *
+     * @param maxItemsPerSecond the maximum rate, or 0 for no limit
+     */
+    public ChunkPolicy withRateLimit(double maxItemsPerSecond) {
+        if (maxItemsPerSecond < 0) {
+            throw new IllegalArgumentException("maxItemsPerSecond must not be negative, was: " + maxItemsPerSecond);
+        }
+        return new ChunkPolicy(chunkSize, minChunkSize, maxChunkSize, targetLatencyNanos, maxItemsPerSecond);
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public int getMinChunkSize() {
+        return minChunkSize;
+    }
+
+    public int getMaxChunkSize() {
+        return maxChunkSize;
+    }
+
+    public long getTargetLatencyNanos() {
+        return targetLatencyNanos;
+    }
+
+    public double getMaxItemsPerSecond() {
+        return maxItemsPerSecond;
+    }
+
+    /**
+     * @return the size of the chunk after a chunk of <code>chunkSize</code> items took <code>latencyNanos</code>
+     */
+    int nextChunkSize(int chunkSize, long latencyNanos) {
+        if (targetLatencyNanos <= 0) {
+            return chunkSize;
+        }
+        double factor = (double) targetLatencyNanos / Math.max(1, latencyNanos);
+        factor = Math.min(MAX_ADAPTION, Math.max(1 / MAX_ADAPTION, factor));
+        final long next = Math.round(chunkSize * factor);
+        return (int) Math.min(maxChunkSize, Math.max(minChunkSize, next));
+    }
+
+    /**
+     * @return the pause after a chunk of <code>chunkSize</code> items took <code>latencyNanos</code>, to stay below the rate limit
+     */
+    long pauseNanos(int chunkSize, long latencyNanos) {
+        if (maxItemsPerSecond <= 0) {
+            return 0;
+        }
+        final long minimumNanos = (long) (chunkSize * (TimeUnit.SECONDS.toNanos(1) / maxItemsPerSecond));
+        return Math.max(0, minimumNanos - latencyNanos);
+    }
+}
@@ -0,0 +1,44 @@
+package com.cybc.updatehelper;
+
+/**
+ * An {@link Update} which processes its work in resumable chunks, e.g. a data migration of millions of rows. Every chunk continues at a checkpoint (like the last migrated
+ * row id) and returns the checkpoint for the next chunk.
+ * <p>The {@link UpdateHelper} drives the chunks with the sizes of its {@link ChunkPolicy}. With a {@link ChunkedUpdateWorker} every chunk runs inside its own transaction and
+ * the checkpoint is persisted after every chunk, so a restarted upgrade continues in the middle of the update.</p>
+ *
+ * @param <StorageToUpdate> The implementation of the storage which gets this update.
+ */
+public abstract class ChunkedUpdate<StorageToUpdate> implements Update<StorageToUpdate> {
+
+    /**
+     * The checkpoint of the first chunk.
+     */
+    public static final long FIRST_CHECKPOINT = 0;
+
+    /**
+     * Returned by {@link #executeChunk(Object, long, int)} when the update is finished.
+     */
+    public static final long DONE = -1;
+
+    /**
+     * Processes the next chunk of the work.
+     *
+     * @param storageToUpdate The storage which should get updated
+     * @param checkpoint      The checkpoint to continue from, {@link #FIRST_CHECKPOINT} for the first chunk
+     * @param chunkSize       The count of items this chunk should process
+     *
+     * @return the checkpoint of the next chunk, or {@link #DONE} when the work is finished
+     */
+    public abstract long executeChunk(StorageToUpdate storageToUpdate, long checkpoint, int chunkSize) throws Exception;
+
+    /**
+     * Executes all chunks with the default chunk size, without checkpoints. Only used when the update isn't executed by an {@link UpdateHelper}.
+     */
+    @Override
+    public void execute(StorageToUpdate storageToUpdate) throws Exception {
+        long checkpoint = FIRST_CHECKPOINT;
+        do {
+            checkpoint = executeChunk(storageToUpdate, checkpoint, ChunkPolicy.DEFAULT_CHUNK_SIZE);
+        } while (checkpoint != DONE);
+    }
+}
@@ -0,0 +1,47 @@
+package com.cybc.updatehelper;
+
+/**
+ * An {@link UpdateWorker} which commits every chunk of a {@link ChunkedUpdate} together with its checkpoint, e.g. inside one database transaction. A restarted upgrade continues
+ * the update at the last committed checkpoint.
+ *
+ * @param <UpdateImpl>      The implementation of {@link Update}
+ * @param <StorageToUpdate> The storage you want to update (Like databases, Files or similar)
+ * @see UpdateHelper#setChunkPolicy(ChunkPolicy)
+ */
+public interface ChunkedUpdateWorker<UpdateImpl extends Update<StorageToUpdate>, StorageToUpdate> extends UpdateWorker<UpdateImpl, StorageToUpdate> {
+
+    /**
+     * Loads the last committed checkpoint of an update.
+     *
+     * @param storageToUpdate The storage which gets updated
+     * @param update          The chunked update
+     *
+     * @return the checkpoint to continue from, or {@link ChunkedUpdate#FIRST_CHECKPOINT} if no chunk was committed yet
+     */
+    long getCheckpoint(StorageToUpdate storageToUpdate, UpdateImpl update);
+
+    /**
+     * Is called before every chunk, e.g. to begin a transaction.
+     *
+     * @param storageToUpdate The storage which gets updated
+     * @param update          The chunked update
+     */
+    void onChunkBegin(StorageToUpdate storageToUpdate, UpdateImpl update);
+
+    /**
+     * Is called after a chunk was finished successfully. The checkpoint must be persisted together with the changes of the chunk.
+     *
+     * @param storageToUpdate The storage which gets updated
+     * @param update          The chunked update
+     * @param checkpoint      The checkpoint of the next chunk, or {@link ChunkedUpdate#DONE} after the last chunk
+     */
+    void onChunkCommit(StorageToUpdate storageToUpdate, UpdateImpl update, long checkpoint);
+
+    /**
+     * Is called when a chunk or its commit failed. Every change of the chunk must be rolled back, the last committed checkpoint stays valid.
+     *
+     * @param storageToUpdate The storage which gets updated
+     * @param update          The chunked update
+     */
+    void onChunkRollback(StorageToUpdate storageToUpdate, UpdateImpl update);
+}
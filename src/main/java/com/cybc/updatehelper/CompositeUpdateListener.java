@@ -0,0 +1,65 @@
+package com.cybc.updatehelper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link UpdateListener} which informs several listeners in the given order, e.g. an {@link com.cybc.updatehelper.metrics.UpdateMetricsCollector} and an {@link
+ * com.cybc.updatehelper.metrics.UpdateCostHistory} within one upgrade.
+ * <p>An exception of a listener is passed on and the following listeners are not informed about that call.</p>
+ *
+ * @param <UpdateImpl> the implementation of {@link Update}
+ */
+public class CompositeUpdateListener<UpdateImpl extends Update> implements UpdateListener<UpdateImpl> {
+
+    private final List<UpdateListener<? super UpdateImpl>> listeners;
+
+    @SafeVarargs
+    public CompositeUpdateListener(UpdateListener<? super UpdateImpl>... listeners) {
+        final List<UpdateListener<? super UpdateImpl>> list = new ArrayList<>(listeners.length);
+        for (UpdateListener<? super UpdateImpl> listener : listeners) {
+            list.add(listener); //copied element by element, the varargs array must not escape
+        }
+        this.listeners = checkListeners(list);
+    }
+
+    public CompositeUpdateListener(Collection<? extends UpdateListener<? super UpdateImpl>> listeners) {
+        this.listeners = checkListeners(new ArrayList<UpdateListener<? super UpdateImpl>>(listeners));
+    }
+
+    private static <UpdateImpl extends Update> List<UpdateListener<? super UpdateImpl>> checkListeners(List<UpdateListener<? super UpdateImpl>> listeners) {
+        for (UpdateListener<? super UpdateImpl> listener : listeners) {
+            if (listener == null) {
+                throw new IllegalArgumentException("The listeners must not contain null!");
+            }
+        }
+        return Collections.unmodifiableList(listeners);
+    }
+
+    public List<UpdateListener<? super UpdateImpl>> getListeners() {
+        return listeners;
+    }
+
+    @Override
+    public void onValidationDone(long wallNanos) {
+        for (UpdateListener<? super UpdateImpl> listener : listeners) {
+            listener.onValidationDone(wallNanos);
+        }
+    }
+
+    @Override
+    public void onStepDone(UpdateImpl update, UpdateStepTiming timing) {
+        for (UpdateListener<? super UpdateImpl> listener : listeners) {
+            listener.onStepDone(update, timing);
+        }
+    }
+
+    @Override
+    public void onUpgradeDone(long wallNanos, Throwable failure) {
+        for (UpdateListener<? super UpdateImpl> listener : listeners) {
+            listener.onUpgradeDone(wallNanos, failure);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.cybc.updatehelper;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Measures the cpu time of the current thread, if the runtime supports it. Android has no <code>java.lang.management</code>, then -1 is returned.
+ */
+final class CpuTime {
+
+    private static final boolean SUPPORTED = isSupported();
+
+    private CpuTime() {
+    }
+
+    static long currentThreadCpuNanos() {
+        return SUPPORTED ? Holder.THREAD_MX_BEAN.getCurrentThreadCpuTime() : -1;
+    }
+
+    private static boolean isSupported() {
+        try {
+            Class.forName("java.lang.management.ManagementFactory");
+            return Holder.THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() && Holder.THREAD_MX_BEAN.isThreadCpuTimeEnabled();
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+
+    /**
+     * Only loaded when <code>java.lang.management</code> exists.
+     */
+    private static final class Holder {
+
+        private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+    }
+}
@@ -0,0 +1,28 @@
+package com.cybc.updatehelper;
+
+import java.util.Collection;
+
+/**
+ * An {@link Update} which declares what it depends on, so it can be executed in parallel to other updates when {@link UpdateHelper#setParallelExecutor(java.util.concurrent.Executor)}
+ * is used. Updates that don't implement this interface are always executed after every previous update and before every following update.
+ *
+ * @param <StorageToUpdate> The implementation of the storage which gets this update.
+ */
+public interface DependentUpdate<StorageToUpdate> extends Update<StorageToUpdate> {
+
+    /**
+     * The versions of the updates which must be finished before this update can be executed. Every version must be lower than {@link #getUpdateVersion()} and must be
+     * the version of an existing update, otherwise the upgrade fails with an {@link com.cybc.updatehelper.exceptions.UpdateValidationException}.
+     *
+     * @return the versions, may be empty but never null
+     */
+    int[] getDependencies();
+
+    /**
+     * The resources (e.g. table or file names) this update touches. Two updates touching the same resource are never executed in parallel, the lower version runs first.
+     *
+     * @return the touched resources, may be empty but never null
+     */
+    Collection<String> getTouchedResources();
+
+}
@@ -0,0 +1,20 @@
+package com.cybc.updatehelper;
+
+/**
+ * An {@link Update} which can estimate its own duration, e.g. from the row count of the tables it migrates. Used by {@link UpdateHelper#explain(Object, int, int,
+ * com.cybc.updatehelper.metrics.UpdateCostHistory)}.
+ *
+ * @param <StorageToUpdate> The implementation of the storage which gets this update.
+ */
+public interface EstimatedUpdate<StorageToUpdate> extends Update<StorageToUpdate> {
+
+    /**
+     * Estimates the duration of this update for the given storage. Must not change the storage.
+     *
+     * @param storageToUpdate the storage which would get this update
+     *
+     * @return the estimated duration in nanoseconds, or a negative value if no estimate is possible
+     */
+    long estimateNanos(StorageToUpdate storageToUpdate);
+
+}
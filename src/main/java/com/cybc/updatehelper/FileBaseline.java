@@ -0,0 +1,65 @@
+package com.cybc.updatehelper;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * {@link UpdateBaseline} which copies a prebuilt storage file, e.g. a database with the schema of the baseline version. The file is copied with {@link
+ * FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}, which lets the operating system copy without passing the data through the heap, into a temporary
+ * file next to the target and then moved over the target.
+ *
+ * @param <StorageToUpdate> The implementation of the storage which gets this baseline.
+ */
+public abstract class FileBaseline<StorageToUpdate> implements UpdateBaseline<StorageToUpdate> {
+
+    private final int  baselineVersion;
+    private final Path baselineFile;
+
+    /**
+     * @param baselineVersion the version of the prebuilt file
+     * @param baselineFile    the prebuilt file
+     */
+    public FileBaseline(int baselineVersion, Path baselineFile) {
+        this.baselineVersion = baselineVersion;
+        this.baselineFile = baselineFile;
+    }
+
+    /**
+     * The file of the storage which gets replaced by the baseline. The storage must not hold the file open, e.g. a database connection has to be opened after the baseline
+     * was applied.
+     *
+     * @param storageToUpdate The storage which should get the baseline
+     */
+    protected abstract Path getTargetFile(StorageToUpdate storageToUpdate);
+
+    @Override
+    public int getBaselineVersion() {
+        return baselineVersion;
+    }
+
+    @Override
+    public void apply(StorageToUpdate storageToUpdate) throws IOException {
+        copy(baselineFile, getTargetFile(storageToUpdate));
+    }
+
+    /**
+     * Copies the source file over the target file. A crash while copying never leaves a partially copied target file.
+     */
+    public static void copy(Path source, Path target) throws IOException {
+        final Path temporaryFile = target.resolveSibling(target.getFileName() + ".baseline");
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(temporaryFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            final long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, out);
+            }
+            out.force(true);
+        }
+        Files.move(temporaryFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
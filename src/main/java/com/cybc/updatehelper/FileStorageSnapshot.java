@@ -0,0 +1,46 @@
+package com.cybc.updatehelper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * {@link StorageSnapshot} of a single storage file. The file is copied like {@link FileBaseline#copy(Path, Path)} into a sibling file, which is moved back over the storage
+ * file on {@link #restore()}. The storage must not hold the file open while it is restored.
+ */
+public final class FileStorageSnapshot implements StorageSnapshot {
+
+    private final Path file;
+    private final Path snapshotFile;
+
+    private FileStorageSnapshot(Path file, Path snapshotFile) {
+        this.file = file;
+        this.snapshotFile = snapshotFile;
+    }
+
+    /**
+     * Copies the file into a snapshot next to it.
+     *
+     * @param file the storage file
+     */
+    public static FileStorageSnapshot take(Path file) throws IOException {
+        final Path snapshotFile = file.resolveSibling(file.getFileName() + ".snapshot");
+        FileBaseline.copy(file, snapshotFile);
+        return new FileStorageSnapshot(file, snapshotFile);
+    }
+
+    @Override
+    public void restore() throws IOException {
+        Files.move(snapshotFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public void discard() {
+        try {
+            Files.deleteIfExists(snapshotFile);
+        } catch (IOException e) {
+            //only a leftover file, the upgrade itself succeeded
+        }
+    }
+}
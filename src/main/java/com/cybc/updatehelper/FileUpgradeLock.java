@@ -0,0 +1,178 @@
+package com.cybc.updatehelper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link UpgradeLock} for the processes of one host, based on a lock file. The file holds a lease of the owner with its expiry time, which is renewed by a heartbeat on a
+ * dedicated daemon thread. Every access to the lease is serialized by {@link FileChannel#lock()}, which is only held while the lease is read and written, not during the upgrade.
+ * <p>A lease which isn't renewed in time, because the owning process died or hangs, expires and the lock can be taken over. The former owner notices the lost lease with
+ * its next heartbeat or before its next update, see {@link UpgradeLock.Lease#isValid()}.</p>
+ */
+public final class FileUpgradeLock implements UpgradeLock<Object> {
+
+    public static final long DEFAULT_LEASE_MILLIS = 30000;
+
+    private static final int    MAX_LEASE_SIZE = 256;
+    //a file can only be locked once per process, so the leases of all instances are accessed one after another
+    private static final Object PROCESS_LOCK   = new Object();
+
+    private final Path file;
+    private final long leaseMillis;
+
+    public FileUpgradeLock(Path file) {
+        this(file, DEFAULT_LEASE_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param file          the lock file, which is created when missing
+     * @param leaseDuration the time until a lease expires when it isn't renewed, the heartbeat renews it after a third of this time
+     * @param unit          the unit of the lease duration
+     */
+    public FileUpgradeLock(Path file, long leaseDuration, TimeUnit unit) {
+        if (unit.toMillis(leaseDuration) < 3) {
+            throw new IllegalArgumentException("leaseDuration must be at least 3 milliseconds, was: " + unit.toMillis(leaseDuration) + "ms");
+        }
+        this.file = file;
+        this.leaseMillis = unit.toMillis(leaseDuration);
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public Lease tryAcquire(Object storageToUpdate) throws IOException {
+        final String token = UUID.randomUUID().toString();
+        final long expiry = System.currentTimeMillis() + leaseMillis;
+        if (!writeLease(null, token, expiry)) {
+            return null;
+        }
+        final FileLease lease = new FileLease(token, expiry);
+        lease.heartbeat = UpdateWatchdog.schedulePeriodically(lease, TimeUnit.MILLISECONDS.toNanos(leaseMillis / 3));
+        return lease;
+    }
+
+    /**
+     * Replaces the lease in the lock file while the file is locked.
+     *
+     * @param expectedToken the token of the current lease, or null to replace only a missing or expired lease
+     * @param token         the token of the new lease, or null to remove the lease
+     * @param expiry        the expiry of the new lease in milliseconds since the epoch
+     *
+     * @return false if the current lease didn't match
+     */
+    private boolean writeLease(String expectedToken, String token, long expiry) throws IOException {
+        synchronized (PROCESS_LOCK) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                final FileLock fileLock = channel.lock();
+                try {
+                    return replaceLease(channel, expectedToken, token, expiry);
+                } finally {
+                    fileLock.release();
+                }
+            }
+        }
+    }
+
+    private static boolean replaceLease(FileChannel channel, String expectedToken, String token, long expiry) throws IOException {
+        final String[] current = readLease(channel);
+        if (expectedToken == null) {
+            if (current != null && Long.parseLong(current[1]) > System.currentTimeMillis()) {
+                return false; //held by another owner
+            }
+        } else if (current == null || !expectedToken.equals(current[0])) {
+            return false; //taken over
+        }
+        channel.truncate(0);
+        if (token != null) {
+            final ByteBuffer buffer = ByteBuffer.wrap((token + " " + expiry).getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, buffer.position());
+            }
+        }
+        channel.force(false);
+        return true;
+    }
+
+    /**
+     * @return the token and the expiry of the lease, or null if the file holds no valid lease
+     */
+    private static String[] readLease(FileChannel channel) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(channel.size(), MAX_LEASE_SIZE));
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+            //read until the buffer is full
+        }
+        final String[] lease = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8).split(" ");
+        if (lease.length != 2) {
+            return null;
+        }
+        try {
+            Long.parseLong(lease[1]);
+        } catch (NumberFormatException e) {
+            return null; //partially written by a crashed process
+        }
+        return lease;
+    }
+
+    final class FileLease implements Lease, Runnable {
+
+        private final    String             token;
+        private volatile long               expiry;
+        private volatile boolean            lost;
+        private volatile ScheduledFuture<?> heartbeat;
+
+        private FileLease(String token, long expiry) {
+            this.token = token;
+            this.expiry = expiry;
+        }
+
+        @Override
+        public boolean isValid() {
+            return !lost && System.currentTimeMillis() < expiry;
+        }
+
+        /**
+         * The heartbeat, renews the lease. Runs on the heartbeat thread of the {@link UpdateWatchdog}.
+         */
+        @Override
+        public void run() {
+            if (lost) {
+                return;
+            }
+            final long renewedExpiry = System.currentTimeMillis() + leaseMillis;
+            try {
+                if (writeLease(token, token, renewedExpiry)) {
+                    expiry = renewedExpiry;
+                } else {
+                    lost = true;
+                    cancelHeartbeat();
+                }
+            } catch (IOException e) {
+                //retried with the next heartbeat, the lease expires when the file stays inaccessible
+            }
+        }
+
+        @Override
+        public void release() throws IOException {
+            lost = true;
+            cancelHeartbeat();
+            writeLease(token, null, 0);
+        }
+
+        private void cancelHeartbeat() {
+            final ScheduledFuture<?> heartbeat = this.heartbeat;
+            if (heartbeat != null) {
+                heartbeat.cancel(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package com.cybc.updatehelper;
+
+import com.cybc.updatehelper.exceptions.UpdateStepFailedException;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Upgrades many storages (e.g. one per tenant) with the same {@link UpdateHelper} concurrently. Instead of throwing on the first failed storage, the result of every storage is
+ * collected into a {@link Result}.
+ *
+ * @param <UpdateImpl>      the implementation of {@link Update}
+ * @param <StorageToUpdate> the storage to update
+ */
+public class FleetUpgrader<UpdateImpl extends Update<StorageToUpdate>, StorageToUpdate> {
+
+    /**
+     * How to continue when the upgrade of a storage failed.
+     */
+    public enum FailurePolicy {
+        /**
+         * No further upgrades are started, the remaining storages are {@link Status#SKIPPED}. Already running upgrades are finished.
+         */
+        FAIL_FAST,
+        /**
+         * Every storage gets upgraded, regardless of the failed ones.
+         */
+        CONTINUE_ON_ERROR
+    }
+
+    public enum Status {SUCCEEDED, FAILED, SKIPPED}
+
+    private final UpdateHelper<UpdateImpl, StorageToUpdate> updateHelper;
+    private       int                                       maxConcurrency = Runtime.getRuntime().availableProcessors();
+    private       FailurePolicy                             failurePolicy  = FailurePolicy.CONTINUE_ON_ERROR;
+    private       ExecutorService                           executor;
+    private       UpdatePlan<UpdateImpl>                    updatePlan;
+
+    /**
+     * @param updateHelper the helper used for every storage, its {@link UpdateWorker} must be thread safe.
+     */
+    public FleetUpgrader(UpdateHelper<UpdateImpl, StorageToUpdate> updateHelper) {
+        this.updateHelper = updateHelper;
+    }
+
+    /**
+     * @param maxConcurrency the maximum count of storages which are upgraded at the same time, default is the count of available processors
+     */
+    public void setMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be at least 1, was: " + maxConcurrency);
+        }
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * @param failurePolicy the policy for failed upgrades, default is {@link FailurePolicy#CONTINUE_ON_ERROR}
+     */
+    public void setFailurePolicy(FailurePolicy failurePolicy) {
+        this.failurePolicy = failurePolicy;
+    }
+
+    /**
+     * @param executor the executor for the upgrades, or null to create one per {@link #upgrade(Collection)} call. The created executor uses virtual threads when the runtime
+     *                 provides them, a fixed thread pool of {@link #setMaxConcurrency(int)} threads otherwise.
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @param updatePlan the plan which is executed for every storage, or null to create and validate the updates per storage. With a plan the updates are only created and
+     *                   validated once for the whole fleet. The update instances are then shared by every storage and thread, so they must be stateless.
+     */
+    public void setUpdatePlan(UpdatePlan<UpdateImpl> updatePlan) {
+        this.updatePlan = updatePlan;
+    }
+
+    /**
+     * Upgrades every target to the latest version of the {@link UpdateWorker}. Blocks until every started upgrade is finished.
+     *
+     * @param targets the storages to upgrade with their current versions
+     *
+     * @return the result of every target, in the order of the given targets
+     */
+    public Result<StorageToUpdate> upgrade(Collection<Target<StorageToUpdate>> targets) {
+        final List<Target<StorageToUpdate>> targetList = new ArrayList<>(targets);
+        final StorageResult<StorageToUpdate>[] results = createResultArray(targetList.size());
+        final ExecutorService usedExecutor = executor != null ? executor : createDefaultExecutor(maxConcurrency);
+        final Semaphore permits = new Semaphore(maxConcurrency);
+        final AtomicBoolean failed = new AtomicBoolean();
+        final CountDownLatch finished = new CountDownLatch(targetList.size());
+        try {
+            for (int i = 0; i < targetList.size(); i++) {
+                final Target<StorageToUpdate> target = targetList.get(i);
+                if (failurePolicy == FailurePolicy.FAIL_FAST && failed.get()) {
+                    skip(results, i, target, finished);
+                    continue;
+                }
+                try {
+                    permits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    for (int skipped = i; skipped < targetList.size(); skipped++) {
+                        skip(results, skipped, targetList.get(skipped), finished);
+                    }
+                    break;
+                }
+                if (failurePolicy == FailurePolicy.FAIL_FAST && failed.get()) {
+                    //failed while waiting for the permit
+                    permits.release();
+                    skip(results, i, target, finished);
+                    continue;
+                }
+                final int position = i;
+                try {
+                    usedExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                results[position] = upgrade(target);
+                                if (results[position].status == Status.FAILED) {
+                                    failed.set(true);
+                                }
+                            } finally {
+                                permits.release();
+                                finished.countDown();
+                            }
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    permits.release();
+                    failed.set(true);
+                    results[position] = new StorageResult<>(target, Status.FAILED, e, 0);
+                    finished.countDown();
+                }
+            }
+            awaitUninterruptibly(finished);
+        } finally {
+            if (usedExecutor != executor) {
+                usedExecutor.shutdown();
+            }
+        }
+        final List<StorageResult<StorageToUpdate>> resultList = new ArrayList<>(results.length);
+        Collections.addAll(resultList, results);
+        return new Result<>(resultList);
+    }
+
+    private static <StorageToUpdate> void skip(StorageResult<StorageToUpdate>[] results, int position, Target<StorageToUpdate> target, CountDownLatch finished) {
+        results[position] = new StorageResult<>(target, Status.SKIPPED, null, 0);
+        finished.countDown();
+    }
+
+    private StorageResult<StorageToUpdate> upgrade(Target<StorageToUpdate> target) {
+        final long start = System.nanoTime();
+        try {
+            final UpdatePlan<UpdateImpl> plan = updatePlan;
+            if (plan != null) {
+                updateHelper.onUpgrade(target.storage, target.oldVersion, plan);
+            } else {
+                final int newVersion = updateHelper.getUpdatable().getLatestUpdateVersion(target.storage);
+                updateHelper.onUpgrade(target.storage, target.oldVersion, newVersion);
+            }
+            return new StorageResult<>(target, Status.SUCCEEDED, null, System.nanoTime() - start);
+        } catch (Throwable t) {
+            return new StorageResult<>(target, Status.FAILED, t, System.nanoTime() - start);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <StorageToUpdate> StorageResult<StorageToUpdate>[] createResultArray(int size) {
+        return (StorageResult<StorageToUpdate>[]) new StorageResult[size];
+    }
+
+    static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Creates an executor with virtual threads (Java 21+) if available, a fixed thread pool of <code>threadCount</code> threads otherwise.
+     */
+    static ExecutorService createDefaultExecutor(int threadCount) {
+        try {
+            final Method virtualThreadExecutor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) virtualThreadExecutor.invoke(null);
+        } catch (Exception e) {
+            //no virtual threads on this runtime
+            return Executors.newFixedThreadPool(threadCount);
+        }
+    }
+
+    /**
+     * A storage to upgrade together with its current version.
+     */
+    public static class Target<StorageToUpdate> {
+
+        private final StorageToUpdate storage;
+        private final int             oldVersion;
+
+        public Target(StorageToUpdate storage, int oldVersion) {
+            this.storage = storage;
+            this.oldVersion = oldVersion;
+        }
+
+        public StorageToUpdate getStorage() {
+            return storage;
+        }
+
+        public int getOldVersion() {
+            return oldVersion;
+        }
+    }
+
+    /**
+     * The upgrade result of a single storage.
+     */
+    public static class StorageResult<StorageToUpdate> {
+
+        private final Target<StorageToUpdate> target;
+        private final Status                  status;
+        private final Throwable               failure;
+        private final long                    durationNanos;
+
+        private StorageResult(Target<StorageToUpdate> target, Status status, Throwable failure, long durationNanos) {
+            this.target = target;
+            this.status = status;
+            this.failure = failure;
+            this.durationNanos = durationNanos;
+        }
+
+        public Target<StorageToUpdate> getTarget() {
+            return target;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        /**
+         * @return the exception of a {@link Status#FAILED} upgrade, null otherwise
+         */
+        public Throwable getFailure() {
+            return failure;
+        }
+
+        /**
+         * @return the failed update when a single update step failed, null otherwise
+         */
+        public Update getFailedUpdate() {
+            return failure instanceof UpdateStepFailedException ? ((UpdateStepFailedException) failure).failedUpdate : null;
+        }
+
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+    }
+
+    /**
+     * The summary of all upgraded storages.
+     */
+    public static class Result<StorageToUpdate> {
+
+        private final List<StorageResult<StorageToUpdate>> results;
+        private final int                                  succeeded;
+        private final int                                  failed;
+        private final int                                  skipped;
+
+        private Result(List<StorageResult<StorageToUpdate>> results) {
+            this.results = Collections.unmodifiableList(results);
+            int succeeded = 0;
+            int failed = 0;
+            int skipped = 0;
+            for (StorageResult<StorageToUpdate> result : results) {
+                switch (result.status) {
+                    case SUCCEEDED:
+                        succeeded++;
+                        break;
+                    case FAILED:
+                        failed++;
+                        break;
+                    default:
+                        skipped++;
+                }
+            }
+            this.succeeded = succeeded;
+            this.failed = failed;
+            this.skipped = skipped;
+        }
+
+        /**
+         * @return the result of every target, in the order of the given targets
+         */
+        public List<StorageResult<StorageToUpdate>> getResults() {
+            return results;
+        }
+
+        public int getSucceededCount() {
+            return succeeded;
+        }
+
+        public int getFailedCount() {
+            return failed;
+        }
+
+        public int getSkippedCount() {
+            return skipped;
+        }
+
+        /**
+         * @return true if every storage was upgraded successfully
+         */
+        public boolean isSuccessful() {
+            return failed == 0 && skipped == 0;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.cybc.updatehelper;
+
+import java.util.Collection;
+
+/**
+ * An {@link UpdateWorker} which stores the history of the applied updates with their checksums, see {@link AppliedUpdateHistory}. The history is loaded once per upgrade,
+ * an update which is already in it is skipped instead of executed again, e.g. after a lost version or a restored backup. A skipped update with another checksum than the
+ * applied one is reported as {@link ChecksumDrift}.
+ * <p>The callbacks are called on the executing threads, so they must be thread safe for the parallel execution of updates.</p>
+ *
+ * @param <UpdateImpl>      The implementation of {@link Update}
+ * @param <StorageToUpdate> The storage you want to update (Like databases, Files or similar)
+ */
+public interface HistoryUpdateWorker<UpdateImpl extends Update<StorageToUpdate>, StorageToUpdate> extends UpdateWorker<UpdateImpl, StorageToUpdate> {
+
+    /**
+     * Loads the history of the storage. Is called once before the updates are executed.
+     *
+     * @param storageToUpdate The storage to update.
+     *
+     * @return the applied updates, null or empty if none were applied
+     */
+    Collection<AppliedUpdate> loadAppliedUpdates(StorageToUpdate storageToUpdate);
+
+    /**
+     * Is called after {@link #onPostUpdate(Object, Update)} of an executed update. Persist the record here.
+     *
+     * @param storageToUpdate The updated storage.
+     * @param appliedUpdate   The record of the update.
+     */
+    void onUpdateApplied(StorageToUpdate storageToUpdate, AppliedUpdate appliedUpdate);
+
+    /**
+     * Is called instead of executing an update which is already in the history. Persist the version here, if the storage version is stored separately.
+     *
+     * @param storageToUpdate The storage to update.
+     * @param update          The skipped update.
+     * @param appliedUpdate   The record of the update in the history.
+     */
+    void onUpdateSkipped(StorageToUpdate storageToUpdate, UpdateImpl update, AppliedUpdate appliedUpdate);
+
+    /**
+     * Is called before {@link #onUpdateSkipped(Object, Update, AppliedUpdate)} when the update was changed after it was applied. Throw an exception to fail the upgrade.
+     *
+     * @param storageToUpdate The storage to update.
+     * @param drift           The applied and the current checksum of the update.
+     */
+    void onChecksumDrift(StorageToUpdate storageToUpdate, ChecksumDrift drift);
+
+}
@@ -0,0 +1,30 @@
+package com.cybc.updatehelper;
+
+/**
+ * An {@link UpdateWorker} which records the progress of the updates in an {@link UpdateJournal}. {@link UpdateHelper#onUpgrade(Object, int, int)} resumes after the last
+ * committed version of the journal instead of the given old version, and asks the worker how to handle an update which was started but never committed.
+ *
+ * @param <UpdateImpl>      The implementation of {@link Update}
+ * @param <StorageToUpdate> The storage you want to update (Like databases, Files or similar)
+ */
+public interface JournaledUpdateWorker<UpdateImpl extends Update<StorageToUpdate>, StorageToUpdate> extends UpdateWorker<UpdateImpl, StorageToUpdate> {
+
+    /**
+     * @param storageToUpdate The storage to update
+     *
+     * @return the journal of the storage, the worker stays responsible for closing it
+     */
+    UpdateJournal getJournal(StorageToUpdate storageToUpdate);
+
+    /**
+     * Is called when the journal contains an update which was started but never committed, e.g. because the process died between {@link UpdateImpl#execute(Object)} and
+     * {@link #onPostUpdate(Object, Update)}.
+     *
+     * @param storageToUpdate The storage to update
+     * @param update          The incomplete update
+     *
+     * @return true to execute the update again, false if the update is known to be applied completely
+     */
+    boolean onIncompleteUpdate(StorageToUpdate storageToUpdate, UpdateImpl update);
+
+}
@@ -0,0 +1,19 @@
+package com.cybc.updatehelper;
+
+/**
+ * An {@link UpdateWorker} which can read the current version of its storage, required by an {@link UpgradeLock}. The old version passed to <code>onUpgrade</code> may be
+ * outdated when the lock was acquired, because another process upgraded the storage meanwhile.
+ *
+ * @param <UpdateImpl>      The implementation of {@link Update}
+ * @param <StorageToUpdate> The storage you want to update (Like databases, Files or similar)
+ */
+public interface LockingUpdateWorker<UpdateImpl extends Update<StorageToUpdate>, StorageToUpdate> extends UpdateWorker<UpdateImpl, StorageToUpdate> {
+
+    /**
+     * Reads the current version of the storage. Is called while the {@link UpgradeLock} is held.
+     *
+     * @param storageToUpdate The storage to update.
+     */
+    int getStorageVersion(StorageToUpdate storageToUpdate);
+
+}
@@ -0,0 +1,11 @@
+package com.cybc.updatehelper;
+
+/**
+ * Marks an {@link Update} which doesn't block the usage of the storage, like a backfill of data or the build of an index. With {@link UpdateHelper#onUpgradeOnline(Object,
+ * int, int, java.util.concurrent.Executor, UpdateProgressListener)} the trailing non blocking updates are executed in the background while the storage is already used.
+ *
+ * @param <StorageToUpdate> The implementation of the storage which gets this update.
+ */
+public interface NonBlockingUpdate<StorageToUpdate> extends Update<StorageToUpdate> {
+
+}
@@ -0,0 +1,34 @@
+package com.cybc.updatehelper;
+
+/**
+ * An {@link UpdateWorker} which gets informed about the two points of an online upgrade, see {@link UpdateHelper#onUpgradeOnline(Object, int, int,
+ * java.util.concurrent.Executor, UpdateProgressListener)}.
+ *
+ * @param <UpdateImpl>      The implementation of {@link Update}
+ * @param <StorageToUpdate> The storage you want to update (Like databases, Files or similar)
+ */
+public interface OnlineUpdateWorker<UpdateImpl extends Update<StorageToUpdate>, StorageToUpdate> extends UpdateWorker<UpdateImpl, StorageToUpdate> {
+
+    /**
+     * Is called on the calling thread when every blocking update is finished. The storage can be used from now on, while the non blocking updates are still executed.
+     *
+     * @param storageToUpdate The storage which gets updated
+     * @param version         The version of the last blocking update
+     */
+    void onSchemaReady(StorageToUpdate storageToUpdate, int version);
+
+    /**
+     * Is called on the background thread after the last update and {@link UpdateWorker#onUpgradingDone(Object)}.
+     *
+     * @param storageToUpdate The updated storage
+     */
+    void onFullyMigrated(StorageToUpdate storageToUpdate);
+
+    /**
+     * Is called on the background thread when a non blocking update failed. The failure is reported by the future of the upgrade as well.
+     *
+     * @param storageToUpdate The storage which gets updated
+     * @param failure         The failure of the update
+     */
+    void onBackgroundUpgradeFailed(StorageToUpdate storageToUpdate, Throwable failure);
+}
@@ -0,0 +1,306 @@
+package com.cybc.updatehelper;
+
+import com.cybc.updatehelper.exceptions.UpdateFailedException;
+import com.cybc.updatehelper.exceptions.UpdateStepFailedException;
+import com.cybc.updatehelper.exceptions.UpdateTimeoutException;
+import com.cybc.updatehelper.exceptions.UpdateValidationException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Executes the pending updates of an {@link UpdateIndex} as a dependency graph on an {@link Executor}. The graph is built from the declarations of {@link DependentUpdate}s,
+ * every other update acts as a barrier. The calling thread coordinates the execution: it submits every update whose dependencies are finished and reports the completed
+ * versions in order to a {@link ParallelUpdateWorker}.
+ */
+class ParallelUpdateExecution<UpdateImpl extends Update<StorageToUpdate>, StorageToUpdate> {
+
+    private final UpdateHelper<UpdateImpl, StorageToUpdate> helper;
+    private final UpdateWorker<UpdateImpl, StorageToUpdate> updatable;
+    private final Executor                                  executor;
+    private final UpdateJournal                             journal;
+    private final UpgradeControl                            control;
+    private final List<UpdateImpl>                          updates;
+    private final int[]                                     versions;
+    //per update: count of unfinished dependencies and the positions of the updates depending on it
+    private final int[]                                     unfinishedDependencies;
+    private final List<List<Integer>>                       dependents;
+    //the threads executing an update right now, guarded by itself
+    private final Thread[]                                  runners;
+    private       boolean                                   aborted;
+
+    ParallelUpdateExecution(UpdateHelper<UpdateImpl, StorageToUpdate> helper, Executor executor, UpdateIndex<UpdateImpl> index, int firstPosition, int endPosition,
+                            UpdateJournal journal, UpgradeControl control) {
+        this.helper = helper;
+        this.updatable = helper.getUpdatable();
+        this.executor = executor;
+        this.journal = journal;
+        this.control = control;
+        final int size = endPosition - firstPosition;
+        this.updates = new ArrayList<>(size);
+        this.versions = new int[size];
+        for (int position = 0; position < size; position++) {
+            updates.add(index.getUpdate(firstPosition + position));
+            versions[position] = index.getVersion(firstPosition + position);
+        }
+        this.runners = new Thread[size];
+        this.unfinishedDependencies = new int[size];
+        this.dependents = new ArrayList<>(size);
+        for (int position = 0; position < size; position++) {
+            dependents.add(new ArrayList<Integer>());
+        }
+        buildGraph(index, firstPosition);
+    }
+
+    /**
+     * @param index         the whole index, to resolve the dependencies to already applied updates
+     * @param firstPosition the position of the first pending update inside the index
+     */
+    private void buildGraph(UpdateIndex<UpdateImpl> index, int firstPosition) {
+        final Map<String, Integer> lastResourceUsers = new HashMap<>();
+        final List<Integer> sinceBarrier = new ArrayList<>();
+        int lastBarrier = -1;
+
+        for (int position = 0; position < updates.size(); position++) {
+            final UpdateImpl update = updates.get(position);
+            if (!(update instanceof DependentUpdate)) {
+                //a barrier waits for everything before and everything after waits for it
+                for (int previous : sinceBarrier) {
+                    addDependency(previous, position);
+                }
+                if (lastBarrier >= 0 && sinceBarrier.isEmpty()) {
+                    addDependency(lastBarrier, position);
+                }
+                lastBarrier = position;
+                sinceBarrier.clear();
+                lastResourceUsers.clear();
+                continue;
+            }
+
+            final DependentUpdate<?> dependentUpdate = (DependentUpdate<?>) update;
+            if (lastBarrier >= 0) {
+                addDependency(lastBarrier, position);
+            }
+            for (int dependencyVersion : dependentUpdate.getDependencies()) {
+                if (dependencyVersion >= versions[position]) {
+                    throw UpdateValidationException.forWrongDependency(versions[position], dependencyVersion);
+                }
+                final int dependency = Arrays.binarySearch(versions, 0, position, dependencyVersion);
+                if (dependency >= 0) {
+                    addDependency(dependency, position);
+                } else if (dependencyVersion > versions[0] || !isApplied(index, firstPosition, dependencyVersion)) {
+                    throw UpdateValidationException.forWrongDependency(versions[position], dependencyVersion);
+                }
+                //otherwise the dependency was already applied to the storage
+            }
+            for (String resource : dependentUpdate.getTouchedResources()) {
+                final Integer lastUser = lastResourceUsers.put(resource, position);
+                if (lastUser != null) {
+                    addDependency(lastUser, position);
+                }
+            }
+            sinceBarrier.add(position);
+        }
+    }
+
+    /**
+     * @return true if the version is an update of the index before the pending updates
+     */
+    private static boolean isApplied(UpdateIndex<?> index, int firstPosition, int version) {
+        final int position = index.firstPendingPosition(version) - 1; //the position of the version, if it exists
+        return position >= 0 && position < firstPosition && index.getVersion(position) == version;
+    }
+
+    private void addDependency(int dependency, int dependent) {
+        dependents.get(dependency).add(dependent);
+        unfinishedDependencies[dependent]++;
+    }
+
+    /**
+     * Executes the updates and blocks until every update is finished or an update failed. After a failure no further updates are started, but the already running ones are
+     * awaited. When the calling thread is interrupted, the running updates are interrupted as well and awaited, the updates which didn't start yet are skipped.
+     *
+     * @throws UpdateStepFailedException for the first failed update
+     */
+    void execute(StorageToUpdate storageToUpdate) throws UpdateStepFailedException, UpdateFailedException {
+        final BlockingQueue<Completion> completions = new LinkedBlockingQueue<>();
+        final boolean[] finished = new boolean[updates.size()];
+        int running = 0;
+        int nextCompletedPosition = 0;
+        Completion failure = null;
+
+        if (updatable.isStorageClosed(storageToUpdate)) {
+            throw new UpdateFailedException("StorageConnection is closed! No parallel update was started.");
+        }
+        if (control != null) {
+            control.throwIfCancelled();
+            control.throwIfLeaseLost();
+        }
+        for (int position = 0; position < updates.size(); position++) {
+            if (unfinishedDependencies[position] == 0) {
+                submit(storageToUpdate, position, completions);
+                running++;
+            }
+        }
+
+        while (running > 0) {
+            final Completion completion;
+            try {
+                completion = completions.take();
+            } catch (InterruptedException e) {
+                abort();
+                awaitUninterruptibly(completions, running);
+                Thread.currentThread().interrupt();
+                throw new UpdateFailedException("Interrupted while waiting for parallel updates! Completed versions until: " + lastCompletedVersion(nextCompletedPosition));
+            }
+            running--;
+            if (completion.throwable != null) {
+                if (failure == null) {
+                    failure = completion;
+                }
+                continue;
+            }
+            finished[completion.position] = true;
+            while (nextCompletedPosition < finished.length && finished[nextCompletedPosition]) {
+                onVersionCompleted(storageToUpdate, updates.get(nextCompletedPosition));
+                nextCompletedPosition++;
+            }
+            if (failure != null) {
+                continue; //don't start anything new, just wait for the running updates
+            }
+            for (int dependent : dependents.get(completion.position)) {
+                if (--unfinishedDependencies[dependent] == 0) {
+                    if (updatable.isStorageClosed(storageToUpdate)) {
+                        failure = new Completion(dependent, new UpdateFailedException("StorageConnection is closed! Does an update close the Storage? Last version update was: "
+                                + versions[completion.position]));
+                        break;
+                    }
+                    if (control != null && control.isCancelled()) {
+                        failure = new Completion(dependent, control.createCancelledException());
+                        break;
+                    }
+                    if (control != null && control.isLeaseLost()) {
+                        failure = new Completion(dependent, control.createLeaseLostException());
+                        break;
+                    }
+                    submit(storageToUpdate, dependent, completions);
+                    running++;
+                }
+            }
+        }
+
+        if (failure != null) {
+            if (failure.throwable instanceof UpdateFailedException) {
+                throw (UpdateFailedException) failure.throwable;
+            }
+            if (failure.throwable instanceof UpdateStepFailedException) {
+                throw (UpdateStepFailedException) failure.throwable; //e.g. an UpdateTimeoutException
+            }
+            throw new UpdateStepFailedException(updates.get(failure.position), failure.throwable);
+        }
+    }
+
+    /**
+     * Interrupts the running updates and skips the ones which didn't start yet.
+     */
+    private void abort() {
+        synchronized (runners) {
+            aborted = true;
+            for (Thread runner : runners) {
+                if (runner != null) {
+                    runner.interrupt();
+                }
+            }
+        }
+    }
+
+    private static void awaitUninterruptibly(BlockingQueue<Completion> completions, int running) {
+        while (running > 0) {
+            try {
+                completions.take();
+                running--;
+            } catch (InterruptedException e) {
+                //the interrupt is restored by the caller
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void onVersionCompleted(StorageToUpdate storageToUpdate, UpdateImpl update) {
+        if (updatable instanceof ParallelUpdateWorker) {
+            ((ParallelUpdateWorker<UpdateImpl, StorageToUpdate>) updatable).onVersionCompleted(storageToUpdate, update);
+        }
+        UpdateHelper.journalCommitted(journal, update.getUpdateVersion());
+        if (control != null) {
+            control.stepDone(update.getUpdateVersion());
+        }
+    }
+
+    private int lastCompletedVersion(int nextCompletedPosition) {
+        return nextCompletedPosition == 0 ? 0 : versions[nextCompletedPosition - 1];
+    }
+
+    private void submit(final StorageToUpdate storageToUpdate, final int position, final BlockingQueue<Completion> completions) {
+        final UpdateImpl update = updates.get(position);
+        final Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                Throwable throwable = null;
+                synchronized (runners) {
+                    if (aborted) {
+                        completions.add(new Completion(position, new UpdateFailedException("Skipped after the interrupt: " + update.getUpdateVersion())));
+                        return;
+                    }
+                    runners[position] = Thread.currentThread();
+                }
+                try {
+                    if (control != null) {
+                        control.awaitStep(update.getUpdateVersion());
+                    }
+                    UpdateHelper.journalStarted(journal, update.getUpdateVersion());
+                    try {
+                        helper.onUpdateApplied(storageToUpdate, helper.executeStep(storageToUpdate, update, control));
+                    } catch (UpdateTimeoutException e) {
+                        throwable = e;
+                    } catch (Exception e) {
+                        //like the sequential execution, every exception of the update is wrapped
+                        throwable = new UpdateStepFailedException(update, e);
+                    }
+                } catch (Throwable t) {
+                    throwable = t;
+                } finally {
+                    synchronized (runners) {
+                        runners[position] = null;
+                        if (aborted) {
+                            Thread.interrupted(); //don't leak the interrupt of the abort into the executor thread
+                        }
+                    }
+                }
+                completions.add(new Completion(position, throwable));
+            }
+        };
+        try {
+            executor.execute(task);
+        } catch (RuntimeException e) {
+            //e.g. rejected by the executor, handled like a failed update
+            completions.add(new Completion(position, e));
+        }
+    }
+
+    private static class Completion {
+
+        private final int       position;
+        private final Throwable throwable;
+
+        private Completion(int position, Throwable throwable) {
+            this.position = position;
+            this.throwable = throwable;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.cybc.updatehelper;
+
+/**
+ * An {@link UpdateWorker} which gets informed about the completed versions while the updates are executed in parallel.
+ * <p>In parallel mode {@link #onPreUpdate(Object, Update)} and {@link #onPostUpdate(Object, Update)} are called on the executing threads and can happen out of version order, so
+ * they must be thread safe and shouldn't persist the storage version.</p>
+ *
+ * @param <UpdateImpl>      The implementation of {@link Update}
+ * @param <StorageToUpdate> The storage you want to update (Like databases, Files or similar)
+ * @see UpdateHelper#setParallelExecutor(java.util.concurrent.Executor)
+ */
+public interface ParallelUpdateWorker<UpdateImpl extends Update<StorageToUpdate>, StorageToUpdate> extends UpdateWorker<UpdateImpl, StorageToUpdate> {
+
+    /**
+     * Is called for every update in version order, as soon as the update and every update before it were finished successfully. Persist the storage version here.
+     *
+     * @param storageToUpdate The storage which got updated
+     * @param update          The completed update
+     */
+    void onVersionCompleted(StorageToUpdate storageToUpdate, UpdateImpl update);
+
+}
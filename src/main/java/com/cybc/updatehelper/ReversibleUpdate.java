@@ -0,0 +1,17 @@
+package com.cybc.updatehelper;
+
+/**
+ * An {@link Update} with a compensating step, which reverts its changes. Used by a {@link RollbackUpdateWorker} which can't take a snapshot of its storage.
+ *
+ * @param <StorageToUpdate> The implementation of the storage which gets this update.
+ */
+public interface ReversibleUpdate<StorageToUpdate> extends Update<StorageToUpdate> {
+
+    /**
+     * Reverts the changes of {@link #execute(Object)}, so the storage has the version of the previous update again.
+     *
+     * @param storageToUpdate The storage to revert
+     */
+    void down(StorageToUpdate storageToUpdate) throws Exception;
+
+}
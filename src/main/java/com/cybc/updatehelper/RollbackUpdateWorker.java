@@ -0,0 +1,35 @@
+package com.cybc.updatehelper;
+
+/**
+ * An {@link UpdateWorker} whose storage is rolled back automatically when the upgrade fails, e.g. with an {@link com.cybc.updatehelper.exceptions.UpdateStepFailedException},
+ * an {@link com.cybc.updatehelper.exceptions.UpdateCancelledException} or because the storage was closed. A storage whose {@link UpgradeLock} lease was lost isn't rolled
+ * back, it belongs to another process.
+ * <p>Before the pending updates are executed a {@link StorageSnapshot} is taken, which is restored after a failure. When the storage can't take a snapshot, the finished
+ * updates are reverted in reverse order via {@link ReversibleUpdate#down(Object)} instead, as long as every finished update is a {@link ReversibleUpdate}. The failed update
+ * itself is not reverted by its down step, it has to leave the storage unchanged on failure. Down steps aren't supported with the parallel execution of updates.</p>
+ * <p>An online upgrade is only rolled back while the blocking updates are executed.</p>
+ *
+ * @param <UpdateImpl>      The implementation of {@link Update}
+ * @param <StorageToUpdate> The storage you want to update (Like databases, Files or similar)
+ */
+public interface RollbackUpdateWorker<UpdateImpl extends Update<StorageToUpdate>, StorageToUpdate> extends UpdateWorker<UpdateImpl, StorageToUpdate> {
+
+    /**
+     * Takes a cheap snapshot of the storage, e.g. via {@link FileStorageSnapshot#take(java.nio.file.Path)}.
+     *
+     * @param storageToUpdate The storage to update
+     * @param version         The current version of the storage
+     *
+     * @return the snapshot, or null to revert a failed upgrade via {@link ReversibleUpdate#down(Object)}
+     */
+    StorageSnapshot takeSnapshot(StorageToUpdate storageToUpdate, int version) throws Exception;
+
+    /**
+     * Is called after the storage was rolled back, e.g. to store the version again. The failure of the upgrade is thrown afterwards.
+     *
+     * @param storageToUpdate The rolled back storage
+     * @param version         The version of the storage before the failed upgrade
+     */
+    void onRolledBack(StorageToUpdate storageToUpdate, int version);
+
+}
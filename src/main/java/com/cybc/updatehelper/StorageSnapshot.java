@@ -0,0 +1,18 @@
+package com.cybc.updatehelper;
+
+/**
+ * A snapshot of a storage taken by a {@link RollbackUpdateWorker} before the updates are executed, e.g. a copy of the database file or an in-memory checkpoint.
+ */
+public interface StorageSnapshot {
+
+    /**
+     * Restores the storage to the state of the snapshot. Called at most once, after the upgrade failed.
+     */
+    void restore() throws Exception;
+
+    /**
+     * Releases the snapshot when the upgrade is over: after every update was finished successfully, after the snapshot was restored and also when restoring it failed.
+     */
+    void discard();
+
+}
@@ -0,0 +1,24 @@
+package com.cybc.updatehelper;
+
+/**
+ * An {@link UpdateWorker} of a single named update stream, see {@link UpdateStreams}. Every stream of a storage has its own version, which the worker reads via {@link
+ * #getStreamVersion(Object)} and stores e.g. in {@link #onPostUpdate(Object, Update)} like the version of a single chain.
+ *
+ * @param <UpdateImpl>      The implementation of {@link Update}
+ * @param <StorageToUpdate> The storage you want to update (Like databases, Files or similar)
+ */
+public interface StreamUpdateWorker<UpdateImpl extends Update<StorageToUpdate>, StorageToUpdate> extends UpdateWorker<UpdateImpl, StorageToUpdate> {
+
+    /**
+     * @return the name of the stream, unique for all streams of a storage
+     */
+    String getStreamName();
+
+    /**
+     * The current version of this stream.
+     *
+     * @param storageToUpdate The storage to update.
+     */
+    int getStreamVersion(StorageToUpdate storageToUpdate);
+
+}
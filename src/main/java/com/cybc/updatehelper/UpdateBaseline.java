@@ -0,0 +1,25 @@
+package com.cybc.updatehelper;
+
+/**
+ * A baseline of a storage, equivalent to applying every update up to {@link #getBaselineVersion()}. E.g. a prebuilt database file or one consolidated script, which is much
+ * faster than replaying every historical update for a fresh storage.
+ *
+ * @param <StorageToUpdate> The implementation of the storage which gets this baseline.
+ * @see BaselineUpdateWorker
+ * @see FileBaseline
+ */
+public interface UpdateBaseline<StorageToUpdate> {
+
+    /**
+     * The version the storage has after applying this baseline.
+     */
+    int getBaselineVersion();
+
+    /**
+     * Applies the baseline to the storage.
+     *
+     * @param storageToUpdate The storage which should get the baseline
+     */
+    void apply(StorageToUpdate storageToUpdate) throws Exception;
+
+}
@@ -0,0 +1,58 @@
+package com.cybc.updatehelper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Calculates the checksums of updates for the {@link AppliedUpdateHistory}: the {@link ChecksummedUpdate#getChecksum()} or the first 64 bits of the SHA-256 of the class byte
+ * code. The checksum of a class is calculated once.
+ */
+public final class UpdateChecksum {
+
+    private static final ClassValue<Long> CLASS_CHECKSUMS = new ClassValue<Long>() {
+        @Override
+        protected Long computeValue(Class<?> updateClass) {
+            return checksumOf(updateClass);
+        }
+    };
+
+    private UpdateChecksum() {}
+
+    public static long of(Update<?> update) {
+        if (update instanceof ChecksummedUpdate) {
+            return ((ChecksummedUpdate<?>) update).getChecksum();
+        }
+        return CLASS_CHECKSUMS.get(update.getClass());
+    }
+
+    private static long checksumOf(Class<?> updateClass) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported!", e);
+        }
+        final String resource = "/" + updateClass.getName().replace('.', '/') + ".class";
+        boolean hashed = false;
+        try (InputStream in = updateClass.getResourceAsStream(resource)) {
+            if (in != null) {
+                final byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+                hashed = true;
+            }
+        } catch (IOException e) {
+            digest.reset(); //fall back to the class name
+        }
+        if (!hashed) {
+            digest.update(updateClass.getName().getBytes(StandardCharsets.UTF_8));
+        }
+        return ByteBuffer.wrap(digest.digest()).getLong();
+    }
+}
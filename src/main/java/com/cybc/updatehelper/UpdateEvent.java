@@ -0,0 +1,95 @@
+package com.cybc.updatehelper;
+
+/**
+ * An immutable event of an upgrade, published to an {@link UpdateEventStream}.
+ */
+public final class UpdateEvent {
+
+    public enum Type {
+        /**
+         * The updates were created and validated, the duration is the wall time of the validation.
+         */
+        VALIDATION_DONE,
+        /**
+         * An update step started, has no duration.
+         */
+        STEP_STARTED,
+        /**
+         * An update step finished successfully, the duration is the wall time of all its phases.
+         */
+        STEP_FINISHED,
+        /**
+         * An update step failed, the duration is the wall time until the failure.
+         */
+        STEP_FAILED,
+        /**
+         * The upgrade finished successfully, the duration is the wall time of the upgrade. An online upgrade finishes after its background updates.
+         */
+        UPGRADE_FINISHED,
+        /**
+         * The upgrade failed, the duration is the wall time until the failure.
+         */
+        UPGRADE_FAILED
+    }
+
+    private final Type      type;
+    private final long      sequence;
+    private final int       version;
+    private final long      durationNanos;
+    private final long      timeNanos;
+    private final Throwable failure;
+
+    UpdateEvent(Type type, long sequence, int version, long durationNanos, long timeNanos, Throwable failure) {
+        this.type = type;
+        this.sequence = sequence;
+        this.version = version;
+        this.durationNanos = durationNanos;
+        this.timeNanos = timeNanos;
+        this.failure = failure;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return the position of the event in its stream, without gaps
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return the version of the update of a step event, -1 for the other events
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the duration, see {@link Type}, -1 if the event has none
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} when the event was published
+     */
+    public long getTimeNanos() {
+        return timeNanos;
+    }
+
+    /**
+     * @return the failure of a failed step or upgrade, null otherwise
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    @Override
+    public String toString() {
+        return "UpdateEvent{" + type + ", sequence=" + sequence + ", version=" + version + ", durationNanos=" + durationNanos + (failure != null ? ", failure=" + failure : "")
+               + "}";
+    }
+}
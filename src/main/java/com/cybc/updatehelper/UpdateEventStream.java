@@ -0,0 +1,129 @@
+package com.cybc.updatehelper;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded stream of the {@link UpdateEvent}s of the upgrades of an {@link UpdateHelper}, for monitoring a running upgrade without slowing it down. The events are written
+ * into a ring buffer without locks and are drained by {@link Subscription}s on their own threads. The upgrade never waits for a subscription: when a subscription falls
+ * more than the capacity behind, the oldest events are overwritten and counted as {@link Subscription#getDroppedCount() dropped}.
+ * <p>Events are usually published by the single upgrading thread. With {@link UpdateHelper#setParallelExecutor(java.util.concurrent.Executor)} the steps publish from the
+ * executing threads, the sequences are claimed atomically then, still without locks.</p>
+ *
+ * @see UpdateHelper#setEventStream(UpdateEventStream)
+ */
+public final class UpdateEventStream {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private final AtomicReferenceArray<UpdateEvent> slots;
+    private final int                               mask;
+    //the sequence of the next event
+    private final AtomicLong                        sequence = new AtomicLong();
+
+    public UpdateEventStream() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the count of events a subscription may fall behind, rounded up to a power of two
+     */
+    public UpdateEventStream(int capacity) {
+        if (capacity < 2 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity must be between 2 and 2^30, was: " + capacity);
+        }
+        final int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * @return the count of events published so far
+     */
+    public long getPublishedCount() {
+        return sequence.get();
+    }
+
+    /**
+     * Creates a subscription, which receives the events published from now on.
+     */
+    public Subscription subscribe() {
+        return new Subscription(sequence.get());
+    }
+
+    void publish(UpdateEvent.Type type, int version, long durationNanos, Throwable failure) {
+        final long sequence = this.sequence.getAndIncrement();
+        final UpdateEvent event = new UpdateEvent(type, sequence, version, durationNanos, System.nanoTime(), failure);
+        final int slot = (int) sequence & mask;
+        UpdateEvent current;
+        do {
+            current = slots.get(slot);
+            if (current != null && current.getSequence() > sequence) {
+                return; //a faster publisher lapped this one, the event is already dropped
+            }
+        } while (!slots.compareAndSet(slot, current, event));
+    }
+
+    /**
+     * Reads the events of the stream in sequence order. A subscription is used by one thread, several subscriptions read independently of each other.
+     */
+    public final class Subscription {
+
+        private long next;
+        private long dropped;
+
+        private Subscription(long next) {
+            this.next = next;
+        }
+
+        /**
+         * @return the next event, or null if no further event was published yet
+         */
+        public UpdateEvent poll() {
+            while (true) {
+                final UpdateEvent event = slots.get((int) next & mask);
+                if (event == null || event.getSequence() < next) {
+                    return null;
+                }
+                if (event.getSequence() == next) {
+                    next++;
+                    return event;
+                }
+                //overwritten, continue with the oldest event which may still be in the buffer
+                final long oldest = Math.max(next + 1, sequence.get() - getCapacity());
+                dropped += oldest - next;
+                next = oldest;
+            }
+        }
+
+        /**
+         * Moves the published events into the target.
+         *
+         * @param target    the collection which gets the events
+         * @param maxEvents the maximum count of events to move
+         *
+         * @return the count of moved events
+         */
+        public int drainTo(Collection<? super UpdateEvent> target, int maxEvents) {
+            int count = 0;
+            UpdateEvent event;
+            while (count < maxEvents && (event = poll()) != null) {
+                target.add(event);
+                count++;
+            }
+            return count;
+        }
+
+        /**
+         * @return the count of events which were overwritten before this subscription read them
+         */
+        public long getDroppedCount() {
+            return dropped;
+        }
+    }
+}
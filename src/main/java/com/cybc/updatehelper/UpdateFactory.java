@@ -0,0 +1,17 @@
+package com.cybc.updatehelper;
+
+/**
+ * Creates an {@link Update} on demand. Used by {@link UpdateRegistry} to defer class loading and construction of updates until they are really needed.
+ *
+ * @param <UpdateImpl> the implementation of {@link Update}
+ */
+public interface UpdateFactory<UpdateImpl extends Update> {
+
+    /**
+     * Creates the update. The version of the created update must be equals the version it was registered with in the {@link UpdateRegistry}.
+     *
+     * @return a new {@link UpdateImpl}, never null
+     */
+    UpdateImpl create();
+
+}
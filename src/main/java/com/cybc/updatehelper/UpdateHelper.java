@@ -1,12 +1,23 @@
 package com.cybc.updatehelper;
 
+import com.cybc.updatehelper.exceptions.UpdateBatchFailedException;
+import com.cybc.updatehelper.exceptions.UpdateCancelledException;
 import com.cybc.updatehelper.exceptions.UpdateFailedException;
 import com.cybc.updatehelper.exceptions.UpdateNullException;
 import com.cybc.updatehelper.exceptions.UpdateStepFailedException;
+import com.cybc.updatehelper.exceptions.UpdateTimeoutException;
 import com.cybc.updatehelper.exceptions.UpdateValidationException;
+import com.cybc.updatehelper.exceptions.UpgradeLockLostException;
+import com.cybc.updatehelper.metrics.UpdateCostHistory;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Base class to simplify updates. It provides an implementation for iterating over the updates from the oldest version to the newest one. Also checks the update order for possible
@@ -17,7 +28,20 @@ import java.util.Iterator;
  */
 public class UpdateHelper<UpdateImpl extends Update<StorageToUpdate>, StorageToUpdate> {
 
+    private static final ChunkPolicy DEFAULT_CHUNK_POLICY = ChunkPolicy.ofSize(ChunkPolicy.DEFAULT_CHUNK_SIZE);
+    private static final long        MIN_LOCK_BACKOFF     = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long        MAX_LOCK_BACKOFF     = TimeUnit.SECONDS.toNanos(1);
+
     private final UpdateWorker<UpdateImpl, StorageToUpdate> updatable;
+    private       Executor                                  parallelExecutor;
+    private       BatchPolicy                               batchPolicy;
+    private       UpdateListener<? super UpdateImpl>        listener;
+    private       UpdateEventStream                         eventStream;
+    private       long                                      stepTimeoutNanos;
+    private       long                                      upgradeTimeoutNanos;
+    private       ChunkPolicy                               chunkPolicy = DEFAULT_CHUNK_POLICY;
+    private       UpgradeLock<? super StorageToUpdate>      upgradeLock;
+    private       long                                      lockTimeoutNanos;
 
     /**
      * Creates a new {@link UpdateHelper} for the given {@link UpdateWorker}. The Helper will collect the needed information from the {@link UpdateWorker} for the updates.
@@ -28,8 +52,113 @@ public class UpdateHelper<UpdateImpl extends Update<StorageToUpdate>, StorageToU
         this.updatable = updatable;
     }
 
+    UpdateWorker<UpdateImpl, StorageToUpdate> getUpdatable() {
+        return updatable;
+    }
+
+    /**
+     * Enables the parallel execution of updates. The pending updates are executed as a dependency graph on the given {@link Executor} (e.g. a {@link
+     * java.util.concurrent.ForkJoinPool}), built from the declarations of {@link DependentUpdate}s. Updates which don't implement {@link DependentUpdate} are executed after all
+     * previous and before all following updates.
+     * <p>{@link UpdateWorker#onPreUpdate(Object, Update)} and {@link UpdateWorker#onPostUpdate(Object, Update)} are still called for every single update, but on the executing
+     * threads. Implement {@link ParallelUpdateWorker} to get informed in version order about the completed versions.</p>
+     *
+     * @param parallelExecutor the executor for the updates, or null to execute the updates one after another (default)
+     */
+    public void setParallelExecutor(Executor parallelExecutor) {
+        this.parallelExecutor = parallelExecutor;
+    }
+
+    /**
+     * Enables batches of consecutive updates. Every batch is wrapped by {@link BatchUpdateWorker#onBatchBegin(Object)} and {@link BatchUpdateWorker#onBatchCommit(Object,
+     * Update)}, so e.g. a database commits once per batch instead of once per update. When an update of a batch fails, the whole batch is rolled back and an {@link
+     * UpdateBatchFailedException} with the last committed version is thrown.
+     * <p>Requires a {@link BatchUpdateWorker} and can't be combined with {@link #setParallelExecutor(Executor)}.</p>
+     *
+     * @param batchPolicy the policy when to commit a batch, or null to execute every update without batches (default)
+     */
+    public void setBatchPolicy(BatchPolicy batchPolicy) {
+        this.batchPolicy = batchPolicy;
+    }
+
     /**
-     * Iterates over given updates from {@link UpdateWorker#createUpdates()}.<p><b><code>newVersion</code> must be equals the latest update version, provided by {@link
+     * Sets the listener for the timings of the validation, every update step and the whole upgrade. Nothing is measured while no listener is set.
+     * <p>Several listeners can be combined with a {@link CompositeUpdateListener}.</p>
+     *
+     * @param listener the listener, e.g. an {@link com.cybc.updatehelper.metrics.UpdateMetricsCollector}, or null to remove it
+     */
+    public void setUpdateListener(UpdateListener<? super UpdateImpl> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Publishes the events of the validation, every update step and the whole upgrade to the stream, which monitors can drain on their own threads without slowing down
+     * the upgrade.
+     *
+     * @param eventStream the stream, or null to publish no events (default)
+     */
+    public void setEventStream(UpdateEventStream eventStream) {
+        this.eventStream = eventStream;
+    }
+
+    /**
+     * Limits the time of every single update, including {@link UpdateWorker#onPreUpdate(Object, Update)} and {@link UpdateWorker#onPostUpdate(Object, Update)}. A watchdog
+     * thread interrupts an update which runs longer, calls {@link AbortableUpdateWorker#onAbortUpdate(Object, Update)} and the upgrade fails with an {@link
+     * UpdateTimeoutException} as soon as the update returns. Inside a batch the timeout is the cause of the {@link UpdateBatchFailedException}.
+     *
+     * @param timeout the maximum time of an update, or 0 for no timeout (default)
+     * @param unit    the unit of the timeout
+     */
+    public void setStepTimeout(long timeout, TimeUnit unit) {
+        this.stepTimeoutNanos = toTimeoutNanos(timeout, unit);
+    }
+
+    /**
+     * Limits the time of the whole upgrade, measured from the call of <code>onUpgrade</code>. Only running updates are aborted, like with {@link #setStepTimeout(long,
+     * TimeUnit)}.
+     *
+     * @param timeout the maximum time of an upgrade, or 0 for no timeout (default)
+     * @param unit    the unit of the timeout
+     */
+    public void setUpgradeTimeout(long timeout, TimeUnit unit) {
+        this.upgradeTimeoutNanos = toTimeoutNanos(timeout, unit);
+    }
+
+    /**
+     * Sets how {@link ChunkedUpdate}s are driven: the size of the chunks and the rate limit. With a {@link ChunkedUpdateWorker} every chunk is committed together with its
+     * checkpoint.
+     *
+     * @param chunkPolicy the policy, or null for fixed chunks of {@link ChunkPolicy#DEFAULT_CHUNK_SIZE} items (default)
+     */
+    public void setChunkPolicy(ChunkPolicy chunkPolicy) {
+        this.chunkPolicy = chunkPolicy != null ? chunkPolicy : DEFAULT_CHUNK_POLICY;
+    }
+
+    /**
+     * Guards every upgrade with a lock, so only one process upgrades a shared storage. The other processes retry to acquire the lock with a growing backoff, then read the
+     * version again via {@link LockingUpdateWorker#getStorageVersion(Object)} or {@link StreamUpdateWorker#getStreamVersion(Object)} and only execute the updates which are
+     * still pending. The lock is held until the upgrade is finished, for an online upgrade until the last background update.
+     *
+     * @param upgradeLock the lock, or null to upgrade without a lock (default)
+     * @param timeout     the maximum time to wait for the lock, or 0 to wait without a limit
+     * @param unit        the unit of the timeout
+     */
+    public void setUpgradeLock(UpgradeLock<? super StorageToUpdate> upgradeLock, long timeout, TimeUnit unit) {
+        this.lockTimeoutNanos = toTimeoutNanos(timeout, unit);
+        this.upgradeLock = upgradeLock;
+    }
+
+    private static long toTimeoutNanos(long timeout, TimeUnit unit) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("timeout must not be negative, was: " + timeout);
+        }
+        return unit.toNanos(timeout);
+    }
+
+    /**
+     * Iterates over given updates from {@link UpdateWorker#createUpdates()}, or over the pending updates of {@link UpdateRegistryWorker#createUpdateRegistry()}. A {@link
+     * JournaledUpdateWorker} resumes after the last committed version of its {@link UpdateJournal}, a {@link BaselineUpdateWorker} starts with its {@link UpdateBaseline} when
+     * the old version is below it.<p><b><code>newVersion</code> must be equals the latest update version, provided by {@link
      * UpdateWorker#getLatestUpdateVersion(StorageToUpdate)}</b></p> <p>Calls<br>{@link UpdateWorker#onPreUpdate(StorageToUpdate, Update)} before an {@link UpdateImpl} will be
      * executed <br>{@link UpdateWorker#onPostUpdate(StorageToUpdate, UpdateImpl)} when an {@link UpdateImpl} was finished successfully and <br>{@link
      * UpdateWorker#onUpgradingDone(StorageToUpdate)} when all {@link UpdateImpl}s were finished successfully.</p>
@@ -41,46 +170,1078 @@ public class UpdateHelper<UpdateImpl extends Update<StorageToUpdate>, StorageToU
      * @throws UpdateFailedException     when an update fails (Update item null or an Exception was thrown while updating)
      * @throws UpdateValidationException when the updates were provided in a wrong order
      * @throws UpdateNullException       When an update is null
-     * @throws UpdateStepFailedException When a single update step failed.
+     * @throws UpdateStepFailedException When a single update step failed, {@link UpdateBatchFailedException} when a batch failed.
      */
     public void onUpgrade(StorageToUpdate storageToUpdate, int oldVersion, int newVersion) throws UpdateFailedException, UpdateValidationException, UpdateNullException, UpdateStepFailedException {
         if (oldVersion == newVersion) {
             return; //nothing to do, db up to date
         }
-        //TODO try to handle this by the framework
-        final int latestUpdateVersion = updatable.getLatestUpdateVersion(storageToUpdate);
-        if (latestUpdateVersion != newVersion) {
-            throw new UpdateFailedException("Latest update version != new Storage Version! UpdatePool incompatible with newest Storage version! latestUpdateVersion[" + latestUpdateVersion + "] <= newVersion[" + newVersion + "]");
+        upgrade(storageToUpdate, oldVersion, newVersion, null, (UpgradeControl) null);
+    }
+
+    /**
+     * Executes an {@link UpdatePlan} like {@link #onUpgrade(Object, int, int)}, but without creating and validating the updates again. The new version is the latest version
+     * of the plan.
+     *
+     * @param storageToUpdate The storage to update.
+     * @param oldVersion      The old storage version.
+     * @param plan            The plan, created e.g. by {@link #createPlan(int)}
+     *
+     * @throws UpdateFailedException     when an update fails (Update item null or an Exception was thrown while updating)
+     * @throws UpdateStepFailedException When a single update step failed, {@link UpdateBatchFailedException} when a batch failed.
+     */
+    public void onUpgrade(StorageToUpdate storageToUpdate, int oldVersion, UpdatePlan<UpdateImpl> plan) throws UpdateFailedException, UpdateStepFailedException {
+        if (plan == null) {
+            throw new UpdateNullException("UpdatePlan must not be null!");
+        }
+        if (oldVersion == plan.getLatestVersion()) {
+            return; //nothing to do, db up to date
         }
+        upgrade(storageToUpdate, oldVersion, plan.getLatestVersion(), plan, (UpgradeControl) null);
+    }
 
-        final Collection<UpdateImpl> updates = updatable.createUpdates();
+    /**
+     * Executes {@link #onUpgrade(Object, int, int)} on the given {@link Executor} instead of blocking the calling thread. Failures are reported by the returned future.
+     *
+     * @param storageToUpdate  The storage to update.
+     * @param oldVersion       The old storage version.
+     * @param newVersion       The new storage version.
+     * @param executor         the executor for the upgrade
+     * @param progressListener gets informed about the progress on the executing thread, may be null
+     *
+     * @return the future of the new storage version, which also cancels the upgrade between two updates
+     */
+    public UpgradeFuture onUpgradeAsync(StorageToUpdate storageToUpdate, int oldVersion, int newVersion, Executor executor, UpdateProgressListener progressListener) {
+        return submitUpgrade(storageToUpdate, oldVersion, newVersion, null, executor, progressListener);
+    }
 
-        //check for valid updates
-        final UpdateValidationResult updateValidationResult = validateUpdates(updates, latestUpdateVersion);
-        updateValidationResult.throwIfCorrupted();
+    /**
+     * Executes {@link #onUpgrade(Object, int, UpdatePlan)} on the given {@link Executor} instead of blocking the calling thread, see {@link #onUpgradeAsync(Object, int, int,
+     * Executor, UpdateProgressListener)}.
+     */
+    public UpgradeFuture onUpgradeAsync(StorageToUpdate storageToUpdate, int oldVersion, UpdatePlan<UpdateImpl> plan, Executor executor, UpdateProgressListener progressListener) {
+        if (plan == null) {
+            throw new UpdateNullException("UpdatePlan must not be null!");
+        }
+        return submitUpgrade(storageToUpdate, oldVersion, plan.getLatestVersion(), plan, executor, progressListener);
+    }
 
-        int lastVersionUpdate = 0;
-        for (UpdateImpl update : updates) {
-            if (updatable.isStorageClosed(storageToUpdate)) {
-                throw new UpdateFailedException("StorageConnection is closed! Does an update close the Storage? Last version update was: " + lastVersionUpdate);
+    /**
+     * Upgrades the storage online: The blocking updates are executed on the calling thread like {@link #onUpgrade(Object, int, int)}, the trailing {@link
+     * NonBlockingUpdate}s afterwards on the given background executor. Non blocking updates followed by a blocking update are executed on the calling thread as well, the
+     * order of the versions is never changed.
+     * <p>When this method returns, the storage has the schema of the last blocking update and can be used, an {@link OnlineUpdateWorker} gets informed via {@link
+     * OnlineUpdateWorker#onSchemaReady(Object, int)}. {@link UpdateWorker#onUpgradingDone(Object)} and {@link OnlineUpdateWorker#onFullyMigrated(Object)} are called on the
+     * background thread after the last update.</p>
+     *
+     * @param storageToUpdate    The storage to update.
+     * @param oldVersion         The old storage version.
+     * @param newVersion         The new storage version, must be equals the latest update version, provided by {@link UpdateWorker#getLatestUpdateVersion(StorageToUpdate)}
+     * @param backgroundExecutor the executor for the non blocking updates, e.g. with threads of a low priority
+     * @param progressListener   gets informed about the progress of all updates, may be null
+     *
+     * @return the future of the background updates, which results in the new version when the storage is fully migrated
+     *
+     * @throws UpdateFailedException     when a blocking update fails
+     * @throws UpdateValidationException when the updates were provided in a wrong order
+     * @throws UpdateNullException       When an update is null
+     */
+    public UpgradeFuture onUpgradeOnline(final StorageToUpdate storageToUpdate, int oldVersion, final int newVersion, Executor backgroundExecutor,
+                                         UpdateProgressListener progressListener) throws UpdateFailedException, UpdateValidationException, UpdateNullException {
+        if (backgroundExecutor == null) {
+            throw new UpdateNullException("Executor must not be null!");
+        }
+        final UpgradeControl control = new UpgradeControl(progressListener);
+        control.setOnline(true);
+        if (oldVersion != newVersion) {
+            upgrade(storageToUpdate, oldVersion, newVersion, null, control);
+        }
+        final Callable<Integer> remainder = control.getRemainder();
+        final UpgradeFuture future = new UpgradeFuture(remainder != null ? remainder : new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                onSchemaReady(storageToUpdate, newVersion);
+                onFullyMigrated(storageToUpdate);
+                return newVersion;
             }
+        }, control);
+        if (remainder != null) {
+            backgroundExecutor.execute(future);
+        } else {
+            future.run(); //already up to date
+        }
+        return future;
+    }
+
+    /**
+     * Creates the trailing updates to check them, a lazy index keeps the created updates for their execution.
+     *
+     * @return the position after the last blocking update
+     */
+    private int findBlockingEndPosition(UpdateIndex<UpdateImpl> index, int firstPosition) {
+        int position = index.size();
+        while (position > firstPosition && index.getUpdate(position - 1) instanceof NonBlockingUpdate) {
+            position--;
+        }
+        return position;
+    }
 
-            final int targetVersion = update.getUpdateVersion();
-            if (targetVersion > oldVersion) {
+    private Callable<Integer> createRemainder(final StorageToUpdate storageToUpdate, final UpdateIndex<UpdateImpl> index, final int firstPosition, final int oldVersion,
+                                              final UpdateJournal journal, final UpgradeControl control) {
+        return new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
                 try {
+                    execute(storageToUpdate, index, firstPosition, index.size(), oldVersion, journal, control);
+                    finishUpgrade(storageToUpdate, journal);
+                } catch (RuntimeException | Error e) {
+                    onBackgroundUpgradeFailed(storageToUpdate, e);
+                    throw e;
+                }
+                onFullyMigrated(storageToUpdate);
+                return index.size() > 0 ? index.getVersion(index.size() - 1) : oldVersion;
+            }
+        };
+    }
 
+    @SuppressWarnings("unchecked")
+    private void onSchemaReady(StorageToUpdate storageToUpdate, int version) {
+        if (updatable instanceof OnlineUpdateWorker) {
+            ((OnlineUpdateWorker<UpdateImpl, StorageToUpdate>) updatable).onSchemaReady(storageToUpdate, version);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void onFullyMigrated(StorageToUpdate storageToUpdate) {
+        if (updatable instanceof OnlineUpdateWorker) {
+            ((OnlineUpdateWorker<UpdateImpl, StorageToUpdate>) updatable).onFullyMigrated(storageToUpdate);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void onBackgroundUpgradeFailed(StorageToUpdate storageToUpdate, Throwable failure) {
+        if (updatable instanceof OnlineUpdateWorker) {
+            ((OnlineUpdateWorker<UpdateImpl, StorageToUpdate>) updatable).onBackgroundUpgradeFailed(storageToUpdate, failure);
+        }
+    }
+
+    /**
+     * Plans the upgrade like {@link #onUpgrade(Object, int, int)} without executing anything and estimates the duration of every pending update. The journal of a {@link
+     * JournaledUpdateWorker} and the baseline of a {@link BaselineUpdateWorker} are not taken into account.
+     * <p>An {@link EstimatedUpdate} estimates itself, corrected by the calibration of the history. Other updates are estimated by the mean duration of earlier runs from the
+     * history. Set the history as {@link UpdateListener}, also within a {@link CompositeUpdateListener}, to record the durations of the next upgrade.</p>
+     * <p>The history isn't calibrated by this dry run: the uncalibrated estimates are only kept as pending in the history, replacing those of an earlier call, and are added
+     * to the calibration when the next upgrade measures their updates. The upgrade drops the estimates of updates it didn't execute.</p>
+     *
+     * @param storageToUpdate The storage to update, only passed to {@link EstimatedUpdate#estimateNanos(Object)}
+     * @param oldVersion      The old storage version.
+     * @param newVersion      The new storage version, must be equals the latest update version, provided by {@link UpdateWorker#getLatestUpdateVersion(StorageToUpdate)}
+     * @param history         The durations of earlier runs, may be null
+     *
+     * @return the pending updates with their estimates
+     *
+     * @throws UpdateFailedException     when the new version doesn't fit to the updates
+     * @throws UpdateValidationException when the updates were provided in a wrong order
+     * @throws UpdateNullException       When an update is null
+     */
+    public UpgradeEstimate explain(StorageToUpdate storageToUpdate, int oldVersion, int newVersion, UpdateCostHistory history) throws UpdateFailedException,
+            UpdateValidationException, UpdateNullException {
+        final UpdateIndex<UpdateImpl> index = createValidatedIndex(checkLatestUpdateVersion(storageToUpdate, newVersion));
+        return explain(storageToUpdate, oldVersion, index, history);
+    }
+
+    /**
+     * Plans the execution of an {@link UpdatePlan} without executing anything, see {@link #explain(Object, int, int, UpdateCostHistory)}.
+     */
+    public UpgradeEstimate explain(StorageToUpdate storageToUpdate, int oldVersion, UpdatePlan<UpdateImpl> plan, UpdateCostHistory history) {
+        if (plan == null) {
+            throw new UpdateNullException("UpdatePlan must not be null!");
+        }
+        return explain(storageToUpdate, oldVersion, plan.getIndex(), history);
+    }
+
+    @SuppressWarnings("unchecked")
+    private UpgradeEstimate explain(StorageToUpdate storageToUpdate, int oldVersion, UpdateIndex<UpdateImpl> index, UpdateCostHistory history) {
+        final double calibrationFactor = history != null ? history.getCalibrationFactor() : Double.NaN;
+        if (history != null) {
+            history.clearEstimates(); //only the estimates of the latest explanation meet the next upgrade
+        }
+        final List<UpgradeEstimate.Step> steps = new ArrayList<>();
+        for (int position = index.firstPendingPosition(oldVersion); position < index.size(); position++) {
+            final int version = index.getVersion(position);
+            final UpdateImpl update = index.getUpdate(position);
+            long estimatedNanos = -1;
+            UpgradeEstimate.Source source = UpgradeEstimate.Source.UNKNOWN;
+            if (update instanceof EstimatedUpdate) {
+                estimatedNanos = ((EstimatedUpdate<StorageToUpdate>) update).estimateNanos(storageToUpdate);
+                if (estimatedNanos >= 0) {
+                    if (history != null) {
+                        history.recordEstimate(version, estimatedNanos);
+                    }
+                    if (Double.isNaN(calibrationFactor)) {
+                        source = UpgradeEstimate.Source.ESTIMATED;
+                    } else {
+                        source = UpgradeEstimate.Source.CALIBRATED;
+                        estimatedNanos = (long) (estimatedNanos * calibrationFactor);
+                    }
+                }
+            }
+            if (source == UpgradeEstimate.Source.UNKNOWN && history != null) {
+                estimatedNanos = history.getMeanNanos(version);
+                if (estimatedNanos >= 0) {
+                    source = UpgradeEstimate.Source.HISTORY;
+                }
+            }
+            steps.add(new UpgradeEstimate.Step(version, estimatedNanos, source));
+        }
+        return new UpgradeEstimate(oldVersion, steps);
+    }
+
+    /**
+     * Compares the history of a {@link HistoryUpdateWorker} with the current updates without executing anything.
+     *
+     * @param storageToUpdate The storage to check.
+     * @param newVersion      The new storage version, must be equals the latest update version, provided by {@link UpdateWorker#getLatestUpdateVersion(StorageToUpdate)}
+     *
+     * @return the applied updates which were changed afterwards, ordered by version
+     *
+     * @throws UpdateFailedException     when the worker isn't a {@link HistoryUpdateWorker} or the new version doesn't fit to the updates
+     * @throws UpdateValidationException when the updates were provided in a wrong order
+     * @throws UpdateNullException       When an update is null
+     */
+    public List<ChecksumDrift> findChecksumDrifts(StorageToUpdate storageToUpdate, int newVersion) throws UpdateFailedException, UpdateValidationException,
+            UpdateNullException {
+        if (!(updatable instanceof HistoryUpdateWorker)) {
+            throw new UpdateFailedException("Checksum drifts require a HistoryUpdateWorker!");
+        }
+        final UpdateIndex<UpdateImpl> index = createValidatedIndex(checkLatestUpdateVersion(storageToUpdate, newVersion));
+        final AppliedUpdateHistory history = loadHistory(storageToUpdate);
+        final List<ChecksumDrift> drifts = new ArrayList<>();
+        for (int position = 0; position < index.size(); position++) {
+            final int version = index.getVersion(position);
+            if (!history.contains(version)) {
+                continue;
+            }
+            final long checksum = UpdateChecksum.of(index.getUpdate(position));
+            if (history.getStatus(version, checksum) == AppliedUpdateHistory.Status.CHANGED) {
+                drifts.add(new ChecksumDrift(history.get(version), checksum));
+            }
+        }
+        return drifts;
+    }
+
+    @SuppressWarnings("unchecked")
+    private AppliedUpdateHistory loadHistory(StorageToUpdate storageToUpdate) {
+        return AppliedUpdateHistory.of(((HistoryUpdateWorker<UpdateImpl, StorageToUpdate>) updatable).loadAppliedUpdates(storageToUpdate));
+    }
+
+    private UpgradeFuture submitUpgrade(final StorageToUpdate storageToUpdate, final int oldVersion, final int newVersion, final UpdatePlan<UpdateImpl> plan, Executor executor,
+                                        UpdateProgressListener progressListener) {
+        if (executor == null) {
+            throw new UpdateNullException("Executor must not be null!");
+        }
+        final UpgradeControl control = new UpgradeControl(progressListener);
+        final UpgradeFuture future = new UpgradeFuture(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                if (oldVersion != newVersion) {
+                    upgrade(storageToUpdate, oldVersion, newVersion, plan, control);
+                }
+                return newVersion;
+            }
+        }, control);
+        executor.execute(future);
+        return future;
+    }
+
+    /**
+     * Creates and validates the updates of the {@link UpdateWorker} once, to execute them for many storages via {@link #onUpgrade(Object, int, UpdatePlan)}. The storages
+     * share the update instances, see {@link UpdatePlan}.
+     *
+     * @param latestUpdateVersion the latest update version, see {@link UpdateWorker#getLatestUpdateVersion(Object)}
+     *
+     * @return the validated plan
+     *
+     * @throws UpdateValidationException when the updates were provided in a wrong order
+     * @throws UpdateNullException       When an update is null
+     */
+    public UpdatePlan<UpdateImpl> createPlan(int latestUpdateVersion) throws UpdateValidationException, UpdateNullException {
+        if (updatable instanceof UpdateRegistryWorker) {
+            return UpdatePlan.of(createUpdateRegistry(), latestUpdateVersion);
+        }
+        return UpdatePlan.of(updatable.createUpdates(), latestUpdateVersion);
+    }
+
+    void upgrade(StorageToUpdate storageToUpdate, int oldVersion, int newVersion, UpdatePlan<UpdateImpl> plan, UpgradeControl control) {
+        final UpgradeLock<? super StorageToUpdate> upgradeLock = this.upgradeLock;
+        if (upgradeLock == null) {
+            upgradeUnlocked(storageToUpdate, oldVersion, newVersion, plan, control);
+            return;
+        }
+        final UpgradeLock.Lease lease = acquireLock(upgradeLock, storageToUpdate, oldVersion);
+        boolean handedOver = false;
+        Throwable failure = null;
+        try {
+            final int currentVersion = getStorageVersion(storageToUpdate);
+            if (currentVersion >= newVersion) {
+                return; //upgraded by another process
+            }
+            if (control == null) {
+                control = new UpgradeControl(null);
+            }
+            control.setLease(lease);
+            upgradeUnlocked(storageToUpdate, currentVersion, newVersion, plan, control);
+            if (control.getRemainder() != null) {
+                control.setRemainder(createLockedRemainder(control.getRemainder(), lease));
+                handedOver = true; //released after the background updates
+            }
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            if (!handedOver) {
+                releaseLock(lease, failure);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private int getStorageVersion(StorageToUpdate storageToUpdate) {
+        if (updatable instanceof LockingUpdateWorker) {
+            return ((LockingUpdateWorker<?, StorageToUpdate>) updatable).getStorageVersion(storageToUpdate);
+        }
+        if (updatable instanceof StreamUpdateWorker) {
+            return ((StreamUpdateWorker<?, StorageToUpdate>) updatable).getStreamVersion(storageToUpdate);
+        }
+        throw new UpdateFailedException("An UpgradeLock requires a LockingUpdateWorker!");
+    }
+
+    /**
+     * Tries to acquire the lock until the lock timeout, with a doubling backoff between the tries.
+     */
+    private UpgradeLock.Lease acquireLock(UpgradeLock<? super StorageToUpdate> upgradeLock, StorageToUpdate storageToUpdate, int oldVersion) {
+        final long start = System.nanoTime();
+        long backoffNanos = MIN_LOCK_BACKOFF;
+        while (true) {
+            final UpgradeLock.Lease lease;
+            try {
+                lease = upgradeLock.tryAcquire(storageToUpdate);
+            } catch (IOException e) {
+                throw new UpdateFailedException("Acquiring the upgrade lock failed!", e);
+            }
+            if (lease != null) {
+                return lease;
+            }
+            long sleepNanos = backoffNanos;
+            if (lockTimeoutNanos > 0) {
+                final long remainingNanos = lockTimeoutNanos - (System.nanoTime() - start);
+                if (remainingNanos <= 0) {
+                    throw new UpdateFailedException("Waiting for the upgrade lock timed out after " + TimeUnit.NANOSECONDS.toMillis(lockTimeoutNanos) + "ms!");
+                }
+                sleepNanos = Math.min(sleepNanos, remainingNanos);
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(sleepNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UpdateCancelledException(oldVersion);
+            }
+            backoffNanos = Math.min(backoffNanos * 2, MAX_LOCK_BACKOFF);
+        }
+    }
+
+    private void releaseLock(UpgradeLock.Lease lease, Throwable failure) {
+        try {
+            lease.release();
+        } catch (IOException e) {
+            if (failure != null) {
+                failure.addSuppressed(e);
+                return;
+            }
+            throw new UpdateFailedException("Releasing the upgrade lock failed!", e);
+        }
+    }
+
+    private Callable<Integer> createLockedRemainder(final Callable<Integer> remainder, final UpgradeLock.Lease lease) {
+        return new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                Throwable failure = null;
+                try {
+                    return remainder.call();
+                } catch (Exception | Error e) {
+                    failure = e;
+                    throw e;
+                } finally {
+                    releaseLock(lease, failure);
+                }
+            }
+        };
+    }
+
+    private void upgradeUnlocked(StorageToUpdate storageToUpdate, int oldVersion, int newVersion, UpdatePlan<UpdateImpl> plan, UpgradeControl control) {
+        final UpdateListener<? super UpdateImpl> listener = this.listener;
+        final UpdateEventStream eventStream = this.eventStream;
+        if (listener == null && eventStream == null) {
+            upgrade(storageToUpdate, oldVersion, newVersion, plan, null, control);
+            return;
+        }
+        final long start = System.nanoTime();
+        Throwable failure = null;
+        boolean handedOver = false;
+        try {
+            upgrade(storageToUpdate, oldVersion, newVersion, plan, listener, control);
+            if (control != null && control.getRemainder() != null) {
+                //an online upgrade is done when the background updates are done
+                control.setRemainder(createReportingRemainder(control.getRemainder(), listener, eventStream, start));
+                handedOver = true;
+            }
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        } finally {
+            if (!handedOver) {
+                onUpgradeDone(listener, eventStream, System.nanoTime() - start, failure);
+            }
+        }
+    }
+
+    private Callable<Integer> createReportingRemainder(final Callable<Integer> remainder, final UpdateListener<? super UpdateImpl> listener,
+                                                       final UpdateEventStream eventStream, final long start) {
+        return new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                Throwable failure = null;
+                try {
+                    return remainder.call();
+                } catch (Exception | Error e) {
+                    failure = e;
+                    throw e;
+                } finally {
+                    onUpgradeDone(listener, eventStream, System.nanoTime() - start, failure);
+                }
+            }
+        };
+    }
+
+    private static void onUpgradeDone(UpdateListener<?> listener, UpdateEventStream eventStream, long wallNanos, Throwable failure) {
+        if (eventStream != null) {
+            eventStream.publish(failure == null ? UpdateEvent.Type.UPGRADE_FINISHED : UpdateEvent.Type.UPGRADE_FAILED, -1, wallNanos, failure);
+        }
+        if (listener != null) {
+            listener.onUpgradeDone(wallNanos, failure);
+        }
+    }
+
+    private void upgrade(StorageToUpdate storageToUpdate, int oldVersion, int newVersion, UpdatePlan<UpdateImpl> plan, UpdateListener<? super UpdateImpl> listener,
+                         UpgradeControl control) {
+        if (upgradeTimeoutNanos > 0) {
+            if (control == null) {
+                control = new UpgradeControl(null);
+            }
+            control.setDeadline(System.nanoTime() + upgradeTimeoutNanos);
+        }
+        if (batchPolicy != null) {
+            if (!(updatable instanceof BatchUpdateWorker)) {
+                throw new UpdateFailedException("A BatchPolicy requires a BatchUpdateWorker!");
+            }
+            if (parallelExecutor != null) {
+                throw new UpdateFailedException("Batches can't be combined with the parallel execution of updates!");
+            }
+        }
+
+        final int latestUpdateVersion;
+        final UpdateIndex<UpdateImpl> index;
+        if (plan != null) {
+            latestUpdateVersion = plan.getLatestVersion();
+            index = plan.getIndex();
+        } else {
+            latestUpdateVersion = checkLatestUpdateVersion(storageToUpdate, newVersion);
+
+            final long validationStart = System.nanoTime();
+            index = createValidatedIndex(latestUpdateVersion);
+            final long validationNanos = System.nanoTime() - validationStart;
+            final UpdateEventStream eventStream = this.eventStream;
+            if (eventStream != null) {
+                eventStream.publish(UpdateEvent.Type.VALIDATION_DONE, -1, validationNanos, null);
+            }
+            if (listener != null) {
+                listener.onValidationDone(validationNanos);
+            }
+        }
+
+        if (updatable instanceof HistoryUpdateWorker) {
+            if (control == null) {
+                control = new UpgradeControl(null);
+            }
+            control.setHistory(loadHistory(storageToUpdate));
+        }
+
+        final UpdateJournal journal = getJournal(storageToUpdate);
+        int resumeVersion = journal != null ? recover(storageToUpdate, journal, index, oldVersion) : oldVersion;
+        if (updatable instanceof BaselineUpdateWorker) {
+            resumeVersion = applyBaseline(storageToUpdate, resumeVersion, latestUpdateVersion, journal);
+        }
+
+        final int firstPendingPosition = index.firstPendingPosition(resumeVersion);
+        if (control != null) {
+            control.begin(resumeVersion, index.size() - firstPendingPosition);
+        }
+        if (control != null && control.isOnline()) {
+            final int blockingEndPosition = findBlockingEndPosition(index, firstPendingPosition);
+            executeWithRollback(storageToUpdate, index, firstPendingPosition, blockingEndPosition, resumeVersion, journal, control);
+            final int schemaVersion = blockingEndPosition > firstPendingPosition ? index.getVersion(blockingEndPosition - 1) : resumeVersion;
+            onSchemaReady(storageToUpdate, schemaVersion);
+            control.setRemainder(createRemainder(storageToUpdate, index, blockingEndPosition, schemaVersion, journal, control));
+            return;
+        }
+        executeWithRollback(storageToUpdate, index, firstPendingPosition, index.size(), resumeVersion, journal, control);
+        finishUpgrade(storageToUpdate, journal);
+    }
+
+    /**
+     * Executes the updates and rolls the storage of a {@link RollbackUpdateWorker} back to the old version when the upgrade fails, also when it was cancelled or the
+     * storage was closed. Only a storage whose lease was lost isn't touched anymore. The snapshot is discarded on every path.
+     */
+    @SuppressWarnings("unchecked")
+    private void executeWithRollback(StorageToUpdate storageToUpdate, UpdateIndex<UpdateImpl> index, int firstPosition, int endPosition, int oldVersion,
+                                     UpdateJournal journal, UpgradeControl control) {
+        if (!(updatable instanceof RollbackUpdateWorker) || firstPosition >= endPosition) {
+            execute(storageToUpdate, index, firstPosition, endPosition, oldVersion, journal, control);
+            return;
+        }
+        final RollbackUpdateWorker<UpdateImpl, StorageToUpdate> rollbackWorker = (RollbackUpdateWorker<UpdateImpl, StorageToUpdate>) updatable;
+        final StorageSnapshot snapshot;
+        try {
+            snapshot = rollbackWorker.takeSnapshot(storageToUpdate, oldVersion);
+        } catch (Exception e) {
+            throw new UpdateFailedException("Taking the snapshot of version '" + oldVersion + "' failed!", e);
+        }
+        try {
+            execute(storageToUpdate, index, firstPosition, endPosition, oldVersion, journal, control);
+        } catch (RuntimeException | Error e) {
+            if (control != null && control.isLeaseLost()) {
+                //the storage belongs to another process now, a rollback would destroy its work
+                if (!(e instanceof UpgradeLockLostException)) {
+                    e.addSuppressed(control.createLeaseLostException());
+                }
+                throw e;
+            }
+            rollback(rollbackWorker, storageToUpdate, index, firstPosition, oldVersion, snapshot, journal, control, e);
+            throw e;
+        } finally {
+            if (snapshot != null) {
+                snapshot.discard();
+            }
+        }
+    }
+
+    /**
+     * Restores the snapshot or executes the down steps of the finished updates. A failed rollback is added as suppressed exception to the failure.
+     */
+    private void rollback(RollbackUpdateWorker<UpdateImpl, StorageToUpdate> rollbackWorker, StorageToUpdate storageToUpdate, UpdateIndex<UpdateImpl> index, int firstPosition,
+                          int oldVersion, StorageSnapshot snapshot, UpdateJournal journal, UpgradeControl control, Throwable failure) {
+        try {
+            if (snapshot != null) {
+                snapshot.restore();
+            } else if (!executeDownSteps(storageToUpdate, index, firstPosition, control, failure)) {
+                return; //can't be rolled back
+            }
+            if (journal != null) {
+                journal.clear();
+            }
+            rollbackWorker.onRolledBack(storageToUpdate, oldVersion);
+        } catch (Exception e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    /**
+     * @return false if the finished updates can't be reverted
+     */
+    @SuppressWarnings("unchecked")
+    private boolean executeDownSteps(StorageToUpdate storageToUpdate, UpdateIndex<UpdateImpl> index, int firstPosition, UpgradeControl control, Throwable failure)
+            throws Exception {
+        if (parallelExecutor != null) {
+            return false; //the finished updates aren't known
+        }
+        final int endPosition;
+        if (failure instanceof UpdateBatchFailedException) {
+            endPosition = index.firstPendingPosition(((UpdateBatchFailedException) failure).lastCommittedVersion);
+        } else if (failure instanceof UpdateStepFailedException && ((UpdateStepFailedException) failure).failedUpdate != null) {
+            endPosition = index.firstPendingPosition(((UpdateStepFailedException) failure).failedUpdate.getUpdateVersion() - 1);
+        } else if (failure instanceof UpdateCancelledException) {
+            endPosition = index.firstPendingPosition(((UpdateCancelledException) failure).lastCompletedVersion);
+        } else if (control != null && control.getProgress() != null) {
+            endPosition = index.firstPendingPosition(control.getProgress().getVersion());
+        } else {
+            return false;
+        }
+        final List<ReversibleUpdate<StorageToUpdate>> finishedUpdates = new ArrayList<>(Math.max(0, endPosition - firstPosition));
+        for (int position = firstPosition; position < endPosition; position++) {
+            final UpdateImpl update = index.getUpdate(position);
+            if (!(update instanceof ReversibleUpdate)) {
+                return false;
+            }
+            finishedUpdates.add((ReversibleUpdate<StorageToUpdate>) update);
+        }
+        for (int i = finishedUpdates.size() - 1; i >= 0; i--) {
+            finishedUpdates.get(i).down(storageToUpdate);
+        }
+        return true;
+    }
+
+    private void execute(StorageToUpdate storageToUpdate, UpdateIndex<UpdateImpl> index, int firstPosition, int endPosition, int oldVersion, UpdateJournal journal,
+                         UpgradeControl control) {
+        if (parallelExecutor != null) {
+            new ParallelUpdateExecution<>(this, parallelExecutor, index, firstPosition, endPosition, journal, control).execute(storageToUpdate);
+        } else if (batchPolicy != null) {
+            executeBatched(storageToUpdate, index, firstPosition, endPosition, oldVersion, journal, control);
+        } else {
+            executeSequential(storageToUpdate, index, firstPosition, endPosition, journal, control);
+        }
+    }
+
+    private void finishUpgrade(StorageToUpdate storageToUpdate, UpdateJournal journal) {
+        updatable.onUpgradingDone(storageToUpdate);
+        if (journal != null) {
+            try {
+                journal.clear();
+            } catch (IOException e) {
+                throw new UpdateFailedException("Clearing the update journal failed!", e);
+            }
+        }
+    }
+
+    /**
+     * Executes a single update between {@link UpdateWorker#onPreUpdate(Object, Update)} and {@link UpdateWorker#onPostUpdate(Object, Update)}, measured for the {@link
+     * UpdateListener} and watched by the {@link UpdateWatchdog} when a timeout is set.
+     *
+     * Updates in the history of a {@link HistoryUpdateWorker} are skipped.
+     *
+     * @return the record of the executed update for the {@link HistoryUpdateWorker}, to be passed to {@link #onUpdateApplied(Object, AppliedUpdate)} once the update is
+     * committed, null if there is nothing to record
+     *
+     * @throws UpdateTimeoutException when the update timed out
+     */
+    @SuppressWarnings("unchecked")
+    AppliedUpdate executeStep(final StorageToUpdate storageToUpdate, final UpdateImpl update, UpgradeControl control) throws Exception {
+        final AppliedUpdateHistory history = control != null ? control.getHistory() : null;
+        if (history == null) {
+            executeWatched(storageToUpdate, update, control);
+            return null;
+        }
+        final long checksum = UpdateChecksum.of(update);
+        final int version = update.getUpdateVersion();
+        final HistoryUpdateWorker<UpdateImpl, StorageToUpdate> historyWorker = (HistoryUpdateWorker<UpdateImpl, StorageToUpdate>) updatable;
+        final AppliedUpdateHistory.Status status = history.getStatus(version, checksum);
+        if (status != AppliedUpdateHistory.Status.PENDING) {
+            final AppliedUpdate appliedUpdate = history.get(version);
+            if (status == AppliedUpdateHistory.Status.CHANGED) {
+                historyWorker.onChecksumDrift(storageToUpdate, new ChecksumDrift(appliedUpdate, checksum));
+            }
+            historyWorker.onUpdateSkipped(storageToUpdate, update, appliedUpdate);
+            return null;
+        }
+        final long start = System.nanoTime();
+        executeWatched(storageToUpdate, update, control);
+        return new AppliedUpdate(version, checksum, System.nanoTime() - start, System.currentTimeMillis());
+    }
+
+    /**
+     * Passes the record of a committed update to the {@link HistoryUpdateWorker}.
+     *
+     * @param appliedUpdate the record returned by {@link #executeStep(Object, Update, UpgradeControl)}, may be null
+     */
+    @SuppressWarnings("unchecked")
+    void onUpdateApplied(StorageToUpdate storageToUpdate, AppliedUpdate appliedUpdate) {
+        if (appliedUpdate != null) {
+            ((HistoryUpdateWorker<UpdateImpl, StorageToUpdate>) updatable).onUpdateApplied(storageToUpdate, appliedUpdate);
+        }
+    }
+
+    private void executeWatched(final StorageToUpdate storageToUpdate, final UpdateImpl update, UpgradeControl control) throws Exception {
+        long timeoutNanos = stepTimeoutNanos;
+        boolean upgradeTimeout = false;
+        if (control != null && control.hasDeadline()) {
+            final long remainingNanos = control.getDeadline() - System.nanoTime();
+            if (timeoutNanos <= 0 || remainingNanos < timeoutNanos) {
+                timeoutNanos = remainingNanos;
+                upgradeTimeout = true;
+            }
+            if (remainingNanos <= 0) {
+                throw new UpdateTimeoutException(update, 0, true, null);
+            }
+        }
+        if (timeoutNanos <= 0) {
+            executePhases(storageToUpdate, update);
+            return;
+        }
+
+        final Runnable abortHook = !(updatable instanceof AbortableUpdateWorker) ? null : new Runnable() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public void run() {
+                ((AbortableUpdateWorker<UpdateImpl, StorageToUpdate>) updatable).onAbortUpdate(storageToUpdate, update);
+            }
+        };
+        final long start = System.nanoTime();
+        final UpdateWatchdog.Watch watch = UpdateWatchdog.watch(timeoutNanos, abortHook);
+        Exception failure = null;
+        boolean timedOut;
+        try {
+            executePhases(storageToUpdate, update);
+        } catch (Exception e) {
+            failure = e;
+        } finally {
+            timedOut = watch.finish();
+        }
+        if (timedOut) {
+            final UpdateTimeoutException timeoutException = new UpdateTimeoutException(update, System.nanoTime() - start, upgradeTimeout, failure);
+            if (watch.getAbortFailure() != null) {
+                timeoutException.addSuppressed(watch.getAbortFailure());
+            }
+            throw timeoutException;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void executePhases(StorageToUpdate storageToUpdate, UpdateImpl update) throws Exception {
+        final UpdateListener<? super UpdateImpl> listener = this.listener;
+        final UpdateEventStream eventStream = this.eventStream;
+        if (listener == null && eventStream == null) {
+            updatable.onPreUpdate(storageToUpdate, update);
+            executeUpdate(storageToUpdate, update);
+            updatable.onPostUpdate(storageToUpdate, update);
+            return;
+        }
+        final UpdateStepTiming timing = new UpdateStepTiming(update.getUpdateVersion());
+        if (eventStream != null) {
+            eventStream.publish(UpdateEvent.Type.STEP_STARTED, timing.getVersion(), -1, null);
+        }
+        try {
+            for (UpdateStepTiming.Phase phase : UpdateStepTiming.Phase.values()) {
+                executePhase(storageToUpdate, update, phase, timing);
+            }
+        } finally {
+            if (eventStream != null) {
+                eventStream.publish(timing.isSuccessful() ? UpdateEvent.Type.STEP_FINISHED : UpdateEvent.Type.STEP_FAILED, timing.getVersion(), timing.getWallNanos(),
+                                    timing.getFailure());
+            }
+            if (listener != null) {
+                listener.onStepDone(update, timing);
+            }
+        }
+    }
+
+    private void executePhase(StorageToUpdate storageToUpdate, UpdateImpl update, UpdateStepTiming.Phase phase, UpdateStepTiming timing) throws Exception {
+        final long cpuStart = CpuTime.currentThreadCpuNanos();
+        final long start = System.nanoTime();
+        try {
+            switch (phase) {
+                case PRE_UPDATE:
                     updatable.onPreUpdate(storageToUpdate, update);
-                    update.execute(storageToUpdate);
+                    break;
+                case EXECUTE:
+                    executeUpdate(storageToUpdate, update);
+                    break;
+                default:
                     updatable.onPostUpdate(storageToUpdate, update);
+            }
+        } catch (Exception | Error e) {
+            timing.fail(phase, e);
+            throw e;
+        } finally {
+            final long wallNanos = System.nanoTime() - start;
+            timing.record(phase, wallNanos, cpuStart < 0 ? -1 : CpuTime.currentThreadCpuNanos() - cpuStart);
+        }
+    }
+
+    private void executeUpdate(StorageToUpdate storageToUpdate, UpdateImpl update) throws Exception {
+        if (update instanceof ChunkedUpdate) {
+            executeChunks(storageToUpdate, update);
+        } else {
+            update.execute(storageToUpdate);
+        }
+    }
 
-                    lastVersionUpdate = targetVersion;
-                } catch (Exception e) {
-                    e.printStackTrace();
-                    throw new UpdateStepFailedException(update, e);
+    /**
+     * Drives a {@link ChunkedUpdate} chunk by chunk until it is done, adapting the chunk size and pausing for the rate limit of the {@link ChunkPolicy}.
+     */
+    @SuppressWarnings("unchecked")
+    private void executeChunks(StorageToUpdate storageToUpdate, UpdateImpl update) throws Exception {
+        final ChunkPolicy chunkPolicy = this.chunkPolicy;
+        final ChunkedUpdate<StorageToUpdate> chunkedUpdate = (ChunkedUpdate<StorageToUpdate>) update;
+        final ChunkedUpdateWorker<UpdateImpl, StorageToUpdate> chunkWorker = updatable instanceof ChunkedUpdateWorker ? (ChunkedUpdateWorker<UpdateImpl, StorageToUpdate>) updatable
+                : null;
+
+        long checkpoint = chunkWorker != null ? chunkWorker.getCheckpoint(storageToUpdate, update) : ChunkedUpdate.FIRST_CHECKPOINT;
+        int chunkSize = chunkPolicy.getChunkSize();
+        while (checkpoint != ChunkedUpdate.DONE) {
+            final long start = System.nanoTime();
+            if (chunkWorker != null) {
+                chunkWorker.onChunkBegin(storageToUpdate, update);
+            }
+            try {
+                final long nextCheckpoint = chunkedUpdate.executeChunk(storageToUpdate, checkpoint, chunkSize);
+                if (chunkWorker != null) {
+                    chunkWorker.onChunkCommit(storageToUpdate, update, nextCheckpoint);
+                }
+                checkpoint = nextCheckpoint;
+            } catch (Exception e) {
+                if (chunkWorker != null) {
+                    try {
+                        chunkWorker.onChunkRollback(storageToUpdate, update);
+                    } catch (Exception rollbackException) {
+                        e.addSuppressed(rollbackException);
+                    }
+                }
+                throw e;
+            }
+            if (checkpoint != ChunkedUpdate.DONE) {
+                final long latencyNanos = System.nanoTime() - start;
+                final long pauseNanos = chunkPolicy.pauseNanos(chunkSize, latencyNanos);
+                if (pauseNanos > 0) {
+                    TimeUnit.NANOSECONDS.sleep(pauseNanos);
                 }
+                chunkSize = chunkPolicy.nextChunkSize(chunkSize, latencyNanos);
             }
         }
-        updatable.onUpgradingDone(storageToUpdate);
+    }
+
+    @SuppressWarnings("unchecked")
+    private UpdateJournal getJournal(StorageToUpdate storageToUpdate) {
+        if (!(updatable instanceof JournaledUpdateWorker)) {
+            return null;
+        }
+        final UpdateJournal journal = ((JournaledUpdateWorker<UpdateImpl, StorageToUpdate>) updatable).getJournal(storageToUpdate);
+        if (journal == null) {
+            throw new UpdateNullException("Journal of the JournaledUpdateWorker must not be null!");
+        }
+        return journal;
+    }
+
+    /**
+     * Reads the journal of a previous run.
+     *
+     * @return the version to resume from, the last committed version of the journal if it is newer than <code>oldVersion</code>
+     */
+    @SuppressWarnings("unchecked")
+    private int recover(StorageToUpdate storageToUpdate, UpdateJournal journal, UpdateIndex<UpdateImpl> index, int oldVersion) {
+        final UpdateJournal.Recovery recovery;
+        try {
+            recovery = journal.recover();
+        } catch (IOException e) {
+            throw new UpdateFailedException("Reading the update journal failed!", e);
+        }
+        int resumeVersion = oldVersion;
+        if (recovery.hasCommittedVersion() && recovery.getLastCommittedVersion() > resumeVersion) {
+            resumeVersion = recovery.getLastCommittedVersion();
+        }
+        if (recovery.hasIncompleteVersion() && recovery.getIncompleteVersion() > resumeVersion) {
+            final int position = index.firstPendingPosition(resumeVersion);
+            if (position < index.size() && index.getVersion(position) == recovery.getIncompleteVersion()) {
+                final JournaledUpdateWorker<UpdateImpl, StorageToUpdate> journaledWorker = (JournaledUpdateWorker<UpdateImpl, StorageToUpdate>) updatable;
+                if (!journaledWorker.onIncompleteUpdate(storageToUpdate, index.getUpdate(position))) {
+                    resumeVersion = recovery.getIncompleteVersion();
+                    journalCommitted(journal, resumeVersion);
+                }
+            }
+        }
+        return resumeVersion;
+    }
+
+    /**
+     * Applies the baseline of a {@link BaselineUpdateWorker}, if it is newer than the version to resume from.
+     *
+     * @return the version to resume from, the baseline version if the baseline was applied
+     */
+    @SuppressWarnings("unchecked")
+    private int applyBaseline(StorageToUpdate storageToUpdate, int resumeVersion, int latestUpdateVersion, UpdateJournal journal) {
+        final BaselineUpdateWorker<UpdateImpl, StorageToUpdate> baselineWorker = (BaselineUpdateWorker<UpdateImpl, StorageToUpdate>) updatable;
+        final UpdateBaseline<StorageToUpdate> baseline = baselineWorker.getBaseline(storageToUpdate, resumeVersion);
+        if (baseline == null || baseline.getBaselineVersion() <= resumeVersion) {
+            return resumeVersion;
+        }
+        final int baselineVersion = baseline.getBaselineVersion();
+        if (baselineVersion > latestUpdateVersion) {
+            throw UpdateValidationException.forWrongBaselineVersion(baselineVersion, latestUpdateVersion);
+        }
+        try {
+            baseline.apply(storageToUpdate);
+        } catch (Exception e) {
+            throw new UpdateFailedException("Applying the baseline with version '" + baselineVersion + "' failed!", e);
+        }
+        baselineWorker.onBaselineApplied(storageToUpdate, baseline);
+        journalCommitted(journal, baselineVersion);
+        return baselineVersion;
+    }
+
+    static void journalStarted(UpdateJournal journal, int version) {
+        if (journal != null) {
+            try {
+                journal.stepStarted(version);
+            } catch (IOException e) {
+                throw new UpdateFailedException("Writing the update journal failed! Version: " + version, e);
+            }
+        }
+    }
+
+    static void journalCommitted(UpdateJournal journal, int version) {
+        if (journal != null) {
+            try {
+                journal.stepCommitted(version);
+            } catch (IOException e) {
+                throw new UpdateFailedException("Writing the update journal failed! Version: " + version, e);
+            }
+        }
+    }
+
+    private void executeSequential(StorageToUpdate storageToUpdate, UpdateIndex<UpdateImpl> index, int firstPosition, int endPosition, UpdateJournal journal,
+                                   UpgradeControl control) {
+        int lastVersionUpdate = 0;
+        for (int position = firstPosition; position < endPosition; position++) {
+            if (updatable.isStorageClosed(storageToUpdate)) {
+                throw new UpdateFailedException("StorageConnection is closed! Does an update close the Storage? Last version update was: " + lastVersionUpdate);
+            }
+            if (control != null) {
+                control.throwIfCancelled();
+                control.awaitStep(index.getVersion(position));
+                control.throwIfLeaseLost();
+            }
+
+            final UpdateImpl update = index.getUpdate(position);
+            journalStarted(journal, update.getUpdateVersion());
+            try {
+                onUpdateApplied(storageToUpdate, executeStep(storageToUpdate, update, control));
+                lastVersionUpdate = update.getUpdateVersion();
+            } catch (UpdateTimeoutException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new UpdateStepFailedException(update, e);
+            }
+            journalCommitted(journal, lastVersionUpdate);
+            if (control != null) {
+                control.stepDone(lastVersionUpdate);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void executeBatched(StorageToUpdate storageToUpdate, UpdateIndex<UpdateImpl> index, int firstPosition, int endPosition, int oldVersion, UpdateJournal journal,
+                                UpgradeControl control) {
+        final BatchUpdateWorker<UpdateImpl, StorageToUpdate> batchWorker = (BatchUpdateWorker<UpdateImpl, StorageToUpdate>) updatable;
+        int lastCommittedVersion = oldVersion;
+        int position = firstPosition;
+        while (position < endPosition) {
+            if (control != null) {
+                control.throwIfCancelled(); //only between batches, a started batch is committed
+                control.awaitStep(index.getVersion(position)); //before the batch is opened, a waiting batch could block the required stream
+            }
+            batchWorker.onBatchBegin(storageToUpdate);
+            final long batchStart = System.nanoTime();
+            final int batchStartPosition = position;
+            //reported after the commit, a rolled back update was never applied
+            final List<AppliedUpdate> appliedUpdates = control != null && control.getHistory() != null ? new ArrayList<AppliedUpdate>() : null;
+            int batchSize = 0;
+            UpdateImpl lastUpdate = null;
+            //the update which is executed or committed right now, null while the helper itself works
+            UpdateImpl currentUpdate = null;
+            try {
+                do {
+                    if (updatable.isStorageClosed(storageToUpdate)) {
+                        throw new UpdateFailedException("StorageConnection is closed! Does an update close the Storage? Last committed version was: " + lastCommittedVersion);
+                    }
+                    if (control != null) {
+                        control.throwIfLeaseLost();
+                    }
+                    final UpdateImpl update = index.getUpdate(position);
+                    journalStarted(journal, update.getUpdateVersion());
+                    currentUpdate = update;
+
+                    final AppliedUpdate appliedUpdate = executeStep(storageToUpdate, update, control);
+                    if (appliedUpdate != null) {
+                        appliedUpdates.add(appliedUpdate);
+                    }
+
+                    currentUpdate = null;
+                    lastUpdate = update;
+                    position++;
+                    batchSize++;
+                } while (position < endPosition && !isBatchExhausted(batchWorker, storageToUpdate, batchSize, batchStart)
+                         && (control == null || control.isStepOpen(index.getVersion(position)))); //the batch ends before an update which has to wait
+
+                currentUpdate = lastUpdate;
+                batchWorker.onBatchCommit(storageToUpdate, lastUpdate);
+            } catch (Exception | Error e) {
+                try {
+                    batchWorker.onBatchRollback(storageToUpdate);
+                } catch (Exception rollbackException) {
+                    e.addSuppressed(rollbackException);
+                }
+                if (e instanceof Error) {
+                    throw (Error) e; //not wrapped, like an error of a single step
+                }
+                if (currentUpdate == null) {
+                    throw (RuntimeException) e; //failed inside the helper, not inside the update
+                }
+                throw new UpdateBatchFailedException(currentUpdate, e, lastCommittedVersion);
+            }
+            lastCommittedVersion = lastUpdate.getUpdateVersion();
+            journalCommitted(journal, lastCommittedVersion);
+            if (appliedUpdates != null) {
+                for (AppliedUpdate appliedUpdate : appliedUpdates) {
+                    onUpdateApplied(storageToUpdate, appliedUpdate);
+                }
+            }
+            if (control != null) {
+                for (int committedPosition = batchStartPosition; committedPosition < position; committedPosition++) {
+                    control.stepDone(index.getVersion(committedPosition));
+                }
+            }
+        }
+    }
+
+    private boolean isBatchExhausted(BatchUpdateWorker<UpdateImpl, StorageToUpdate> batchWorker, StorageToUpdate storageToUpdate, int batchSize, long batchStart) {
+        final long uncommittedBytes = batchPolicy.hasByteBudget() ? batchWorker.getUncommittedBytes(storageToUpdate) : 0;
+        return batchPolicy.isExhausted(batchSize, System.nanoTime() - batchStart, uncommittedBytes);
+    }
+
+    private int checkLatestUpdateVersion(StorageToUpdate storageToUpdate, int newVersion) {
+        //TODO try to handle this by the framework
+        final int latestUpdateVersion = updatable.getLatestUpdateVersion(storageToUpdate);
+        if (latestUpdateVersion != newVersion) {
+            throw new UpdateFailedException("Latest update version != new Storage Version! UpdatePool incompatible with newest Storage version! latestUpdateVersion[" + latestUpdateVersion + "] <= newVersion[" + newVersion + "]");
+        }
+        return latestUpdateVersion;
+    }
+
+    /**
+     * Creates the {@link UpdateIndex} either lazy from the {@link UpdateRegistry} of an {@link UpdateRegistryWorker} or via {@link UpdateWorker#createUpdates()} and
+     * validates it.
+     */
+    private UpdateIndex<UpdateImpl> createValidatedIndex(int latestUpdateVersion) {
+        final UpdateIndex<UpdateImpl> index;
+        if (updatable instanceof UpdateRegistryWorker) {
+            index = createUpdateRegistry().toIndex(latestUpdateVersion);
+        } else {
+            index = UpdateIndex.forUpdates(updatable.createUpdates(), latestUpdateVersion);
+        }
+
+        //check for valid updates
+        index.getValidationResult().throwIfCorrupted();
+        return index;
+    }
+
+    @SuppressWarnings("unchecked")
+    private UpdateRegistry<UpdateImpl> createUpdateRegistry() {
+        final UpdateRegistry<UpdateImpl> registry = ((UpdateRegistryWorker<UpdateImpl, StorageToUpdate>) updatable).createUpdateRegistry();
+        if (registry == null) {
+            throw new UpdateNullException("Registry of updates must not be null!");
+        }
+        return registry;
     }
 
     /**
@@ -0,0 +1,194 @@
+package com.cybc.updatehelper;
+
+import com.cybc.updatehelper.exceptions.UpdateNullException;
+import com.cybc.updatehelper.exceptions.UpdateValidationException;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Array backed index of updates. The versions are held in a primitive <code>int[]</code> with the updates (or their {@link UpdateFactory}s) in a parallel slot array. When the
+ * index is valid the versions are strictly ascending, so the first pending update for an old storage version can be found by a binary search instead of scanning every
+ * update.
+ * <p>A lazy index creates every update once, on first access, and returns the same instance for the lifetime of the index.</p>
+ *
+ * @param <UpdateImpl> the implementation of {@link Update}
+ */
+public final class UpdateIndex<UpdateImpl extends Update> {
+
+    private final int[]                               versions;
+    private final Object[]                            slots;
+    private final boolean                             lazy;
+    private final UpdateHelper.UpdateValidationResult validationResult;
+    //the created updates of a lazy index, allocated on the first access
+    private volatile AtomicReferenceArray<Object>    created;
+
+    private UpdateIndex(int[] versions, Object[] slots, boolean lazy, UpdateHelper.UpdateValidationResult validationResult) {
+        this.versions = versions;
+        this.slots = slots;
+        this.lazy = lazy;
+        this.validationResult = validationResult;
+    }
+
+    /**
+     * Creates the index for already created updates. The collection is read once, {@link RandomAccess} lists by index and every other collection by its iterator.
+     *
+     * @param updates              the updates in their execution order
+     * @param expectedFinalVersion the version the storage become have after applying every update
+     *
+     * @return the index, check {@link #getValidationResult()} before using it
+     *
+     * @throws UpdateNullException When the collection or an update is null
+     */
+    public static <UpdateImpl extends Update> UpdateIndex<UpdateImpl> forUpdates(Collection<UpdateImpl> updates, int expectedFinalVersion) throws UpdateNullException {
+        if (updates == null) {
+            throw new UpdateNullException("Collection of updates must not be null!");
+        }
+        final int size = updates.size();
+        final int[] versions = new int[size];
+        final Object[] slots = new Object[size];
+        if (updates instanceof List && updates instanceof RandomAccess) {
+            final List<UpdateImpl> list = (List<UpdateImpl>) updates;
+            for (int position = 0; position < size; position++) {
+                fill(versions, slots, position, list.get(position));
+            }
+        } else {
+            final Iterator<UpdateImpl> iterator = updates.iterator();
+            for (int position = 0; position < size; position++) {
+                fill(versions, slots, position, iterator.next());
+            }
+        }
+        return new UpdateIndex<>(versions, slots, false, validateVersions(versions, expectedFinalVersion));
+    }
+
+    /**
+     * Creates the index for lazy created updates. The order of the versions is already guaranteed by the {@link UpdateRegistry}, so only the final version is validated.
+     *
+     * @param versions             the strictly ascending versions, every factory must create an update with the version at the same position
+     * @param factories            the factories of the updates
+     * @param expectedFinalVersion the version the storage become have after applying every update
+     */
+    static <UpdateImpl extends Update> UpdateIndex<UpdateImpl> forFactories(int[] versions, UpdateFactory<?>[] factories, int expectedFinalVersion) {
+        return new UpdateIndex<>(versions, factories, true, validateFinalVersion(versions, expectedFinalVersion));
+    }
+
+    private static void fill(int[] versions, Object[] slots, int position, Update update) {
+        if (update == null) {
+            if (position == 0) {
+                throw new UpdateNullException("Update item is null! For first Update!");
+            }
+            throw new UpdateNullException("Update item is null! Last version update was: " + versions[position - 1]);
+        }
+        versions[position] = update.getUpdateVersion();
+        slots[position] = update;
+    }
+
+    private static UpdateHelper.UpdateValidationResult validateVersions(int[] versions, int expectedFinalVersion) {
+        if (versions.length == 0) {
+            return UpdateHelper.UpdateValidationResult.forEmpty();
+        }
+        for (int position = 1; position < versions.length; position++) {
+            final int versionFrom = versions[position - 1];
+            final int versionTo = versions[position];
+            if (versionFrom > versionTo) {
+                return UpdateHelper.UpdateValidationResult.forWrong(versionFrom, versionTo);
+            }
+            if (versionFrom == versionTo) {
+                return UpdateHelper.UpdateValidationResult.forEqualVersions(versionFrom);
+            }
+        }
+        return validateFinalVersion(versions, expectedFinalVersion);
+    }
+
+    private static UpdateHelper.UpdateValidationResult validateFinalVersion(int[] versions, int expectedFinalVersion) {
+        if (versions.length == 0) {
+            return UpdateHelper.UpdateValidationResult.forEmpty();
+        }
+        final int finalVersion = versions[versions.length - 1];
+        if (finalVersion != expectedFinalVersion) {
+            return UpdateHelper.UpdateValidationResult.forWrongFinalVersion(expectedFinalVersion, finalVersion);
+        }
+        return UpdateHelper.UpdateValidationResult.forCorrect(expectedFinalVersion);
+    }
+
+    /**
+     * Creates the update via the factory and ensures that it fits to the registered version.
+     */
+    static <UpdateImpl extends Update> UpdateImpl create(int version, UpdateFactory<? extends UpdateImpl> factory) throws UpdateNullException, UpdateValidationException {
+        final UpdateImpl update = factory.create();
+        if (update == null) {
+            throw new UpdateNullException("Update factory created null! For version: " + version);
+        }
+        if (update.getUpdateVersion() != version) {
+            throw UpdateValidationException.forWrongFactoryVersion(version, update.getUpdateVersion());
+        }
+        return update;
+    }
+
+    /**
+     * @return the result of the validation, made once when the index was created
+     */
+    public UpdateHelper.UpdateValidationResult getValidationResult() {
+        return validationResult;
+    }
+
+    public int size() {
+        return versions.length;
+    }
+
+    public int getVersion(int position) {
+        return versions[position];
+    }
+
+    /**
+     * Searches the position of the first update with a version greater than <code>oldVersion</code>. Requires a correct index.
+     *
+     * @param oldVersion the old storage version
+     *
+     * @return the position of the first pending update, {@link #size()} if there is no pending update
+     */
+    public int firstPendingPosition(int oldVersion) {
+        final int position = Arrays.binarySearch(versions, oldVersion);
+        return position >= 0 ? position + 1 : -(position + 1);
+    }
+
+    /**
+     * Returns the update at the position. Lazy indexes create the update on the first call, every further call returns the same instance.
+     *
+     * @param position the position inside this index
+     *
+     * @return the update at the position
+     */
+    @SuppressWarnings("unchecked")
+    public UpdateImpl getUpdate(int position) throws UpdateNullException, UpdateValidationException {
+        if (lazy) {
+            final AtomicReferenceArray<Object> created = getCreated();
+            final Object update = created.get(position);
+            if (update != null) {
+                return (UpdateImpl) update;
+            }
+            final UpdateImpl newUpdate = create(versions[position], (UpdateFactory<? extends UpdateImpl>) slots[position]);
+            //a concurrent caller may have been faster, its instance wins
+            return created.compareAndSet(position, null, newUpdate) ? newUpdate : (UpdateImpl) created.get(position);
+        }
+        return (UpdateImpl) slots[position];
+    }
+
+    private AtomicReferenceArray<Object> getCreated() {
+        AtomicReferenceArray<Object> created = this.created;
+        if (created == null) {
+            synchronized (this) {
+                created = this.created;
+                if (created == null) {
+                    created = new AtomicReferenceArray<>(versions.length);
+                    this.created = created;
+                }
+            }
+        }
+        return created;
+    }
+}
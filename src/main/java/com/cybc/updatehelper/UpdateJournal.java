@@ -0,0 +1,201 @@
+package com.cybc.updatehelper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only journal of the update progress of one storage, stored in a local file. For every update a step-start and, once the update is persisted, a step-commit record is
+ * written. After a crash {@link #recover()} tells which version was committed last and which update was started but never committed.
+ * <p>Every record has a fixed size and a check value, so a record which was torn by a crash is ignored together with everything after it.</p>
+ */
+public class UpdateJournal implements Closeable {
+
+    /**
+     * When the journal forces its records to the disk.
+     */
+    public enum SyncMode {
+        /**
+         * Never, the operating system decides. Fastest, but records may get lost on power loss.
+         */
+        NONE,
+        /**
+         * After every step-commit record.
+         */
+        COMMITS,
+        /**
+         * After every record.
+         */
+        ALL
+    }
+
+    private static final byte TYPE_STARTED   = 1;
+    private static final byte TYPE_COMMITTED = 2;
+    private static final int  RECORD_SIZE    = 9; //type + version + check
+
+    private final FileChannel channel;
+    private final SyncMode    syncMode;
+    private final ByteBuffer  record = ByteBuffer.allocate(RECORD_SIZE);
+
+    private UpdateJournal(FileChannel channel, SyncMode syncMode) {
+        this.channel = channel;
+        this.syncMode = syncMode;
+    }
+
+    /**
+     * Opens or creates the journal file.
+     *
+     * @param file     the journal file, one per storage
+     * @param syncMode when to force the records to the disk
+     */
+    public static UpdateJournal open(Path file, SyncMode syncMode) throws IOException {
+        return new UpdateJournal(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE), syncMode);
+    }
+
+    /**
+     * Records that the update with the given version is going to be executed.
+     */
+    public synchronized void stepStarted(int version) throws IOException {
+        append(TYPE_STARTED, version, syncMode == SyncMode.ALL);
+    }
+
+    /**
+     * Records that the update with the given version and every update before it are persisted.
+     */
+    public synchronized void stepCommitted(int version) throws IOException {
+        append(TYPE_COMMITTED, version, syncMode != SyncMode.NONE);
+    }
+
+    private void append(byte type, int version, boolean force) throws IOException {
+        record.clear();
+        record.put(type).putInt(version).putInt(check(type, version));
+        record.flip();
+        long position = channel.size();
+        while (record.hasRemaining()) {
+            position += channel.write(record, position);
+        }
+        if (force) {
+            channel.force(false);
+        }
+    }
+
+    private static int check(byte type, int version) {
+        return ~version ^ (type << 24);
+    }
+
+    /**
+     * Reads the journal. Must be called before new records are appended, a torn record at the end gets removed.
+     *
+     * @return the recovered progress, empty when the journal is empty
+     */
+    public synchronized Recovery recover() throws IOException {
+        final long size = channel.size();
+        final ByteBuffer records = ByteBuffer.allocate((int) Math.min(size, Integer.MAX_VALUE));
+        long position = 0;
+        while (records.hasRemaining()) {
+            final int read = channel.read(records, position);
+            if (read < 0) {
+                break;
+            }
+            position += read;
+        }
+        records.flip();
+        final int recordCount = countValidRecords(records);
+        if (size > (long) recordCount * RECORD_SIZE) {
+            //drop the torn tail, otherwise new records would be appended behind it
+            channel.truncate((long) recordCount * RECORD_SIZE);
+        }
+
+        boolean committed = false;
+        int lastCommittedVersion = 0;
+        for (int i = 0; i < recordCount; i++) {
+            final int offset = i * RECORD_SIZE;
+            final int version = records.getInt(offset + 1);
+            if (records.get(offset) == TYPE_COMMITTED && (!committed || version > lastCommittedVersion)) {
+                lastCommittedVersion = version;
+                committed = true;
+            }
+        }
+        //only started steps after the last commit are incomplete
+        boolean incomplete = false;
+        int incompleteVersion = 0;
+        for (int i = 0; i < recordCount; i++) {
+            final int offset = i * RECORD_SIZE;
+            final int version = records.getInt(offset + 1);
+            if (records.get(offset) == TYPE_STARTED && (!committed || version > lastCommittedVersion) && (!incomplete || version < incompleteVersion)) {
+                incompleteVersion = version;
+                incomplete = true;
+            }
+        }
+        return new Recovery(committed, lastCommittedVersion, incomplete, incompleteVersion);
+    }
+
+    /**
+     * Counts the records until the first torn one.
+     */
+    private static int countValidRecords(ByteBuffer records) {
+        int count = 0;
+        while (records.remaining() >= RECORD_SIZE) {
+            final byte type = records.get();
+            final int version = records.getInt();
+            if (records.getInt() != check(type, version)) {
+                break;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Removes every record, called after all updates were finished successfully.
+     */
+    public synchronized void clear() throws IOException {
+        channel.truncate(0);
+        channel.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * The progress read from the journal.
+     */
+    public static class Recovery {
+
+        private final boolean committed;
+        private final int     lastCommittedVersion;
+        private final boolean incomplete;
+        private final int     incompleteVersion;
+
+        private Recovery(boolean committed, int lastCommittedVersion, boolean incomplete, int incompleteVersion) {
+            this.committed = committed;
+            this.lastCommittedVersion = lastCommittedVersion;
+            this.incomplete = incomplete;
+            this.incompleteVersion = incompleteVersion;
+        }
+
+        public boolean hasCommittedVersion() {
+            return committed;
+        }
+
+        public int getLastCommittedVersion() {
+            return lastCommittedVersion;
+        }
+
+        /**
+         * @return true if an update after the last committed version was started but never committed
+         */
+        public boolean hasIncompleteVersion() {
+            return incomplete;
+        }
+
+        public int getIncompleteVersion() {
+            return incompleteVersion;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.cybc.updatehelper;
+
+/**
+ * Gets informed about the timings and outcomes of {@link UpdateHelper#onUpgrade(Object, int, int)}. The timings are only measured while a listener is set.
+ * <p>With {@link UpdateHelper#setParallelExecutor(java.util.concurrent.Executor)} the step methods are called from the executing threads, so an implementation must be thread
+ * safe then.</p>
+ *
+ * @param <UpdateImpl> the implementation of {@link Update}
+ * @see UpdateHelper#setUpdateListener(UpdateListener)
+ * @see com.cybc.updatehelper.metrics.UpdateMetricsCollector
+ */
+public interface UpdateListener<UpdateImpl extends Update> {
+
+    /**
+     * Is called after the updates were created and validated.
+     *
+     * @param wallNanos the wall time of the creation and validation
+     */
+    void onValidationDone(long wallNanos);
+
+    /**
+     * Is called after every update step, also when the step failed.
+     *
+     * @param update the update of the step
+     * @param timing the timings of every phase and the outcome of the step
+     */
+    void onStepDone(UpdateImpl update, UpdateStepTiming timing);
+
+    /**
+     * Is called when the upgrade is finished, also when it failed. An online upgrade is finished after its background updates.
+     *
+     * @param wallNanos the total wall time of the upgrade
+     * @param failure   the exception thrown by the upgrade, null if it was successful
+     */
+    void onUpgradeDone(long wallNanos, Throwable failure);
+
+}
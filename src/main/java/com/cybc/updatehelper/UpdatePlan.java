@@ -0,0 +1,78 @@
+package com.cybc.updatehelper;
+
+import com.cybc.updatehelper.exceptions.UpdateNullException;
+import com.cybc.updatehelper.exceptions.UpdateValidationException;
+
+import java.util.Collection;
+
+/**
+ * An immutable, already validated set of updates. A plan is created once and can then be executed for any count of storages via {@link UpdateHelper#onUpgrade(Object, int,
+ * UpdatePlan)}, without creating or validating the updates again.
+ * <p>A plan is thread safe. Its update instances are shared by every execution, also across threads, so they must be stateless and must not hold any state of a single
+ * storage. A plan created from an {@link UpdateRegistry} creates every update on its first execution and keeps it for as long as the plan exists.</p>
+ *
+ * @param <UpdateImpl> the implementation of {@link Update}
+ * @see UpdateHelper#createPlan(int)
+ */
+public final class UpdatePlan<UpdateImpl extends Update> {
+
+    private final UpdateIndex<UpdateImpl> index;
+    private final int                     latestVersion;
+
+    private UpdatePlan(UpdateIndex<UpdateImpl> index, int latestVersion) {
+        index.getValidationResult().throwIfCorrupted();
+        this.index = index;
+        this.latestVersion = latestVersion;
+    }
+
+    /**
+     * Creates the plan for already created updates.
+     *
+     * @param updates       the updates in their execution order
+     * @param latestVersion the version the storage become have after applying every update
+     *
+     * @throws UpdateNullException       When the collection or an update is null
+     * @throws UpdateValidationException When the updates were provided in a wrong order
+     */
+    public static <UpdateImpl extends Update> UpdatePlan<UpdateImpl> of(Collection<UpdateImpl> updates, int latestVersion) throws UpdateNullException, UpdateValidationException {
+        return new UpdatePlan<>(UpdateIndex.forUpdates(updates, latestVersion), latestVersion);
+    }
+
+    /**
+     * Creates the plan for lazy created updates. An update is created once, when it is pending for the first time, and then shared by every execution. Later registrations
+     * don't change the plan.
+     *
+     * @param registry      the registry of the updates
+     * @param latestVersion the version the storage become have after applying every update
+     *
+     * @throws UpdateValidationException When the latest registered version doesn't fit
+     */
+    public static <UpdateImpl extends Update> UpdatePlan<UpdateImpl> of(UpdateRegistry<UpdateImpl> registry, int latestVersion) throws UpdateValidationException {
+        return new UpdatePlan<>(registry.toIndex(latestVersion), latestVersion);
+    }
+
+    UpdateIndex<UpdateImpl> getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the version a storage has after executing this plan
+     */
+    public int getLatestVersion() {
+        return latestVersion;
+    }
+
+    /**
+     * @return the count of updates of this plan
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * @return the count of updates which are executed for a storage with the given version
+     */
+    public int getPendingCount(int oldVersion) {
+        return index.size() - index.firstPendingPosition(oldVersion);
+    }
+}
@@ -0,0 +1,61 @@
+package com.cybc.updatehelper;
+
+/**
+ * An immutable snapshot of the progress of an upgrade.
+ *
+ * @see UpdateProgressListener
+ */
+public final class UpdateProgress {
+
+    private final int  version;
+    private final int  completedSteps;
+    private final int  totalSteps;
+    private final long elapsedNanos;
+
+    UpdateProgress(int version, int completedSteps, int totalSteps, long elapsedNanos) {
+        this.version = version;
+        this.completedSteps = completedSteps;
+        this.totalSteps = totalSteps;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return the version of the last finished update, or the version the upgrade started from if no update was finished yet
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the count of finished updates
+     */
+    public int getCompletedSteps() {
+        return completedSteps;
+    }
+
+    /**
+     * @return the count of updates which are not finished yet
+     */
+    public int getRemainingSteps() {
+        return totalSteps - completedSteps;
+    }
+
+    /**
+     * @return the count of pending updates when the upgrade started
+     */
+    public int getTotalSteps() {
+        return totalSteps;
+    }
+
+    /**
+     * @return the nanoseconds since the upgrade started
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "UpdateProgress{version=" + version + ", completedSteps=" + completedSteps + ", totalSteps=" + totalSteps + ", elapsedNanos=" + elapsedNanos + '}';
+    }
+}
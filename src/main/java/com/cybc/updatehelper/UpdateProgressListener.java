@@ -0,0 +1,16 @@
+package com.cybc.updatehelper;
+
+/**
+ * Gets informed about the progress of an asynchronous upgrade, see {@link UpdateHelper#onUpgradeAsync(Object, int, int, java.util.concurrent.Executor,
+ * UpdateProgressListener)}.
+ * <p>Called on the thread which executes the upgrade, so implementations must hand over the progress to e.g. a UI thread themselves.</p>
+ */
+public interface UpdateProgressListener {
+
+    /**
+     * Called once when the pending updates are known and after every finished update, in version order.
+     *
+     * @param progress the current progress
+     */
+    void onProgress(UpdateProgress progress);
+}
@@ -0,0 +1,184 @@
+package com.cybc.updatehelper;
+
+import com.cybc.updatehelper.exceptions.UpdateNullException;
+import com.cybc.updatehelper.exceptions.UpdateValidationException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Registry of updates keyed by their version. The registry holds {@link UpdateFactory}s instead of update instances, so only the updates which are really executed get
+ * created. The registered versions are always sorted ascending, a version can only be registered once.
+ *
+ * @param <UpdateImpl> the implementation of {@link Update}
+ */
+public class UpdateRegistry<UpdateImpl extends Update> {
+
+    private final VersionMap<UpdateFactory<? extends UpdateImpl>> factories = new VersionMap<>();
+
+    //sorted snapshot of the factories for the index, dropped on every registration
+    private int[]              indexVersions;
+    private UpdateFactory<?>[] indexFactories;
+
+    /**
+     * Adapter for the collection based {@link UpdateWorker#createUpdates()}. Every update of the collection is registered with its own version.
+     *
+     * @param updates the already created updates
+     *
+     * @return a new {@link UpdateRegistry} which returns the given update instances
+     *
+     * @throws UpdateNullException       When the collection or an update is null
+     * @throws UpdateValidationException When a version is provided more than once
+     */
+    public static <UpdateImpl extends Update> UpdateRegistry<UpdateImpl> fromCollection(Collection<UpdateImpl> updates) throws UpdateNullException, UpdateValidationException {
+        if (updates == null) {
+            throw new UpdateNullException("Collection of updates must not be null!");
+        }
+        final UpdateRegistry<UpdateImpl> registry = new UpdateRegistry<>();
+        for (UpdateImpl update : updates) {
+            if (update == null) {
+                throw new UpdateNullException("Update item is null! Registered updates: " + registry.size());
+            }
+            registry.register(update.getUpdateVersion(), new InstanceFactory<>(update));
+        }
+        return registry;
+    }
+
+    /**
+     * Registers the factory for an update.
+     *
+     * @param version the version of the update the factory creates
+     * @param factory the factory of the update
+     *
+     * @return this registry
+     *
+     * @throws UpdateNullException       When the factory is null
+     * @throws UpdateValidationException When the version is already registered
+     */
+    public UpdateRegistry<UpdateImpl> register(int version, UpdateFactory<? extends UpdateImpl> factory) throws UpdateNullException, UpdateValidationException {
+        if (factory == null) {
+            throw new UpdateNullException("Update factory is null! For version: " + version);
+        }
+        if (factories.containsVersion(version)) {
+            throw UpdateValidationException.forEqualVersions(version);
+        }
+        factories.put(version, factory);
+        indexVersions = null;
+        indexFactories = null;
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return factories.isEmpty();
+    }
+
+    public int size() {
+        return factories.size();
+    }
+
+    public boolean contains(int version) {
+        return factories.containsVersion(version);
+    }
+
+    /**
+     * @return the highest registered version
+     *
+     * @throws UpdateValidationException When the registry is empty
+     */
+    public int getLatestVersion() throws UpdateValidationException {
+        if (factories.isEmpty()) {
+            throw UpdateValidationException.forEmpty();
+        }
+        return factories.lastVersion();
+    }
+
+    /**
+     * Validates the registered versions. The order and uniqueness of the versions is already guaranteed by the registry, so only the final version can be wrong.
+     *
+     * @param expectedFinalVersion the version the storage become have after applying every update
+     *
+     * @return {@link UpdateHelper.UpdateValidationResult} of the registry
+     */
+    public UpdateHelper.UpdateValidationResult validate(int expectedFinalVersion) {
+        return toIndex(expectedFinalVersion).getValidationResult();
+    }
+
+    /**
+     * Creates a lazy {@link UpdateIndex} of the registered factories. The sorted versions are kept until the next registration, so repeated calls on an unchanged registry
+     * don't copy them again.
+     *
+     * @param expectedFinalVersion the version the storage become have after applying every update
+     *
+     * @return the index, check {@link UpdateIndex#getValidationResult()} before using it
+     */
+    public UpdateIndex<UpdateImpl> toIndex(int expectedFinalVersion) {
+        if (indexVersions == null) {
+            indexVersions = factories.toVersionArray();
+            indexFactories = factories.values().toArray(new UpdateFactory<?>[factories.size()]);
+        }
+        return UpdateIndex.forFactories(indexVersions, indexFactories, expectedFinalVersion);
+    }
+
+    /**
+     * Creates the update for the given version.
+     *
+     * @param version the registered version
+     *
+     * @return the created update
+     *
+     * @throws UpdateNullException       When no factory is registered for the version or the factory returns null
+     * @throws UpdateValidationException When the created update has another version than it was registered with
+     */
+    public UpdateImpl create(int version) throws UpdateNullException, UpdateValidationException {
+        final UpdateFactory<? extends UpdateImpl> factory = factories.get(version);
+        if (factory == null) {
+            throw new UpdateNullException("No update registered for version: " + version);
+        }
+        return create(version, factory);
+    }
+
+    /**
+     * Creates all updates with a version greater than <code>oldVersion</code>, ordered by their version. Factories of older versions aren't touched.
+     *
+     * @param oldVersion the old storage version
+     *
+     * @return the pending updates, may be empty
+     */
+    public List<UpdateImpl> createPendingUpdates(int oldVersion) throws UpdateNullException, UpdateValidationException {
+        return createFrom(factories.firstPositionAfter(oldVersion));
+    }
+
+    /**
+     * Creates every registered update, ordered by their version.
+     */
+    public List<UpdateImpl> createAll() throws UpdateNullException, UpdateValidationException {
+        return createFrom(0);
+    }
+
+    private List<UpdateImpl> createFrom(int firstPosition) {
+        final List<UpdateImpl> updates = new ArrayList<>(factories.size() - firstPosition);
+        for (int position = firstPosition; position < factories.size(); position++) {
+            updates.add(create(factories.versionAt(position), factories.valueAt(position)));
+        }
+        return updates;
+    }
+
+    private UpdateImpl create(int version, UpdateFactory<? extends UpdateImpl> factory) {
+        return UpdateIndex.create(version, factory);
+    }
+
+    private static class InstanceFactory<UpdateImpl extends Update> implements UpdateFactory<UpdateImpl> {
+
+        private final UpdateImpl update;
+
+        private InstanceFactory(UpdateImpl update) {
+            this.update = update;
+        }
+
+        @Override
+        public UpdateImpl create() {
+            return update;
+        }
+    }
+}
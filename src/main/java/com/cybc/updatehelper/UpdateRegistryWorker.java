@@ -0,0 +1,23 @@
+package com.cybc.updatehelper;
+
+import java.util.Collection;
+
+/**
+ * An {@link UpdateWorker} which provides its updates lazily via an {@link UpdateRegistry}. {@link UpdateHelper#onUpgrade(Object, int, int)} will prefer the registry over
+ * {@link #createUpdates()} and only creates the updates with a version greater than the old storage version.
+ *
+ * @param <UpdateImpl>      The implementation of {@link Update}
+ * @param <StorageToUpdate> The storage you want to update (Like databases, Files or similar)
+ */
+public interface UpdateRegistryWorker<UpdateImpl extends Update<StorageToUpdate>, StorageToUpdate> extends UpdateWorker<UpdateImpl, StorageToUpdate> {
+
+    /**
+     * Creates the registry of all updates. Registering an {@link UpdateFactory} must be cheap, the actual updates should only be created by the factories.
+     *
+     * @return the {@link UpdateRegistry} with all updates up to {@link #getLatestUpdateVersion(Object)}
+     *
+     * @see UpdateRegistry#fromCollection(Collection)
+     */
+    UpdateRegistry<UpdateImpl> createUpdateRegistry();
+
+}
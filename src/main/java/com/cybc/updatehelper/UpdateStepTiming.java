@@ -0,0 +1,110 @@
+package com.cybc.updatehelper;
+
+/**
+ * The wall and cpu times of the phases of a single update step, together with its outcome.
+ *
+ * @see UpdateListener#onStepDone(Update, UpdateStepTiming)
+ */
+public final class UpdateStepTiming {
+
+    /**
+     * The phases of a single update step.
+     */
+    public enum Phase {
+        /**
+         * {@link UpdateWorker#onPreUpdate(Object, Update)}
+         */
+        PRE_UPDATE,
+        /**
+         * {@link Update#execute(Object)}
+         */
+        EXECUTE,
+        /**
+         * {@link UpdateWorker#onPostUpdate(Object, Update)}
+         */
+        POST_UPDATE
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final int       version;
+    private final long[]    wallNanos = new long[PHASES.length];
+    private final long[]    cpuNanos  = new long[PHASES.length];
+    private       Phase     failedPhase;
+    private       Throwable failure;
+
+    UpdateStepTiming(int version) {
+        this.version = version;
+    }
+
+    void record(Phase phase, long wallNanos, long cpuNanos) {
+        this.wallNanos[phase.ordinal()] = wallNanos;
+        this.cpuNanos[phase.ordinal()] = cpuNanos;
+    }
+
+    void fail(Phase phase, Throwable failure) {
+        this.failedPhase = phase;
+        this.failure = failure;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the wall time of the phase, 0 if the phase wasn't reached
+     */
+    public long getWallNanos(Phase phase) {
+        return wallNanos[phase.ordinal()];
+    }
+
+    /**
+     * @return the cpu time of the phase, -1 if the runtime can't measure it
+     */
+    public long getCpuNanos(Phase phase) {
+        return cpuNanos[phase.ordinal()];
+    }
+
+    /**
+     * @return the wall time of all phases
+     */
+    public long getWallNanos() {
+        long sum = 0;
+        for (long nanos : wallNanos) {
+            sum += nanos;
+        }
+        return sum;
+    }
+
+    /**
+     * @return the cpu time of all phases, -1 if the runtime can't measure it
+     */
+    public long getCpuNanos() {
+        long sum = 0;
+        for (long nanos : cpuNanos) {
+            if (nanos < 0) {
+                return -1;
+            }
+            sum += nanos;
+        }
+        return sum;
+    }
+
+    public boolean isSuccessful() {
+        return failure == null;
+    }
+
+    /**
+     * @return the phase which failed, null if the step was successful
+     */
+    public Phase getFailedPhase() {
+        return failedPhase;
+    }
+
+    /**
+     * @return the exception of the failed phase, null if the step was successful
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+}
@@ -0,0 +1,461 @@
+package com.cybc.updatehelper;
+
+import com.cybc.updatehelper.exceptions.UpdateFailedException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Upgrades the independent update streams of one storage concurrently, e.g. the core schema, a search index and analytics tables. Every stream has its own {@link
+ * UpdateHelper} with a {@link StreamUpdateWorker}, so its own version and update chain, which is validated on its own. A failed stream doesn't stop the other streams.
+ * <p>A barrier lets a stream wait for another stream: the update of the barrier version is only executed when the required stream has reached the required version. Barriers
+ * which can never open, because of a cycle or a version the required stream doesn't reach, are rejected before any update is executed. When the required stream fails, the
+ * waiting stream fails as well.</p>
+ * <p>The streams update the same storage at the same time, so the storage must allow concurrent updates of different streams.</p>
+ *
+ * @param <StorageToUpdate> the storage to update
+ */
+public class UpdateStreams<StorageToUpdate> {
+
+    public enum Status {SUCCEEDED, FAILED}
+
+    private final Map<String, Stream<?, StorageToUpdate>> streams = new LinkedHashMap<>();
+    private       ExecutorService                         executor;
+
+    /**
+     * Adds a stream, named by {@link StreamUpdateWorker#getStreamName()}.
+     *
+     * @param updateHelper the helper of the stream, its worker must be a {@link StreamUpdateWorker}
+     *
+     * @return these streams
+     */
+    public <UpdateImpl extends Update<StorageToUpdate>> UpdateStreams<StorageToUpdate> addStream(UpdateHelper<UpdateImpl, StorageToUpdate> updateHelper) {
+        if (!(updateHelper.getUpdatable() instanceof StreamUpdateWorker)) {
+            throw new IllegalArgumentException("An update stream requires a StreamUpdateWorker!");
+        }
+        final String name = ((StreamUpdateWorker<?, ?>) updateHelper.getUpdatable()).getStreamName();
+        if (streams.containsKey(name)) {
+            throw new IllegalArgumentException("Stream " + name + " was already added!");
+        }
+        streams.put(name, new Stream<>(name, updateHelper));
+        return this;
+    }
+
+    /**
+     * Adds a barrier between two streams: the update <code>version</code> of <code>stream</code> is only executed when <code>requiredStream</code> has reached
+     * <code>requiredVersion</code>. A version is reached when its update was executed, with a {@link BatchPolicy} once its batch is committed.
+     *
+     * @return these streams
+     */
+    public UpdateStreams<StorageToUpdate> addBarrier(String stream, int version, String requiredStream, int requiredVersion) {
+        final Stream<?, StorageToUpdate> waitingStream = getStream(stream);
+        final Stream<?, StorageToUpdate> required = getStream(requiredStream);
+        if (waitingStream == required) {
+            throw new IllegalArgumentException("A stream can't wait for itself! Stream: " + stream);
+        }
+        waitingStream.barriers.add(new Barrier(version, requiredStream, requiredVersion));
+        return this;
+    }
+
+    private Stream<?, StorageToUpdate> getStream(String name) {
+        final Stream<?, StorageToUpdate> stream = streams.get(name);
+        if (stream == null) {
+            throw new IllegalArgumentException("Unknown stream: " + name);
+        }
+        return stream;
+    }
+
+    /**
+     * @param executor the executor for the streams, or null to create one per {@link #upgrade(Object)} call. Streams wait for each other on their threads, so the executor
+     *                 must be able to run every stream at the same time.
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Upgrades every stream to its latest version, see {@link UpdateHelper#onUpgrade(Object, int, int)}. Blocks until every stream is finished.
+     *
+     * @param storageToUpdate the storage to update
+     *
+     * @return the result of every stream, in the order they were added
+     *
+     * @throws UpdateFailedException when a barrier can never open
+     */
+    public Result upgrade(StorageToUpdate storageToUpdate) throws UpdateFailedException {
+        final Object monitor = new Object();
+        final Map<String, StreamRun<?, StorageToUpdate>> runs = new LinkedHashMap<>();
+        for (Stream<?, StorageToUpdate> stream : streams.values()) {
+            runs.put(stream.name, stream.prepare(storageToUpdate, monitor));
+        }
+        for (StreamRun<?, StorageToUpdate> run : runs.values()) {
+            run.resolveBarriers(runs);
+        }
+        checkBarriers(runs.values());
+
+        final List<StreamRun<?, StorageToUpdate>> pendingRuns = new ArrayList<>();
+        for (StreamRun<?, StorageToUpdate> run : runs.values()) {
+            if (!run.isFinished()) {
+                pendingRuns.add(run);
+            }
+        }
+        if (!pendingRuns.isEmpty()) {
+            execute(storageToUpdate, pendingRuns);
+        }
+
+        final List<StreamResult> results = new ArrayList<>(runs.size());
+        for (StreamRun<?, StorageToUpdate> run : runs.values()) {
+            results.add(run.createResult());
+        }
+        return new Result(results);
+    }
+
+    private void execute(final StorageToUpdate storageToUpdate, List<StreamRun<?, StorageToUpdate>> pendingRuns) {
+        final ExecutorService usedExecutor = executor != null ? executor : FleetUpgrader.createDefaultExecutor(pendingRuns.size());
+        final CountDownLatch finished = new CountDownLatch(pendingRuns.size());
+        try {
+            for (final StreamRun<?, StorageToUpdate> run : pendingRuns) {
+                try {
+                    usedExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                run.execute(storageToUpdate);
+                            } finally {
+                                finished.countDown();
+                            }
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    run.finish(e);
+                    finished.countDown();
+                }
+            }
+            FleetUpgrader.awaitUninterruptibly(finished);
+        } finally {
+            if (usedExecutor != executor) {
+                usedExecutor.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Simulates the streams in the order of their versions, to find the barriers which can never open before anything is executed. A stream which failed its validation
+     * is treated as finished, the streams waiting for it fail when they reach the barrier.
+     *
+     * @throws UpdateFailedException when a barrier can never open
+     */
+    private static <StorageToUpdate> void checkBarriers(Collection<StreamRun<?, StorageToUpdate>> runs) {
+        boolean advanced = true;
+        while (advanced) {
+            advanced = false;
+            for (StreamRun<?, StorageToUpdate> run : runs) {
+                while (run.simulatedPosition < run.endPosition && run.isOpenInSimulation(run.getVersion(run.simulatedPosition))) {
+                    run.simulatedVersion = run.getVersion(run.simulatedPosition);
+                    run.simulatedPosition++;
+                    advanced = true;
+                }
+            }
+        }
+        for (StreamRun<?, StorageToUpdate> run : runs) {
+            if (run.simulatedPosition < run.endPosition) {
+                throw new UpdateFailedException("Barrier of stream " + run.name + " before version " + run.getVersion(run.simulatedPosition) + " can never open!");
+            }
+        }
+    }
+
+    private static final class Barrier {
+
+        private final int    version;
+        private final String requiredStream;
+        private final int    requiredVersion;
+
+        private Barrier(int version, String requiredStream, int requiredVersion) {
+            this.version = version;
+            this.requiredStream = requiredStream;
+            this.requiredVersion = requiredVersion;
+        }
+    }
+
+    private static final class Stream<UpdateImpl extends Update<StorageToUpdate>, StorageToUpdate> {
+
+        private final String                                    name;
+        private final UpdateHelper<UpdateImpl, StorageToUpdate> updateHelper;
+        private final List<Barrier>                             barriers = new ArrayList<>();
+
+        private Stream(String name, UpdateHelper<UpdateImpl, StorageToUpdate> updateHelper) {
+            this.name = name;
+            this.updateHelper = updateHelper;
+        }
+
+        /**
+         * Reads the versions and validates the updates of the stream, a failed validation finishes the run.
+         */
+        @SuppressWarnings("unchecked")
+        private StreamRun<UpdateImpl, StorageToUpdate> prepare(StorageToUpdate storageToUpdate, Object monitor) {
+            final StreamRun<UpdateImpl, StorageToUpdate> run = new StreamRun<>(this, monitor);
+            try {
+                final StreamUpdateWorker<UpdateImpl, StorageToUpdate> worker = (StreamUpdateWorker<UpdateImpl, StorageToUpdate>) updateHelper.getUpdatable();
+                run.oldVersion = worker.getStreamVersion(storageToUpdate);
+                run.reachedVersion = run.oldVersion;
+                run.simulatedVersion = run.oldVersion;
+                run.newVersion = worker.getLatestUpdateVersion(storageToUpdate);
+                if (run.oldVersion == run.newVersion) {
+                    run.finish(null);
+                    return run;
+                }
+                run.plan = updateHelper.createPlan(run.newVersion);
+                run.simulatedPosition = run.plan.getIndex().firstPendingPosition(run.oldVersion);
+                run.endPosition = run.plan.size();
+            } catch (RuntimeException e) {
+                run.finish(e);
+            }
+            return run;
+        }
+    }
+
+    /**
+     * The state of a stream during one {@link #upgrade(Object)}. The reached version is published to the waiting streams under the shared monitor.
+     */
+    private static final class StreamRun<UpdateImpl extends Update<StorageToUpdate>, StorageToUpdate> implements UpgradeControl.StepGate, UpdateProgressListener {
+
+        private final String                                  name;
+        private final Stream<UpdateImpl, StorageToUpdate>     stream;
+        private final Object                                  monitor;
+        private final List<StreamRun<?, StorageToUpdate>>     requiredRuns = new ArrayList<>();
+        private       UpdatePlan<UpdateImpl>                  plan;
+        private       int                                     oldVersion;
+        private       int                                     newVersion;
+        private       int                                     reachedVersion;
+        private       boolean                                 finished;
+        private       Throwable                               failure;
+        private       long                                    durationNanos;
+        //simulation of checkBarriers
+        private       int                                     simulatedPosition;
+        private       int                                     simulatedVersion;
+        private       int                                     endPosition;
+
+        private StreamRun(Stream<UpdateImpl, StorageToUpdate> stream, Object monitor) {
+            this.name = stream.name;
+            this.stream = stream;
+            this.monitor = monitor;
+        }
+
+        /**
+         * Finds the run of the required stream for every barrier, in the order of {@link Stream#barriers}.
+         */
+        private void resolveBarriers(Map<String, StreamRun<?, StorageToUpdate>> runs) {
+            for (Barrier barrier : stream.barriers) {
+                requiredRuns.add(runs.get(barrier.requiredStream));
+            }
+        }
+
+        private int getVersion(int position) {
+            return plan.getIndex().getVersion(position);
+        }
+
+        private boolean isOpenInSimulation(int version) {
+            for (int i = 0; i < stream.barriers.size(); i++) {
+                final Barrier barrier = stream.barriers.get(i);
+                final StreamRun<?, StorageToUpdate> required = requiredRuns.get(i);
+                //a failed required stream fails the waiting stream at runtime
+                if (barrier.version == version && required.failure == null && required.simulatedVersion < barrier.requiredVersion) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void execute(StorageToUpdate storageToUpdate) {
+            final long start = System.nanoTime();
+            final UpgradeControl control = new UpgradeControl(this);
+            control.setStepGate(this);
+            Throwable failure = null;
+            try {
+                stream.updateHelper.upgrade(storageToUpdate, oldVersion, newVersion, plan, control);
+            } catch (Throwable t) {
+                failure = t;
+            } finally {
+                durationNanos = System.nanoTime() - start;
+                finish(failure);
+            }
+        }
+
+        @Override
+        public void onProgress(UpdateProgress progress) {
+            synchronized (monitor) {
+                reachedVersion = Math.max(reachedVersion, progress.getVersion());
+                monitor.notifyAll();
+            }
+        }
+
+        @Override
+        public void awaitStep(int version) throws InterruptedException {
+            for (int i = 0; i < stream.barriers.size(); i++) {
+                final Barrier barrier = stream.barriers.get(i);
+                if (barrier.version != version) {
+                    continue;
+                }
+                final StreamRun<?, StorageToUpdate> required = requiredRuns.get(i);
+                synchronized (monitor) {
+                    while (required.reachedVersion < barrier.requiredVersion) {
+                        if (required.finished) {
+                            throw new UpdateFailedException("Stream " + required.name + " failed before reaching version " + barrier.requiredVersion + ", which is required by stream "
+                                                            + name + " for version " + version, required.failure);
+                        }
+                        monitor.wait();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public boolean isOpen(int version) {
+            for (int i = 0; i < stream.barriers.size(); i++) {
+                final Barrier barrier = stream.barriers.get(i);
+                if (barrier.version != version) {
+                    continue;
+                }
+                final StreamRun<?, StorageToUpdate> required = requiredRuns.get(i);
+                synchronized (monitor) {
+                    if (required.reachedVersion < barrier.requiredVersion) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private void finish(Throwable failure) {
+            synchronized (monitor) {
+                this.failure = failure;
+                this.finished = true;
+                if (failure == null) {
+                    reachedVersion = newVersion;
+                }
+                monitor.notifyAll();
+            }
+        }
+
+        private boolean isFinished() {
+            synchronized (monitor) {
+                return finished;
+            }
+        }
+
+        private StreamResult createResult() {
+            synchronized (monitor) {
+                return new StreamResult(name, failure == null ? Status.SUCCEEDED : Status.FAILED, oldVersion, failure == null ? newVersion : reachedVersion, failure,
+                                        durationNanos);
+            }
+        }
+    }
+
+    /**
+     * The upgrade result of a single stream.
+     */
+    public static class StreamResult {
+
+        private final String    name;
+        private final Status    status;
+        private final int       oldVersion;
+        private final int       version;
+        private final Throwable failure;
+        private final long      durationNanos;
+
+        private StreamResult(String name, Status status, int oldVersion, int version, Throwable failure, long durationNanos) {
+            this.name = name;
+            this.status = status;
+            this.oldVersion = oldVersion;
+            this.version = version;
+            this.failure = failure;
+            this.durationNanos = durationNanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Status getStatus() {
+            return status;
+        }
+
+        public int getOldVersion() {
+            return oldVersion;
+        }
+
+        /**
+         * @return the version of the stream after the upgrade, the last reached version when the stream failed
+         */
+        public int getVersion() {
+            return version;
+        }
+
+        /**
+         * @return the exception of a {@link Status#FAILED} stream, null otherwise
+         */
+        public Throwable getFailure() {
+            return failure;
+        }
+
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+    }
+
+    /**
+     * The summary of all streams.
+     */
+    public static class Result {
+
+        private final List<StreamResult> results;
+        private final int                failed;
+
+        private Result(List<StreamResult> results) {
+            this.results = Collections.unmodifiableList(results);
+            int failed = 0;
+            for (StreamResult result : results) {
+                if (result.status == Status.FAILED) {
+                    failed++;
+                }
+            }
+            this.failed = failed;
+        }
+
+        /**
+         * @return the result of every stream, in the order they were added
+         */
+        public List<StreamResult> getResults() {
+            return results;
+        }
+
+        /**
+         * @return the result of the stream, or null for an unknown stream
+         */
+        public StreamResult getResult(String name) {
+            for (StreamResult result : results) {
+                if (result.name.equals(name)) {
+                    return result;
+                }
+            }
+            return null;
+        }
+
+        public int getFailedCount() {
+            return failed;
+        }
+
+        /**
+         * @return true if every stream was upgraded successfully
+         */
+        public boolean isSuccessful() {
+            return failed == 0;
+        }
+    }
+}
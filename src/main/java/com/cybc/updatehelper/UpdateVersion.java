@@ -0,0 +1,32 @@
+package com.cybc.updatehelper;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an {@link Update} implementation for the annotation processor of the <code>processor</code> module. At compile time the processor generates a registry class with a
+ * static <code>create()</code> method, which returns an {@link UpdateRegistry} of all annotated updates sorted by their version, and a <code>LATEST_VERSION</code> constant.
+ * Duplicate versions or updates which can't be created by the registry fail the build.
+ * <p>The annotated class must implement {@link Update}, must not be abstract and needs a no-argument constructor the registry can access. The version of the annotation must
+ * be equals {@link Update#getUpdateVersion()}, which is still checked when the update gets created.</p>
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface UpdateVersion {
+
+    /**
+     * The version of the update, equals {@link Update#getUpdateVersion()}.
+     */
+    int value();
+
+    /**
+     * The fully qualified name of the generated registry class. Updates with the same registry form one update chain. Defaults to <code>GeneratedUpdateRegistry</code> in
+     * the package of the update.
+     */
+    String registry() default "";
+
+}
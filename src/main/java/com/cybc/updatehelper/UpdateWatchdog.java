@@ -0,0 +1,118 @@
+package com.cybc.updatehelper;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches running updates from a single shared daemon thread. A timed out update gets interrupted and aborted via the given hook. The leases of {@link FileUpgradeLock}s
+ * are renewed by a second daemon thread, so a slow abort hook can't delay a heartbeat until the lease expires.
+ */
+final class UpdateWatchdog {
+
+    private static ScheduledThreadPoolExecutor watchScheduler;
+    private static ScheduledThreadPoolExecutor heartbeatScheduler;
+
+    private UpdateWatchdog() {}
+
+    /**
+     * Starts watching the current thread.
+     *
+     * @param timeoutNanos the time until the current thread gets interrupted
+     * @param abortHook    called on the watchdog thread after the interrupt, may be null
+     */
+    static Watch watch(long timeoutNanos, Runnable abortHook) {
+        final Watch watch = new Watch(Thread.currentThread(), abortHook);
+        watch.future = getWatchScheduler().schedule(watch, timeoutNanos, TimeUnit.NANOSECONDS);
+        return watch;
+    }
+
+    /**
+     * Runs a short task periodically on the heartbeat thread, which never runs abort hooks.
+     *
+     * @param periodNanos the delay before the first and between two runs
+     */
+    static ScheduledFuture<?> schedulePeriodically(Runnable task, long periodNanos) {
+        return getHeartbeatScheduler().scheduleWithFixedDelay(task, periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static synchronized ScheduledThreadPoolExecutor getWatchScheduler() {
+        if (watchScheduler == null) {
+            watchScheduler = createScheduler("UpdateHelper-Watchdog");
+        }
+        return watchScheduler;
+    }
+
+    private static synchronized ScheduledThreadPoolExecutor getHeartbeatScheduler() {
+        if (heartbeatScheduler == null) {
+            heartbeatScheduler = createScheduler("UpdateHelper-Heartbeat");
+        }
+        return heartbeatScheduler;
+    }
+
+    private static ScheduledThreadPoolExecutor createScheduler(final String threadName) {
+        final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                final Thread thread = new Thread(runnable, threadName);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    static final class Watch implements Runnable {
+
+        private final    Thread             thread;
+        private final    Runnable           abortHook;
+        private          ScheduledFuture<?> future;
+        private          boolean            finished;
+        private          boolean            timedOut;
+        private          RuntimeException   abortFailure;
+
+        private Watch(Thread thread, Runnable abortHook) {
+            this.thread = thread;
+            this.abortHook = abortHook;
+        }
+
+        @Override
+        public synchronized void run() {
+            if (finished) {
+                return;
+            }
+            timedOut = true;
+            thread.interrupt();
+            if (abortHook != null) {
+                try {
+                    abortHook.run();
+                } catch (RuntimeException e) {
+                    abortFailure = e;
+                }
+            }
+        }
+
+        /**
+         * Stops watching. Must be called by the watched thread, clears the interrupt of the watchdog.
+         *
+         * @return true if the watched thread timed out
+         */
+        synchronized boolean finish() {
+            future.cancel(false);
+            finished = true;
+            if (timedOut) {
+                Thread.interrupted();
+            }
+            return timedOut;
+        }
+
+        /**
+         * @return the exception of the abort hook or null
+         */
+        synchronized RuntimeException getAbortFailure() {
+            return abortFailure;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.cybc.updatehelper;
+
+import com.cybc.updatehelper.exceptions.UpdateCancelledException;
+import com.cybc.updatehelper.exceptions.UpgradeLockLostException;
+
+import java.util.concurrent.Callable;
+
+/**
+ * The state of a single upgrade: publishes the progress, carries the cancellation request to the executing thread and holds the deadline of the upgrade timeout, the
+ * lease of the upgrade lock and the history of the applied updates. Progress is only reported by one thread at a time, the cancellation can be requested from any thread.
+ */
+final class UpgradeControl {
+
+    private final UpdateProgressListener progressListener;
+    private final long                   start = System.nanoTime();
+    private volatile boolean             cancelled;
+    private volatile UpdateProgress      progress;
+    private int                          totalSteps;
+    private int                          completedSteps;
+    private int                          version;
+    private boolean                      hasDeadline;
+    private long                         deadline;
+    private boolean                      online;
+    private Callable<Integer>            remainder;
+    private StepGate                     stepGate;
+    private UpgradeLock.Lease            lease;
+    private AppliedUpdateHistory         history;
+
+    /**
+     * Holds an update back until it may be executed, e.g. for the barriers of {@link UpdateStreams}.
+     */
+    interface StepGate {
+
+        /**
+         * Blocks until the update of the version may be executed.
+         */
+        void awaitStep(int version) throws InterruptedException;
+
+        /**
+         * @return true if {@link #awaitStep(int)} wouldn't block for the version right now
+         */
+        boolean isOpen(int version);
+    }
+
+    UpgradeControl(UpdateProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * @param deadline the {@link System#nanoTime()} when the upgrade times out
+     */
+    void setDeadline(long deadline) {
+        this.deadline = deadline;
+        this.hasDeadline = true;
+    }
+
+    boolean hasDeadline() {
+        return hasDeadline;
+    }
+
+    long getDeadline() {
+        return deadline;
+    }
+
+    void setOnline(boolean online) {
+        this.online = online;
+    }
+
+    /**
+     * @return true if the non blocking updates are left for the background
+     */
+    boolean isOnline() {
+        return online;
+    }
+
+    /**
+     * @param remainder executes the non blocking updates of an online upgrade
+     */
+    void setRemainder(Callable<Integer> remainder) {
+        this.remainder = remainder;
+    }
+
+    Callable<Integer> getRemainder() {
+        return remainder;
+    }
+
+    /**
+     * @param lease the lease of the {@link UpgradeLock}, which must still be valid before every update
+     */
+    void setLease(UpgradeLock.Lease lease) {
+        this.lease = lease;
+    }
+
+    /**
+     * @return true if the lease of the upgrade lock was lost, the storage mustn't be touched anymore
+     */
+    boolean isLeaseLost() {
+        return lease != null && !lease.isValid();
+    }
+
+    /**
+     * @throws UpgradeLockLostException when the lease of the upgrade lock was lost
+     */
+    void throwIfLeaseLost() throws UpgradeLockLostException {
+        if (isLeaseLost()) {
+            throw createLeaseLostException();
+        }
+    }
+
+    UpgradeLockLostException createLeaseLostException() {
+        return new UpgradeLockLostException(version);
+    }
+
+    /**
+     * @param history the applied updates of a {@link HistoryUpdateWorker}, which are skipped
+     */
+    void setHistory(AppliedUpdateHistory history) {
+        this.history = history;
+    }
+
+    AppliedUpdateHistory getHistory() {
+        return history;
+    }
+
+    void setStepGate(StepGate stepGate) {
+        this.stepGate = stepGate;
+    }
+
+    /**
+     * @return true if the update of the version may be executed without waiting, a batch ends before an update which has to wait
+     */
+    boolean isStepOpen(int version) {
+        return stepGate == null || stepGate.isOpen(version);
+    }
+
+    /**
+     * Blocks until the {@link StepGate} lets the update of the version pass. Called before the update is journaled or a batch is opened, so nothing is held while waiting.
+     *
+     * @throws UpdateCancelledException when the thread was interrupted while waiting
+     */
+    void awaitStep(int version) throws UpdateCancelledException {
+        if (stepGate == null) {
+            return;
+        }
+        try {
+            stepGate.awaitStep(version);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw createCancelledException();
+        }
+    }
+
+    void begin(int startVersion, int totalSteps) {
+        this.version = startVersion;
+        this.totalSteps = totalSteps;
+        publish();
+    }
+
+    void stepDone(int version) {
+        this.version = version;
+        completedSteps++;
+        publish();
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @throws UpdateCancelledException when the upgrade was cancelled
+     */
+    void throwIfCancelled() throws UpdateCancelledException {
+        if (cancelled) {
+            throw createCancelledException();
+        }
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    UpdateCancelledException createCancelledException() {
+        return new UpdateCancelledException(version);
+    }
+
+    UpdateProgress getProgress() {
+        return progress;
+    }
+
+    private void publish() {
+        final UpdateProgress progress = new UpdateProgress(version, completedSteps, totalSteps, System.nanoTime() - start);
+        this.progress = progress;
+        if (progressListener != null) {
+            progressListener.onProgress(progress);
+        }
+    }
+}
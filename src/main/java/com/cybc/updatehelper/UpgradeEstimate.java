@@ -0,0 +1,116 @@
+package com.cybc.updatehelper;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of a dry run: the pending updates for an old version in execution order, each with its estimated duration.
+ *
+ * @see UpdateHelper#explain(Object, int, int, com.cybc.updatehelper.metrics.UpdateCostHistory)
+ */
+public final class UpgradeEstimate {
+
+    /**
+     * Where the estimate of a step comes from.
+     */
+    public enum Source {
+        /**
+         * {@link EstimatedUpdate#estimateNanos(Object)}, corrected by the calibration of the history.
+         */
+        CALIBRATED,
+        /**
+         * {@link EstimatedUpdate#estimateNanos(Object)}, the history has no calibration yet.
+         */
+        ESTIMATED,
+        /**
+         * The mean duration of earlier runs of the same version.
+         */
+        HISTORY,
+        /**
+         * No estimate is possible.
+         */
+        UNKNOWN
+    }
+
+    private final int        oldVersion;
+    private final List<Step> steps;
+    private final long       totalNanos;
+    private final boolean    complete;
+
+    UpgradeEstimate(int oldVersion, List<Step> steps) {
+        this.oldVersion = oldVersion;
+        this.steps = Collections.unmodifiableList(steps);
+        long totalNanos = 0;
+        boolean complete = true;
+        for (Step step : steps) {
+            if (step.source == Source.UNKNOWN) {
+                complete = false;
+            } else {
+                totalNanos += step.estimatedNanos;
+            }
+        }
+        this.totalNanos = totalNanos;
+        this.complete = complete;
+    }
+
+    public int getOldVersion() {
+        return oldVersion;
+    }
+
+    /**
+     * @return the pending updates in execution order
+     */
+    public List<Step> getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return the sum of every known step estimate in nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * @return true if every step has an estimate, otherwise {@link #getTotalNanos()} is a lower bound
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * The estimate of a single pending update.
+     */
+    public static final class Step {
+
+        private final int    version;
+        private final long   estimatedNanos;
+        private final Source source;
+
+        Step(int version, long estimatedNanos, Source source) {
+            this.version = version;
+            this.estimatedNanos = source == Source.UNKNOWN ? -1 : estimatedNanos;
+            this.source = source;
+        }
+
+        public int getVersion() {
+            return version;
+        }
+
+        /**
+         * @return the estimated duration in nanoseconds, or -1 for {@link Source#UNKNOWN}
+         */
+        public long getEstimatedNanos() {
+            return estimatedNanos;
+        }
+
+        public Source getSource() {
+            return source;
+        }
+
+        @Override
+        public String toString() {
+            return "Step{version=" + version + ", estimatedNanos=" + estimatedNanos + ", source=" + source + '}';
+        }
+    }
+}
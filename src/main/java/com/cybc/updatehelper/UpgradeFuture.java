@@ -0,0 +1,34 @@
+package com.cybc.updatehelper;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+/**
+ * The pending result of an asynchronous upgrade, see {@link UpdateHelper#onUpgradeAsync(Object, int, int, java.util.concurrent.Executor, UpdateProgressListener)}. The result
+ * is the new storage version.
+ * <p>Cancellation is cooperative: A cancelled upgrade finishes its running update, but doesn't start any further one and fails with an {@link
+ * com.cybc.updatehelper.exceptions.UpdateCancelledException}. {@link #get()} reports the cancellation immediately, so the storage must not be used before the executing thread
+ * has stopped. With <code>mayInterruptIfRunning</code> the running update gets interrupted as well.</p>
+ */
+public final class UpgradeFuture extends FutureTask<Integer> {
+
+    private final UpgradeControl control;
+
+    UpgradeFuture(Callable<Integer> upgrade, UpgradeControl control) {
+        super(upgrade);
+        this.control = control;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        control.cancel();
+        return super.cancel(mayInterruptIfRunning);
+    }
+
+    /**
+     * @return the latest progress, or null if the pending updates are not known yet
+     */
+    public UpdateProgress getProgress() {
+        return control.getProgress();
+    }
+}
@@ -0,0 +1,42 @@
+package com.cybc.updatehelper;
+
+import java.io.IOException;
+
+/**
+ * Lock around an upgrade, so only one process upgrades a shared storage while the others wait, see {@link UpdateHelper#setUpgradeLock(UpgradeLock, long,
+ * java.util.concurrent.TimeUnit)}. After the lock is acquired the version is read again via {@link LockingUpdateWorker#getStorageVersion(Object)}, so a process which waited
+ * skips the updates another process already executed.
+ *
+ * @param <StorageToUpdate> The storage to update
+ * @see FileUpgradeLock
+ */
+public interface UpgradeLock<StorageToUpdate> {
+
+    /**
+     * Tries to acquire the lock without blocking, the {@link UpdateHelper} retries with a growing backoff while another process holds the lock.
+     *
+     * @param storageToUpdate the storage which gets upgraded
+     *
+     * @return the lease of the acquired lock, or null when another process holds the lock
+     */
+    Lease tryAcquire(StorageToUpdate storageToUpdate) throws IOException;
+
+    /**
+     * An acquired lock.
+     */
+    interface Lease {
+
+        /**
+         * Checked before every update, an upgrade whose lease is lost fails before the next update with an {@link
+         * com.cybc.updatehelper.exceptions.UpgradeLockLostException} and isn't rolled back.
+         *
+         * @return false when the lock was lost, e.g. because the lease expired and another process took the lock over
+         */
+        boolean isValid();
+
+        /**
+         * Releases the lock, is called once after the upgrade.
+         */
+        void release() throws IOException;
+    }
+}
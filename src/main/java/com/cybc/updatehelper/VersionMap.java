@@ -0,0 +1,229 @@
+package com.cybc.updatehelper;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Map of versions to values, sorted ascending by the version. The versions are held in a primitive <code>int[]</code> with the values in a parallel array, so neither the
+ * versions get boxed nor every entry becomes its own object. Lookups are binary searches, ranges like "all updates in <code>(oldVersion, newVersion]</code>" are views on
+ * the arrays.
+ * <p>Putting ascending versions only appends, other versions are inserted by moving the following entries. The map isn't thread safe.</p>
+ *
+ * @param <V> the type of the values
+ */
+public final class VersionMap<V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private int[]    versions;
+    private Object[] values;
+    private int      size;
+
+    public VersionMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public VersionMap(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative! Capacity: " + initialCapacity);
+        }
+        versions = new int[initialCapacity];
+        values = new Object[initialCapacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Maps the version to the value.
+     *
+     * @return the previous value of the version, or null if the version wasn't contained
+     */
+    public V put(int version, V value) {
+        if (size == 0 || versions[size - 1] < version) {
+            insert(size, version, value);
+            return null;
+        }
+        final int position = indexOf(version);
+        if (position >= 0) {
+            final V previous = valueAt(position);
+            values[position] = value;
+            return previous;
+        }
+        insert(-(position + 1), version, value);
+        return null;
+    }
+
+    /**
+     * @return the value of the version, or null if the version isn't contained
+     */
+    public V get(int version) {
+        final int position = indexOf(version);
+        return position >= 0 ? valueAt(position) : null;
+    }
+
+    public boolean containsVersion(int version) {
+        return indexOf(version) >= 0;
+    }
+
+    /**
+     * Removes the version.
+     *
+     * @return the removed value, or null if the version wasn't contained
+     */
+    public V remove(int version) {
+        final int position = indexOf(version);
+        if (position < 0) {
+            return null;
+        }
+        final V removed = valueAt(position);
+        System.arraycopy(versions, position + 1, versions, position, size - position - 1);
+        System.arraycopy(values, position + 1, values, position, size - position - 1);
+        size--;
+        values[size] = null;
+        return removed;
+    }
+
+    public void clear() {
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * @return the position of the version, or <code>-(insertion position) - 1</code> if the version isn't contained like {@link Arrays#binarySearch(int[], int)}
+     */
+    public int indexOf(int version) {
+        return Arrays.binarySearch(versions, 0, size, version);
+    }
+
+    /**
+     * @return the position of the first version greater than the given version, or {@link #size()} if there is none
+     */
+    public int firstPositionAfter(int version) {
+        final int position = indexOf(version);
+        return position >= 0 ? position + 1 : -(position + 1);
+    }
+
+    public int versionAt(int position) {
+        checkPosition(position);
+        return versions[position];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V valueAt(int position) {
+        checkPosition(position);
+        return (V) values[position];
+    }
+
+    /**
+     * @return the lowest version
+     *
+     * @throws IllegalStateException When the map is empty
+     */
+    public int firstVersion() {
+        if (size == 0) {
+            throw new IllegalStateException("VersionMap is empty!");
+        }
+        return versions[0];
+    }
+
+    /**
+     * @return the highest version
+     *
+     * @throws IllegalStateException When the map is empty
+     */
+    public int lastVersion() {
+        if (size == 0) {
+            throw new IllegalStateException("VersionMap is empty!");
+        }
+        return versions[size - 1];
+    }
+
+    /**
+     * @return a copy of the versions, ascending
+     */
+    public int[] toVersionArray() {
+        return Arrays.copyOf(versions, size);
+    }
+
+    /**
+     * @return an unmodifiable view of every value, ordered by the versions
+     */
+    public List<V> values() {
+        return new RangeView(0, size);
+    }
+
+    /**
+     * Returns the values with a version greater than <code>fromExclusive</code> and at most <code>toInclusive</code>, which are the updates to apply for an upgrade from
+     * <code>fromExclusive</code> to <code>toInclusive</code>.
+     *
+     * @return an unmodifiable view of the values in range, ordered by the versions. The view must not be used after the map was modified.
+     */
+    public List<V> range(int fromExclusive, int toInclusive) {
+        final int first = firstPositionAfter(fromExclusive);
+        final int end = Math.max(first, firstPositionAfter(toInclusive));
+        return new RangeView(first, end);
+    }
+
+    private void insert(int position, int version, V value) {
+        if (size == versions.length) {
+            final int capacity = Math.max(DEFAULT_CAPACITY, size + (size >> 1));
+            versions = Arrays.copyOf(versions, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        System.arraycopy(versions, position, versions, position + 1, size - position);
+        System.arraycopy(values, position, values, position + 1, size - position);
+        versions[position] = version;
+        values[position] = value;
+        size++;
+    }
+
+    private void checkPosition(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position: " + position + ", size: " + size);
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("{");
+        for (int position = 0; position < size; position++) {
+            if (position > 0) {
+                builder.append(", ");
+            }
+            builder.append(versions[position]).append('=').append(values[position]);
+        }
+        return builder.append('}').toString();
+    }
+
+    private final class RangeView extends AbstractList<V> implements RandomAccess {
+
+        private final int first;
+        private final int end;
+
+        private RangeView(int first, int end) {
+            this.first = first;
+            this.end = end;
+        }
+
+        @Override
+        public V get(int index) {
+            if (index < 0 || index >= end - first) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", size: " + (end - first));
+            }
+            return valueAt(first + index);
+        }
+
+        @Override
+        public int size() {
+            return end - first;
+        }
+    }
+}
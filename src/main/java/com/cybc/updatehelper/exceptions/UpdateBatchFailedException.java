@@ -0,0 +1,21 @@
+package com.cybc.updatehelper.exceptions;
+
+import com.cybc.updatehelper.Update;
+
+/**
+ * Thrown when an update of a batch or the commit of the batch failed. The batch was rolled back. When an update of the batch timed out, the cause is the {@link
+ * UpdateTimeoutException}.
+ */
+public class UpdateBatchFailedException extends UpdateStepFailedException {
+
+    /**
+     * The version of the last successfully committed batch, or the old storage version if no batch was committed.
+     */
+    public final int lastCommittedVersion;
+
+    public UpdateBatchFailedException(Update update, Throwable throwable, int lastCommittedVersion) {
+        super("Batch with update version '" + update.getUpdateVersion() + "' failed and was rolled back! Last committed version: " + lastCommittedVersion, update, throwable);
+        this.lastCommittedVersion = lastCommittedVersion;
+    }
+
+}
@@ -0,0 +1,18 @@
+package com.cybc.updatehelper.exceptions;
+
+/**
+ * Thrown when an asynchronous upgrade was cancelled. The running update was finished, no further update was started.
+ */
+public class UpdateCancelledException extends UpdateFailedException {
+
+    /**
+     * The version of the last finished update, or the version the upgrade started from if no update was finished.
+     */
+    public final int lastCompletedVersion;
+
+    public UpdateCancelledException(int lastCompletedVersion) {
+        super("Upgrade was cancelled! Last completed version: " + lastCompletedVersion);
+        this.lastCompletedVersion = lastCompletedVersion;
+    }
+
+}
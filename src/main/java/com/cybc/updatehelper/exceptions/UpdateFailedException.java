@@ -9,4 +9,8 @@ public class UpdateFailedException extends RuntimeException {
         super(detailMessage);
     }
 
+    public UpdateFailedException(String detailMessage, Throwable throwable) {
+        super(detailMessage, throwable);
+    }
+
 }
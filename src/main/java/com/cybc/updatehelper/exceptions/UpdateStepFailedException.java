@@ -13,7 +13,11 @@ public class UpdateStepFailedException extends RuntimeException {
     public final Update failedUpdate;
 
     public UpdateStepFailedException(Update update, Throwable throwable) {
-        super("Update with version '" + update.getUpdateVersion() + "' failed!", throwable);
+        this("Update with version '" + update.getUpdateVersion() + "' failed!", update, throwable);
+    }
+
+    protected UpdateStepFailedException(String detailMessage, Update update, Throwable throwable) {
+        super(detailMessage, throwable);
         this.failedUpdate = update;
     }
 
@@ -0,0 +1,35 @@
+package com.cybc.updatehelper.exceptions;
+
+import com.cybc.updatehelper.Update;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thrown when an update ran longer than the step timeout or the remaining time of the upgrade timeout. The update was interrupted and aborted.
+ */
+public class UpdateTimeoutException extends UpdateStepFailedException {
+
+    /**
+     * The version of the timed out update.
+     */
+    public final int version;
+
+    /**
+     * The nanoseconds the update ran until it was aborted.
+     */
+    public final long elapsedNanos;
+
+    /**
+     * True if the timeout of the whole upgrade was exceeded, false for the timeout of a single update.
+     */
+    public final boolean upgradeTimeout;
+
+    public UpdateTimeoutException(Update update, long elapsedNanos, boolean upgradeTimeout, Throwable throwable) {
+        super((upgradeTimeout ? "Upgrade timed out at update with version '" + update.getUpdateVersion() + "'"
+                : "Update with version '" + update.getUpdateVersion() + "' timed out") + " after " + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + " ms!", update, throwable);
+        this.version = update.getUpdateVersion();
+        this.elapsedNanos = elapsedNanos;
+        this.upgradeTimeout = upgradeTimeout;
+    }
+
+}
@@ -22,6 +22,15 @@ public class UpdateValidationException extends RuntimeException {
     public static UpdateValidationException forWrongFinalVersion(final int expectedFinalVersion, final int actualFinalVersion) {
         return new UpdateValidationException("The provided updates are not sufficient to push the storage to the expected version. Expected: " + expectedFinalVersion + ", actual: " + actualFinalVersion);
     }
+    public static UpdateValidationException forWrongDependency(final int version, final int dependencyVersion) {
+        return new UpdateValidationException("Update with version '" + version + "' declares an invalid dependency to version '" + dependencyVersion + "'");
+    }
+    public static UpdateValidationException forWrongBaselineVersion(final int baselineVersion, final int latestVersion) {
+        return new UpdateValidationException("Baseline version '" + baselineVersion + "' is newer than the latest update version '" + latestVersion + "'");
+    }
+    public static UpdateValidationException forWrongFactoryVersion(final int registeredVersion, final int createdVersion) {
+        return new UpdateValidationException("Update factory registered for version '" + registeredVersion + "' created an update with version '" + createdVersion + "'");
+    }
 
     private UpdateValidationException(String detailMessage) {
         super(detailMessage);
@@ -0,0 +1,19 @@
+package com.cybc.updatehelper.exceptions;
+
+/**
+ * Thrown when the lease of the {@link com.cybc.updatehelper.UpgradeLock} was lost during an upgrade, e.g. because it expired and another process took the storage over. No
+ * further update was started and the storage wasn't rolled back, because it belongs to the new owner.
+ */
+public class UpgradeLockLostException extends UpdateFailedException {
+
+    /**
+     * The version of the last finished update, or the version the upgrade started from if no update was finished.
+     */
+    public final int lastCompletedVersion;
+
+    public UpgradeLockLostException(int lastCompletedVersion) {
+        super("The upgrade lock was lost! Last completed version: " + lastCompletedVersion);
+        this.lastCompletedVersion = lastCompletedVersion;
+    }
+
+}
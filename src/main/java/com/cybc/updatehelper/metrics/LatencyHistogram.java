@@ -0,0 +1,97 @@
+package com.cybc.updatehelper.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free histogram of durations in nanoseconds with a bounded relative error, similar to an HDR histogram. Values below {@value #SUB_BUCKETS} are stored exactly, every
+ * further power of two range is split into {@value #SUB_BUCKETS}/2 linear sub buckets, so a recorded value is reported with a relative error below ~6%. Recording never
+ * allocates.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    static final         int SUB_BUCKETS     = 1 << SUB_BUCKET_BITS;
+    //values below SUB_BUCKETS are stored exactly, every further power of two gets SUB_BUCKETS / 2 buckets
+    private static final int BUCKET_COUNT    = SUB_BUCKETS + (64 - SUB_BUCKET_BITS) * (SUB_BUCKETS / 2);
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong      count  = new AtomicLong();
+    private final AtomicLong      sum    = new AtomicLong();
+    private final AtomicLong      max    = new AtomicLong();
+
+    /**
+     * @param nanos the duration, negative values are recorded as 0
+     */
+    public void record(long nanos) {
+        final long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long currentMax;
+        while (value > (currentMax = max.get()) && !max.compareAndSet(currentMax, value)) {
+            //retry
+        }
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int magnitude = 63 - Long.numberOfLeadingZeros(value); //>= SUB_BUCKET_BITS
+        final int shift = magnitude - SUB_BUCKET_BITS + 1;
+        final int subBucket = (int) (value >>> shift) - SUB_BUCKETS / 2; //0 until SUB_BUCKETS / 2
+        return SUB_BUCKETS + (magnitude - SUB_BUCKET_BITS) * (SUB_BUCKETS / 2) + subBucket;
+    }
+
+    /**
+     * @return the highest value which falls into the bucket
+     */
+    static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        final int magnitude = (bucket - SUB_BUCKETS) / (SUB_BUCKETS / 2) + SUB_BUCKET_BITS;
+        final int subBucket = (bucket - SUB_BUCKETS) % (SUB_BUCKETS / 2) + SUB_BUCKETS / 2;
+        final int shift = magnitude - SUB_BUCKET_BITS + 1;
+        return (((long) subBucket + 1) << shift) - 1;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getSum() {
+        return sum.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public long getMean() {
+        final long currentCount = count.get();
+        return currentCount == 0 ? 0 : sum.get() / currentCount;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     *
+     * @return the value at the percentile, never above {@link #getMax()}
+     */
+    public long getValueAtPercentile(double percentile) {
+        final long currentCount = count.get();
+        if (currentCount == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(percentile / 100d * currentCount));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) {
+                return Math.min(highestValueOf(bucket), max.get());
+            }
+        }
+        return max.get();
+    }
+}
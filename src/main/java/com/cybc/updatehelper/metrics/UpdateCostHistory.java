@@ -0,0 +1,168 @@
+package com.cybc.updatehelper.metrics;
+
+import com.cybc.updatehelper.Update;
+import com.cybc.updatehelper.UpdateListener;
+import com.cybc.updatehelper.UpdateStepTiming;
+import com.cybc.updatehelper.VersionMap;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * {@link UpdateListener} which keeps the durations of executed updates in a local file, to calibrate the estimates of {@link
+ * com.cybc.updatehelper.UpdateHelper#explain(Object, int, int, UpdateCostHistory)}.
+ * <p>Per version the count and the sum of the measured durations are kept. When a step is measured after it was estimated, the estimate and the measured duration are added
+ * to the calibration, which corrects systematically too optimistic or pessimistic estimates.</p>
+ * <p>The history must be set as listener via {@link com.cybc.updatehelper.UpdateHelper#setUpdateListener(UpdateListener)}, alone or within a {@link
+ * com.cybc.updatehelper.CompositeUpdateListener}, to record the updates and saved via {@link #save()} after the upgrade.</p>
+ */
+public class UpdateCostHistory implements UpdateListener<Update> {
+
+    private static final String HEADER      = "# UpdateCostHistory v1";
+    private static final String CALIBRATION = "calibration";
+    private static final String STEP        = "step";
+
+    private final Path               file;
+    private final VersionMap<long[]> steps              = new VersionMap<>(); //version -> {count, sum of nanos}
+    private final VersionMap<Long>   pendingEstimations = new VersionMap<>();
+    private       long               estimatedNanos;
+    private       long               measuredNanos;
+
+    private UpdateCostHistory(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Loads the history from the given file.
+     *
+     * @param file the file of the history, which doesn't need to exist yet
+     *
+     * @throws IOException when the file can't be read or is corrupted
+     */
+    public static UpdateCostHistory load(Path file) throws IOException {
+        final UpdateCostHistory history = new UpdateCostHistory(file);
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                history.parse(line, lineNumber);
+            }
+        } catch (NoSuchFileException e) {
+            //no runs recorded yet
+        }
+        return history;
+    }
+
+    private void parse(String line, int lineNumber) throws IOException {
+        final String[] values = line.split(" ");
+        try {
+            if (values.length == 3 && CALIBRATION.equals(values[0])) {
+                estimatedNanos = Long.parseLong(values[1]);
+                measuredNanos = Long.parseLong(values[2]);
+                return;
+            }
+            if (values.length == 4 && STEP.equals(values[0])) {
+                steps.put(Integer.parseInt(values[1]), new long[]{Long.parseLong(values[2]), Long.parseLong(values[3])});
+                return;
+            }
+        } catch (NumberFormatException e) {
+            throw new IOException("Corrupted update cost history " + file + " at line " + lineNumber + ": " + line, e);
+        }
+        throw new IOException("Corrupted update cost history " + file + " at line " + lineNumber + ": " + line);
+    }
+
+    /**
+     * Writes the history atomically to its file.
+     *
+     * @throws IOException when the file can't be written
+     */
+    public synchronized void save() throws IOException {
+        final Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temporaryFile, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            writer.write(CALIBRATION + " " + estimatedNanos + " " + measuredNanos);
+            writer.newLine();
+            for (int position = 0; position < steps.size(); position++) {
+                final long[] step = steps.valueAt(position);
+                writer.write(STEP + " " + steps.versionAt(position) + " " + step[0] + " " + step[1]);
+                writer.newLine();
+            }
+        }
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Remembers the uncalibrated estimate of a version, so it is added to the calibration when the version gets measured. An estimate doesn't change the calibration on its
+     * own, it is dropped when the upgrade ends without measuring its version.
+     */
+    public synchronized void recordEstimate(int version, long estimatedNanos) {
+        pendingEstimations.put(version, estimatedNanos);
+    }
+
+    /**
+     * Forgets the estimates which weren't measured yet.
+     */
+    public synchronized void clearEstimates() {
+        pendingEstimations.clear();
+    }
+
+    /**
+     * Records the measured duration of a version.
+     */
+    public synchronized void recordStep(int version, long measuredNanos) {
+        long[] step = steps.get(version);
+        if (step == null) {
+            step = new long[2];
+            steps.put(version, step);
+        }
+        step[0]++;
+        step[1] += measuredNanos;
+
+        final Long estimate = pendingEstimations.remove(version);
+        if (estimate != null) {
+            this.estimatedNanos += estimate;
+            this.measuredNanos += measuredNanos;
+        }
+    }
+
+    /**
+     * @return the mean measured duration of the version in nanoseconds, or -1 if the version was never measured
+     */
+    public synchronized long getMeanNanos(int version) {
+        final long[] step = steps.get(version);
+        return step == null ? -1 : step[1] / step[0];
+    }
+
+    /**
+     * @return the factor of measured to estimated durations, or {@link Double#NaN} if no estimated step was measured yet
+     */
+    public synchronized double getCalibrationFactor() {
+        return estimatedNanos <= 0 ? Double.NaN : (double) measuredNanos / estimatedNanos;
+    }
+
+    @Override
+    public void onValidationDone(long wallNanos) {}
+
+    @Override
+    public void onStepDone(Update update, UpdateStepTiming timing) {
+        if (timing.isSuccessful()) {
+            recordStep(timing.getVersion(), timing.getWallNanos());
+        }
+    }
+
+    @Override
+    public void onUpgradeDone(long wallNanos, Throwable failure) {
+        clearEstimates(); //an estimate only calibrates the upgrade it was made for
+    }
+}
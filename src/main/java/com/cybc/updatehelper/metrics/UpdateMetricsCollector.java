@@ -0,0 +1,185 @@
+package com.cybc.updatehelper.metrics;
+
+import com.cybc.updatehelper.Update;
+import com.cybc.updatehelper.UpdateListener;
+import com.cybc.updatehelper.UpdateStepTiming;
+import com.cybc.updatehelper.UpdateStepTiming.Phase;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * {@link UpdateListener} which collects the timings of every step and phase. After the upgrade a text report can be dumped via {@link #writeReport(Appendable)}.
+ * <p>Per phase the wall times are recorded into a {@link LatencyHistogram}. Of the steps only the most recent and the slowest {@link UpdateStepTiming}s are kept, so the
+ * memory stays bounded for upgrades with many steps.</p>
+ */
+public class UpdateMetricsCollector implements UpdateListener<Update> {
+
+    public static final int DEFAULT_RECENT_STEPS = 1024;
+
+    private static final int SLOWEST_STEPS_IN_REPORT = 10;
+
+    private static final Comparator<UpdateStepTiming> BY_WALL_TIME = new Comparator<UpdateStepTiming>() {
+        @Override
+        public int compare(UpdateStepTiming first, UpdateStepTiming second) {
+            return Long.compare(first.getWallNanos(), second.getWallNanos());
+        }
+    };
+
+    private final Map<Phase, LatencyHistogram>    phaseHistograms = new EnumMap<>(Phase.class);
+    private final int                             maxRecentSteps;
+    private final ArrayDeque<UpdateStepTiming>    recentSteps;
+    private final PriorityQueue<UpdateStepTiming> slowestSteps    = new PriorityQueue<>(SLOWEST_STEPS_IN_REPORT, BY_WALL_TIME);
+    private       long                            stepCount;
+    private       long                            validationNanos;
+    private       long                            totalNanos;
+    private       Throwable                       upgradeFailure;
+
+    public UpdateMetricsCollector() {
+        this(DEFAULT_RECENT_STEPS);
+    }
+
+    /**
+     * @param maxRecentSteps the count of the most recent steps kept for {@link #getSteps()}, older steps are only counted in the histograms
+     */
+    public UpdateMetricsCollector(int maxRecentSteps) {
+        if (maxRecentSteps < 0) {
+            throw new IllegalArgumentException("maxRecentSteps must not be negative, but was " + maxRecentSteps);
+        }
+        this.maxRecentSteps = maxRecentSteps;
+        this.recentSteps = new ArrayDeque<>(Math.min(maxRecentSteps, DEFAULT_RECENT_STEPS));
+        for (Phase phase : Phase.values()) {
+            phaseHistograms.put(phase, new LatencyHistogram());
+        }
+    }
+
+    @Override
+    public synchronized void onValidationDone(long wallNanos) {
+        validationNanos += wallNanos;
+    }
+
+    @Override
+    public void onStepDone(Update update, UpdateStepTiming timing) {
+        for (Phase phase : Phase.values()) {
+            if (phase.ordinal() <= lastReachedPhase(timing).ordinal()) {
+                phaseHistograms.get(phase).record(timing.getWallNanos(phase));
+            }
+        }
+        synchronized (this) {
+            stepCount++;
+            if (maxRecentSteps > 0) {
+                if (recentSteps.size() == maxRecentSteps) {
+                    recentSteps.removeFirst();
+                }
+                recentSteps.addLast(timing);
+            }
+            if (slowestSteps.size() < SLOWEST_STEPS_IN_REPORT) {
+                slowestSteps.add(timing);
+            } else if (BY_WALL_TIME.compare(timing, slowestSteps.peek()) > 0) {
+                slowestSteps.poll();
+                slowestSteps.add(timing);
+            }
+        }
+    }
+
+    private static Phase lastReachedPhase(UpdateStepTiming timing) {
+        return timing.isSuccessful() ? Phase.POST_UPDATE : timing.getFailedPhase();
+    }
+
+    @Override
+    public synchronized void onUpgradeDone(long wallNanos, Throwable failure) {
+        totalNanos += wallNanos;
+        upgradeFailure = failure;
+    }
+
+    public LatencyHistogram getHistogram(Phase phase) {
+        return phaseHistograms.get(phase);
+    }
+
+    /**
+     * @return a copy of the timings of the most recent steps, at most as many as passed to {@link #UpdateMetricsCollector(int)}, in the order they were finished
+     */
+    public synchronized List<UpdateStepTiming> getSteps() {
+        return new ArrayList<>(recentSteps);
+    }
+
+    /**
+     * @return the count of every recorded step, also of the steps no longer returned by {@link #getSteps()}
+     */
+    public synchronized long getStepCount() {
+        return stepCount;
+    }
+
+    /**
+     * @return the timings of the slowest recorded steps, the slowest first
+     */
+    public synchronized List<UpdateStepTiming> getSlowestSteps() {
+        final List<UpdateStepTiming> steps = new ArrayList<>(slowestSteps);
+        Collections.sort(steps, Collections.reverseOrder(BY_WALL_TIME));
+        return steps;
+    }
+
+    public synchronized long getValidationNanos() {
+        return validationNanos;
+    }
+
+    public synchronized long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * Writes a text report with the total and validation time, the percentiles per phase and the slowest steps.
+     */
+    public void writeReport(Appendable out) throws IOException {
+        final List<UpdateStepTiming> steps = getSlowestSteps();
+        final Throwable failure;
+        final long count;
+        final long total;
+        final long validation;
+        synchronized (this) {
+            count = stepCount;
+            failure = upgradeFailure;
+            total = totalNanos;
+            validation = validationNanos;
+        }
+        out.append(String.format(Locale.US, "Upgrade: %s, total %.3f ms, validation %.3f ms, %d steps%n", failure == null ? "successful" : "failed (" + failure + ")",
+                millis(total), millis(validation), count));
+        out.append(String.format(Locale.US, "%-12s %8s %10s %10s %10s %10s %10s%n", "phase", "count", "mean ms", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+        for (Phase phase : Phase.values()) {
+            final LatencyHistogram histogram = phaseHistograms.get(phase);
+            out.append(String.format(Locale.US, "%-12s %8d %10.3f %10.3f %10.3f %10.3f %10.3f%n", phase, histogram.getCount(), millis(histogram.getMean()),
+                    millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)), millis(histogram.getValueAtPercentile(99)), millis(histogram.getMax())));
+        }
+        out.append(String.format(Locale.US, "Slowest steps:%n"));
+        for (UpdateStepTiming step : steps) {
+            out.append(String.format(Locale.US, "  version %-8d wall %10.3f ms, cpu %s, execute %10.3f ms, %s%n", step.getVersion(), millis(step.getWallNanos()),
+                    step.getCpuNanos() < 0 ? "n/a" : String.format(Locale.US, "%.3f ms", millis(step.getCpuNanos())), millis(step.getWallNanos(Phase.EXECUTE)),
+                    step.isSuccessful() ? "ok" : "FAILED (" + step.getFailure() + ")"));
+        }
+    }
+
+    /**
+     * @return the report of {@link #writeReport(Appendable)} as String
+     */
+    public String createReport() {
+        final StringBuilder report = new StringBuilder();
+        try {
+            writeReport(report);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); //not thrown by a StringBuilder
+        }
+        return report.toString();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1000000d;
+    }
+}
@@ -0,0 +1,18 @@
+package com.cybc.updatehelper.testing;
+
+import com.cybc.updatehelper.Update;
+
+/**
+ * An {@link Update} which provides its own fingerprint for the {@link SnapshotCache}, e.g. the hash of the SQL script it executes. Without it the fingerprint is built from
+ * the byte code of the update class, which doesn't cover data loaded from elsewhere.
+ *
+ * @param <StorageToUpdate> The implementation of the storage which gets this update.
+ */
+public interface FingerprintedUpdate<StorageToUpdate> extends Update<StorageToUpdate> {
+
+    /**
+     * @return a value which changes whenever the behaviour of the update changes
+     */
+    String getFingerprint();
+
+}
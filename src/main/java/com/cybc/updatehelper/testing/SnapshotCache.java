@@ -0,0 +1,169 @@
+package com.cybc.updatehelper.testing;
+
+import com.cybc.updatehelper.Update;
+import com.cybc.updatehelper.VersionMap;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * An on-disk cache of storage snapshots for the {@link UpdateTestRunner}, so a test run starts from the newest cached version instead of the first one.
+ * <p>Every snapshot is keyed by its version and the fingerprint of the update chain up to this version. The fingerprint of an update is its {@link
+ * FingerprintedUpdate#getFingerprint()} or the byte code of its class, so a snapshot becomes invalid as soon as any earlier update changes. Per version only the snapshot of
+ * the newest fingerprint is kept.</p>
+ * <p>When the tests run on the storage itself, the mock data of every test stays in the storage and is part of its snapshot. The chain then also covers the byte code of
+ * every {@link UpdateTest}, and the snapshots of forked tests, which don't contain mock data, are never mixed up with them.</p>
+ * <p>The initial storage passed to {@link UpdateTestRunner#runTestUpdates(Object, int, int)} must always be the same, otherwise the cache must be cleared via {@link
+ * #clear()}.</p>
+ */
+public final class SnapshotCache {
+
+    private static final String SUFFIX           = ".snapshot";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final Path directory;
+
+    public SnapshotCache(Path directory) {
+        this.directory = directory;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Builds the chain fingerprints of the tested updates after the old version.
+     *
+     * @param withMockData true if the mock data of the tests stays in the storage, so the tests are part of the chain
+     *
+     * @return the fingerprints by version
+     */
+    static <Storage> VersionMap<String> createFingerprints(Collection<UpdateTest<Storage>> tests, int oldVersion, int newVersion, boolean withMockData) {
+        final MessageDigest digest = createDigest();
+        final VersionMap<String> fingerprints = new VersionMap<>(tests.size());
+        byte[] chain = digest.digest(("start:" + oldVersion + (withMockData ? ":mock" : "")).getBytes(StandardCharsets.UTF_8));
+        for (UpdateTest<Storage> test : tests) {
+            final Update<Storage> update = test.getUpdateToTest();
+            final int version = update.getUpdateVersion();
+            if (version <= oldVersion || version > newVersion) {
+                continue;
+            }
+            digest.update(chain);
+            digest.update(("version:" + version).getBytes(StandardCharsets.UTF_8));
+            digest.update(fingerprintOf(update));
+            if (withMockData) {
+                digest.update(fingerprintOfClass(test.getClass()));
+            }
+            chain = digest.digest();
+            fingerprints.put(version, toHex(chain));
+        }
+        return fingerprints;
+    }
+
+    private static byte[] fingerprintOf(Update<?> update) {
+        if (update instanceof FingerprintedUpdate) {
+            return ((FingerprintedUpdate<?>) update).getFingerprint().getBytes(StandardCharsets.UTF_8);
+        }
+        return fingerprintOfClass(update.getClass());
+    }
+
+    private static byte[] fingerprintOfClass(Class<?> updateClass) {
+        final String resource = "/" + updateClass.getName().replace('.', '/') + ".class";
+        try (InputStream in = updateClass.getResourceAsStream(resource)) {
+            if (in != null) {
+                final MessageDigest classDigest = createDigest();
+                final byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    classDigest.update(buffer, 0, read);
+                }
+                return classDigest.digest();
+            }
+        } catch (IOException e) {
+            //fall back to the class name
+        }
+        return updateClass.getName().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the snapshot file of the version with the given fingerprint, or null if it isn't cached
+     */
+    Path find(int version, String fingerprint) {
+        final Path file = getFile(version, fingerprint);
+        return Files.isRegularFile(file) ? file : null;
+    }
+
+    /**
+     * @return the temporary file to save a snapshot into, which is moved into the cache by {@link #commit(Path, int, String)}
+     */
+    Path prepare(int version, String fingerprint) throws IOException {
+        Files.createDirectories(directory);
+        final Path file = getFile(version, fingerprint);
+        final Path temporaryFile = file.resolveSibling(file.getFileName() + TEMPORARY_SUFFIX);
+        Files.deleteIfExists(temporaryFile);
+        return temporaryFile;
+    }
+
+    /**
+     * Moves a prepared snapshot into the cache and deletes the outdated snapshots of the same version.
+     */
+    void commit(Path temporaryFile, int version, String fingerprint) throws IOException {
+        final Path file = getFile(version, fingerprint);
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        try (DirectoryStream<Path> outdated = Files.newDirectoryStream(directory, "v" + version + "-*" + SUFFIX)) {
+            for (Path outdatedFile : outdated) {
+                if (!outdatedFile.equals(file)) {
+                    Files.deleteIfExists(outdatedFile);
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes every cached snapshot.
+     */
+    public void clear() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        final List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> snapshots = Files.newDirectoryStream(directory, "v*-*" + SUFFIX + "*")) {
+            for (Path file : snapshots) {
+                files.add(file);
+            }
+        }
+        for (Path file : files) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private Path getFile(int version, String fingerprint) {
+        return directory.resolve("v" + version + "-" + fingerprint + SUFFIX);
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported!", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        final StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -2,21 +2,36 @@ package com.cybc.updatehelper.testing;
 
 import com.cybc.updatehelper.Update;
 import com.cybc.updatehelper.UpdateHelper;
+import com.cybc.updatehelper.UpdatePlan;
 import com.cybc.updatehelper.UpdateWorker;
+import com.cybc.updatehelper.VersionMap;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 public class UpdateTestRunner<Storage> implements UpdateWorker<Update<Storage>, Storage> {
 
     private final UpdateHelper<Update<Storage>, Storage> helper;
     private final StorageProvider<Storage>               storageProvider;
-    private final Map<Integer, UpdateTest<Storage>>      updateMap;
+    private final VersionMap<UpdateTest<Storage>>        updateMap;
     private final Collection<UpdateTest<Storage>>        testUpdatesSorted;
+    private final List<Future<?>>                        runningTests = new ArrayList<>();
     private       int                                    newVersion;
+    private       Executor                               testExecutor;
+    private       SnapshotCache                          snapshotCache;
+    private       VersionMap<String>                     fingerprints;
+    private       UpgradePathTest<Storage>               pathTest;
+    private       int[]                                  pathStartVersions;
+    private       UpdateHelper<Update<Storage>, Storage> pathHelper;
+    private       UpdatePlan<Update<Storage>>            pathPlan;
 
     public interface StorageProvider<Storage> {
 
@@ -28,6 +43,49 @@ public class UpdateTestRunner<Storage> implements UpdateWorker<Update<Storage>,
 
     }
 
+    /**
+     * A {@link StorageProvider} which can fork a storage, e.g. by copying a SQLite file or cloning an in-memory store. Enables the parallel execution of the {@link
+     * UpdateTest}s, see {@link #setTestExecutor(Executor)}.
+     */
+    public interface SnapshotStorageProvider<Storage> extends StorageProvider<Storage> {
+
+        /**
+         * Creates an independent copy of the storage in its current state. The fork is closed via {@link #closeStorage(Object)} after its test.
+         *
+         * @param storage the storage to fork
+         *
+         * @return the fork
+         */
+        Storage fork(Storage storage) throws Exception;
+
+    }
+
+    /**
+     * A {@link StorageProvider} which can save a storage into a file and restore it from there. Enables the {@link SnapshotCache}, see {@link
+     * #setSnapshotCache(SnapshotCache)}.
+     */
+    public interface PersistentStorageProvider<Storage> extends StorageProvider<Storage> {
+
+        /**
+         * Saves the current state of the storage into the file.
+         *
+         * @param storage the storage to save
+         * @param file    the file to save into, doesn't exist yet
+         */
+        void saveSnapshot(Storage storage, Path file) throws Exception;
+
+        /**
+         * Restores a saved state. The passed storage is the initial storage of the test run, which is replaced by the restored one.
+         *
+         * @param file    the file of {@link #saveSnapshot(Object, Path)}
+         * @param storage the initial storage of the test run
+         *
+         * @return the storage to continue with, may be the passed instance
+         */
+        Storage restoreSnapshot(Path file, Storage storage) throws Exception;
+
+    }
+
     public UpdateTestRunner(StorageProvider<Storage> storageProvider, Collection<UpdateTest<Storage>> testUpdates) {
         this.storageProvider = storageProvider;
         this.updateMap = createUpdateMap(testUpdates);
@@ -35,13 +93,124 @@ public class UpdateTestRunner<Storage> implements UpdateWorker<Update<Storage>,
         this.helper = new UpdateHelper<>(this);
     }
 
+    /**
+     * Runs the {@link UpdateTest}s of a version on a fork of the storage on the given executor, while the updates of the next versions continue on the storage. Requires a
+     * {@link SnapshotStorageProvider}.
+     *
+     * @param testExecutor the executor for the tests, or null to run every test on the storage itself after its update (default)
+     */
+    public void setTestExecutor(Executor testExecutor) {
+        if (testExecutor != null && !(storageProvider instanceof SnapshotStorageProvider)) {
+            throw new IllegalStateException("Parallel tests require a SnapshotStorageProvider!");
+        }
+        this.testExecutor = testExecutor;
+    }
+
+    /**
+     * Starts every test run from the newest valid snapshot of the cache and saves a snapshot of every version whose tests passed. The tests of the versions until the restored
+     * snapshot are skipped. Requires a {@link PersistentStorageProvider}.
+     * <p>Without a test executor the snapshot of a version is saved after its tests, so it contains the mock data the next updates continue with.</p>
+     *
+     * @param snapshotCache the cache, or null to start every test run from the initial storage (default)
+     */
+    public void setSnapshotCache(SnapshotCache snapshotCache) {
+        if (snapshotCache != null && !(storageProvider instanceof PersistentStorageProvider)) {
+            throw new IllegalStateException("A snapshot cache requires a PersistentStorageProvider!");
+        }
+        this.snapshotCache = snapshotCache;
+    }
+
+    /**
+     * Tests the upgrade paths from many start versions to the latest version in the same run. The main chain of {@link #runTestUpdates(Object, int, int)} computes every
+     * intermediate state once; for every start version a fork of this state is prepared by the path test and upgraded to the latest version, on the test executor if one is
+     * set. Requires a {@link SnapshotStorageProvider}.
+     * <p>The paths share the update instances, so the updates must not hold any state. A {@link SnapshotCache} isn't used to skip versions while paths are tested.</p>
+     *
+     * @param pathTest      the test of every path, or null to test only the main chain (default)
+     * @param startVersions the versions to start the paths from, e.g. a sample. Without versions every version from the old version on is a start version.
+     */
+    public void setUpgradePathTest(UpgradePathTest<Storage> pathTest, int... startVersions) {
+        if (pathTest != null && !(storageProvider instanceof SnapshotStorageProvider)) {
+            throw new IllegalStateException("Upgrade path tests require a SnapshotStorageProvider!");
+        }
+        this.pathTest = pathTest;
+        this.pathStartVersions = startVersions.length > 0 ? startVersions.clone() : null;
+    }
+
     public void runTestUpdates(Storage storage, int oldVersion, int newVersion) {
         this.newVersion = newVersion;
-        helper.onUpgrade(storage, oldVersion, newVersion);
+        Throwable failure = null;
+        try {
+            int startVersion = oldVersion;
+            if (pathTest != null) {
+                pathHelper = new UpdateHelper<>(new PathWorker());
+                pathPlan = pathHelper.createPlan(newVersion);
+                forkPath(storage, oldVersion);
+            }
+            if (snapshotCache != null) {
+                fingerprints = SnapshotCache.createFingerprints(testUpdatesSorted, oldVersion, newVersion, testExecutor == null);
+            }
+            if (snapshotCache != null && pathTest == null) {
+                for (int i = fingerprints.size() - 1; i >= 0; i--) {
+                    final Path snapshot = snapshotCache.find(fingerprints.versionAt(i), fingerprints.valueAt(i));
+                    if (snapshot != null) {
+                        storage = ((PersistentStorageProvider<Storage>) storageProvider).restoreSnapshot(snapshot, storage);
+                        startVersion = fingerprints.versionAt(i);
+                        break;
+                    }
+                }
+            }
+            if (startVersion == newVersion) {
+                storageProvider.closeStorage(storage); //fully cached, nothing to test
+            } else {
+                helper.onUpgrade(storage, startVersion, newVersion);
+            }
+        } catch (RuntimeException | Error e) {
+            failure = e;
+        } catch (Exception e) {
+            failure = new IllegalStateException("Restoring the snapshot failed!", e);
+        }
+        failure = awaitRunningTests(failure);
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure != null) {
+            throw (Error) failure;
+        }
+    }
+
+    /**
+     * Waits for every forked test.
+     *
+     * @return the first failure, with the later ones as suppressed exceptions
+     */
+    private Throwable awaitRunningTests(Throwable failure) {
+        for (Future<?> test : runningTests) {
+            try {
+                test.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = addFailure(failure, e);
+                break;
+            } catch (ExecutionException e) {
+                failure = addFailure(failure, e.getCause());
+            }
+        }
+        runningTests.clear();
+        return failure;
     }
 
-    private Map<Integer, UpdateTest<Storage>> createUpdateMap(Collection<UpdateTest<Storage>> testUpdates) {
-        Map<Integer, UpdateTest<Storage>> updateMap = new HashMap<>();
+    private static Throwable addFailure(Throwable failure, Throwable next) {
+        final Throwable throwable = next instanceof RuntimeException || next instanceof Error ? next : new IllegalStateException(next);
+        if (failure == null) {
+            return throwable;
+        }
+        failure.addSuppressed(throwable);
+        return failure;
+    }
+
+    private VersionMap<UpdateTest<Storage>> createUpdateMap(Collection<UpdateTest<Storage>> testUpdates) {
+        VersionMap<UpdateTest<Storage>> updateMap = new VersionMap<>(testUpdates.size());
 
         for (UpdateTest<Storage> test : testUpdates) {
             updateMap.put(test.getUpdateToTest().getUpdateVersion(), test);
@@ -74,11 +243,118 @@ public class UpdateTestRunner<Storage> implements UpdateWorker<Update<Storage>,
     public void onPostUpdate(Storage storage, Update<Storage> update) {
         storageProvider.setVersionBy(update, storage);
 
+        if (pathTest != null && update.getUpdateVersion() < newVersion) {
+            forkPath(storage, update.getUpdateVersion());
+        }
+
         UpdateTest<Storage> testUpdate = updateMap.get(update.getUpdateVersion());
+        if (testExecutor != null) {
+            forkTest(storage, testUpdate, saveSnapshot(storage, update.getUpdateVersion()));
+            return;
+        }
         //inserting mock data
         testUpdate.insertMockData(storage);
         //make tests with inserted mock data
         testUpdate.testConsistency(storage);
+        //the next updates continue with the mock data, so the snapshot must contain it
+        commitSnapshot(saveSnapshot(storage, update.getUpdateVersion()), update.getUpdateVersion());
+    }
+
+    /**
+     * @return the saved but not yet committed snapshot, or null without a cache
+     */
+    private Path saveSnapshot(Storage storage, int version) {
+        if (snapshotCache == null) {
+            return null;
+        }
+        try {
+            final Path snapshot = snapshotCache.prepare(version, fingerprints.get(version));
+            ((PersistentStorageProvider<Storage>) storageProvider).saveSnapshot(storage, snapshot);
+            return snapshot;
+        } catch (Exception e) {
+            throw new IllegalStateException("Saving the snapshot failed! Version: " + version, e);
+        }
+    }
+
+    private void commitSnapshot(Path snapshot, int version) {
+        if (snapshot == null) {
+            return;
+        }
+        try {
+            snapshotCache.commit(snapshot, version, fingerprints.get(version));
+        } catch (IOException e) {
+            throw new IllegalStateException("Caching the snapshot failed! Version: " + version, e);
+        }
+    }
+
+    private boolean isPathStartVersion(int version) {
+        if (pathStartVersions == null) {
+            return true;
+        }
+        for (int startVersion : pathStartVersions) {
+            if (startVersion == version) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Forks the storage in the state of the start version and upgrades the fork to the latest version.
+     */
+    private void forkPath(Storage storage, final int startVersion) {
+        if (!isPathStartVersion(startVersion)) {
+            return;
+        }
+        final Storage fork;
+        try {
+            fork = ((SnapshotStorageProvider<Storage>) storageProvider).fork(storage);
+        } catch (Exception e) {
+            throw new IllegalStateException("Forking the storage failed! Version: " + startVersion, e);
+        }
+        final FutureTask<Void> path = new FutureTask<>(new Callable<Void>() {
+            @Override
+            public Void call() {
+                try {
+                    pathTest.prepare(startVersion, fork);
+                    pathHelper.onUpgrade(fork, startVersion, pathPlan);
+                    pathTest.verify(startVersion, fork);
+                } finally {
+                    storageProvider.closeStorage(fork);
+                }
+                return null;
+            }
+        });
+        runningTests.add(path);
+        if (testExecutor != null) {
+            testExecutor.execute(path);
+        } else {
+            path.run();
+        }
+    }
+
+    private void forkTest(Storage storage, final UpdateTest<Storage> testUpdate, final Path snapshot) {
+        final Storage fork;
+        try {
+            fork = ((SnapshotStorageProvider<Storage>) storageProvider).fork(storage);
+        } catch (Exception e) {
+            throw new IllegalStateException("Forking the storage failed! Version: " + testUpdate.getUpdateToTest().getUpdateVersion(), e);
+        }
+        final FutureTask<Void> test = new FutureTask<>(new Callable<Void>() {
+            @Override
+            public Void call() {
+                try {
+                    testUpdate.insertMockData(fork);
+                    testUpdate.testConsistency(fork);
+                    commitSnapshot(snapshot, testUpdate.getUpdateToTest().getUpdateVersion());
+                } finally {
+                    storageProvider.closeStorage(fork);
+                }
+                return null;
+            }
+        });
+        runningTests.add(test);
+        testExecutor.execute(test);
     }
 
     @Override
@@ -90,4 +366,40 @@ public class UpdateTestRunner<Storage> implements UpdateWorker<Update<Storage>,
     public boolean isStorageClosed(Storage storage) {
         return storageProvider.isStorageClosed(storage);
     }
+
+    /**
+     * Executes the updates of an upgrade path, without the {@link UpdateTest}s of the main chain.
+     */
+    private class PathWorker implements UpdateWorker<Update<Storage>, Storage> {
+
+        @Override
+        public int getLatestUpdateVersion(Storage storage) {
+            return newVersion;
+        }
+
+        @Override
+        public Collection<Update<Storage>> createUpdates() {
+            return UpdateTestRunner.this.createUpdates();
+        }
+
+        @Override
+        public void onPreUpdate(Storage storage, Update<Storage> update) {
+            //nothing to do
+        }
+
+        @Override
+        public void onPostUpdate(Storage storage, Update<Storage> update) {
+            storageProvider.setVersionBy(update, storage);
+        }
+
+        @Override
+        public void onUpgradingDone(Storage storage) {
+            //the fork is closed after its verification
+        }
+
+        @Override
+        public boolean isStorageClosed(Storage storage) {
+            return storageProvider.isStorageClosed(storage);
+        }
+    }
 }
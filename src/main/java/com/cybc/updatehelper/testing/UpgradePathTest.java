@@ -0,0 +1,24 @@
+package com.cybc.updatehelper.testing;
+
+/**
+ * Tests the upgrade of a storage from a start version to the latest version, see {@link UpdateTestRunner#setUpgradePathTest(UpgradePathTest, int...)}.
+ */
+public interface UpgradePathTest<StorageToUpdate> {
+
+    /**
+     * Prepares a storage which stayed on the start version, e.g. inserts data an app of this version would have written.
+     *
+     * @param startVersion    the version the upgrade starts from
+     * @param storageToUpdate a fork of the storage in the state of the start version
+     */
+    void prepare(int startVersion, StorageToUpdate storageToUpdate);
+
+    /**
+     * Tests the storage after the upgrade from the start version to the latest version.
+     *
+     * @param startVersion    the version the upgrade started from
+     * @param storageToUpdate the upgraded fork
+     */
+    void verify(int startVersion, StorageToUpdate storageToUpdate);
+
+}
@@ -0,0 +1,202 @@
+package com.cybc.updatehelper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.cybc.updatehelper.exceptions.UpdateBatchFailedException;
+import com.cybc.updatehelper.exceptions.UpdateStepFailedException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+@RunWith(JUnit4.class)
+public class AppliedUpdateHistoryTest {
+
+    private static final int UPDATE_SIZE = 10;
+
+    @Test
+    public void statusOfVersions() {
+        final List<AppliedUpdate> appliedUpdates = new ArrayList<>();
+        for (int version = 1; version <= 1000; version++) {
+            appliedUpdates.add(new AppliedUpdate(version * 3, version, 0, 0));
+        }
+        appliedUpdates.add(new AppliedUpdate(3, 42, 5, 6)); //applied again, the last record wins
+        final AppliedUpdateHistory history = AppliedUpdateHistory.of(appliedUpdates);
+
+        assertEquals(1000, history.size());
+        assertEquals(AppliedUpdateHistory.Status.APPLIED, history.getStatus(3, 42));
+        assertEquals(AppliedUpdateHistory.Status.CHANGED, history.getStatus(3, 1));
+        assertEquals(AppliedUpdateHistory.Status.APPLIED, history.getStatus(3000, 1000));
+        assertEquals(AppliedUpdateHistory.Status.PENDING, history.getStatus(4, 0));
+        assertFalse(history.contains(3001));
+        assertEquals(5, history.get(3).getDurationNanos());
+        assertNull(history.get(1));
+
+        assertEquals(0, AppliedUpdateHistory.of(null).size());
+        assertEquals(AppliedUpdateHistory.Status.PENDING, AppliedUpdateHistory.empty().getStatus(1, 1));
+    }
+
+    @Test
+    public void appliedUpdatesAreSkipped() {
+        final HistoryWorker worker = new HistoryWorker();
+        final IntegerStorage storage = new IntegerStorage();
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> updateHelper = new UpdateHelper<>(worker);
+        worker.setLatestVersion(5);
+        updateHelper.onUpgrade(storage, 0, 5);
+        assertEquals(5, storage.size());
+        assertEquals(5, worker.applied.size());
+        assertEquals(1, worker.applied.get(0).getChecksum());
+
+        //the version was lost, the history remains
+        worker.setLatestVersion(UPDATE_SIZE);
+        updateHelper.onUpgrade(storage, 0, UPDATE_SIZE);
+        assertEquals(UPDATE_SIZE, storage.size());
+        assertEquals(UPDATE_SIZE, worker.applied.size());
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), worker.skipped);
+        assertTrue(worker.drifts.isEmpty());
+    }
+
+    @Test
+    public void changedUpdatesAreReported() {
+        final HistoryWorker worker = new HistoryWorker();
+        final IntegerStorage storage = new IntegerStorage();
+        new UpdateHelper<>(worker).onUpgrade(storage, 0, UPDATE_SIZE);
+
+        worker.checksumOffset = 100;
+        worker.changedVersion = 3;
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> updateHelper = new UpdateHelper<>(worker);
+        final List<ChecksumDrift> drifts = updateHelper.findChecksumDrifts(storage, UPDATE_SIZE);
+        assertEquals(1, drifts.size());
+        assertEquals(3, drifts.get(0).getVersion());
+        assertEquals(3, drifts.get(0).getAppliedUpdate().getChecksum());
+        assertEquals(103, drifts.get(0).getCurrentChecksum());
+
+        worker.failOnDrift = true;
+        try {
+            updateHelper.onUpgrade(storage, 0, UPDATE_SIZE);
+            fail("The drift must fail the upgrade!");
+        } catch (UpdateStepFailedException e) {
+            assertEquals(3, e.failedUpdate.getUpdateVersion());
+        }
+        assertEquals(1, worker.drifts.size());
+        assertEquals(Arrays.asList(1, 2), worker.skipped);
+        assertEquals(UPDATE_SIZE, storage.size());
+    }
+
+    /**
+     * Tests that the updates of a rolled back batch are neither recorded nor reported as progress.
+     */
+    @Test
+    public void rolledBackBatchIsNotRecorded() throws Exception {
+        final HistoryWorker worker = new BatchHistoryWorker();
+        worker.setFailingVersion(5);
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> updateHelper = new UpdateHelper<>(worker);
+        updateHelper.setBatchPolicy(BatchPolicy.ofUpdates(3));
+        final List<Integer> progressVersions = new ArrayList<>();
+        final UpgradeFuture future = updateHelper.onUpgradeAsync(new IntegerStorage(), 0, UPDATE_SIZE, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        }, new UpdateProgressListener() {
+            @Override
+            public void onProgress(UpdateProgress progress) {
+                progressVersions.add(progress.getVersion());
+            }
+        });
+        try {
+            future.get();
+            fail("Update 5 must fail!");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof UpdateBatchFailedException);
+        }
+        assertEquals(3, worker.applied.size());
+        assertEquals(3, worker.applied.get(2).getVersion());
+        assertEquals(Arrays.asList(0, 1, 2, 3), progressVersions);
+    }
+
+    private static class BatchHistoryWorker extends HistoryWorker implements BatchUpdateWorker<Update<IntegerStorage>, IntegerStorage> {
+
+        @Override
+        public void onBatchBegin(IntegerStorage storage) {}
+
+        @Override
+        public void onBatchCommit(IntegerStorage storage, Update<IntegerStorage> lastUpdate) {}
+
+        @Override
+        public void onBatchRollback(IntegerStorage storage) {}
+
+        @Override
+        public long getUncommittedBytes(IntegerStorage storage) {
+            return 0;
+        }
+    }
+
+    private static class HistoryWorker extends IntegerUpdateWorker implements HistoryUpdateWorker<Update<IntegerStorage>, IntegerStorage> {
+
+        private final List<AppliedUpdate> applied        = new ArrayList<>();
+        private final List<Integer>       skipped        = new ArrayList<>();
+        private final List<ChecksumDrift> drifts         = new ArrayList<>();
+        private       int                 changedVersion = -1;
+        private       long                checksumOffset;
+        private       boolean             failOnDrift;
+
+        private HistoryWorker() {
+            super(UPDATE_SIZE);
+        }
+
+        @Override
+        public Collection<AppliedUpdate> loadAppliedUpdates(IntegerStorage storage) {
+            return new ArrayList<>(applied);
+        }
+
+        @Override
+        public void onUpdateApplied(IntegerStorage storage, AppliedUpdate appliedUpdate) {
+            applied.add(appliedUpdate);
+        }
+
+        @Override
+        public void onUpdateSkipped(IntegerStorage storage, Update<IntegerStorage> update, AppliedUpdate appliedUpdate) {
+            skipped.add(update.getUpdateVersion());
+        }
+
+        @Override
+        public void onChecksumDrift(IntegerStorage storage, ChecksumDrift drift) {
+            drifts.add(drift);
+            if (failOnDrift) {
+                throw new IllegalStateException("Update was changed: " + drift);
+            }
+        }
+
+        @Override
+        protected Update<IntegerStorage> createUpdate(final int version) {
+            return new ChecksummedUpdate<IntegerStorage>() {
+                @Override
+                public long getChecksum() {
+                    return version == changedVersion ? version + checksumOffset : version;
+                }
+
+                @Override
+                public void execute(IntegerStorage storage) throws Exception {
+                    executeUpdate(storage, version);
+                }
+
+                @Override
+                public int getUpdateVersion() {
+                    return version;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.cybc.updatehelper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import com.cybc.updatehelper.exceptions.UpdateBatchFailedException;
+import com.cybc.updatehelper.exceptions.UpdateFailedException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(JUnit4.class)
+public class BatchUpdateTest {
+
+    @Test
+    public void commitsPerBatch() {
+        final TestBatchWorker worker = new TestBatchWorker(10, -1);
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> helper = new UpdateHelper<>(worker);
+        helper.setBatchPolicy(BatchPolicy.ofUpdates(3));
+        final IntegerStorage storage = new IntegerStorage();
+
+        helper.onUpgrade(storage, 0, 10);
+
+        assertEquals(Arrays.asList(3, 6, 9, 10), worker.committedVersions);
+        assertEquals(10, storage.size());
+        assertEquals(0, worker.rollbacks);
+    }
+
+    @Test
+    public void timeBudget() {
+        final TestBatchWorker worker = new TestBatchWorker(4, -1);
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> helper = new UpdateHelper<>(worker);
+        helper.setBatchPolicy(BatchPolicy.unlimited().withMaxDuration(0, TimeUnit.NANOSECONDS));
+
+        helper.onUpgrade(new IntegerStorage(), 0, 4);
+
+        assertEquals(Arrays.asList(1, 2, 3, 4), worker.committedVersions);
+    }
+
+    @Test
+    public void byteBudget() {
+        final TestBatchWorker worker = new TestBatchWorker(10, -1);
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> helper = new UpdateHelper<>(worker);
+        helper.setBatchPolicy(BatchPolicy.unlimited().withMaxBytes(5));
+
+        helper.onUpgrade(new IntegerStorage(), 2, 10);
+
+        assertEquals(Arrays.asList(7, 10), worker.committedVersions);
+    }
+
+    @Test
+    public void rollbackOnFailure() {
+        final TestBatchWorker worker = new TestBatchWorker(10, 5);
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> helper = new UpdateHelper<>(worker);
+        helper.setBatchPolicy(BatchPolicy.ofUpdates(3));
+        final IntegerStorage storage = new IntegerStorage();
+        try {
+            helper.onUpgrade(storage, 0, 10);
+            fail("No UpdateBatchFailedException thrown!");
+        } catch (UpdateBatchFailedException e) {
+            assertEquals(5, e.failedUpdate.getUpdateVersion());
+            assertEquals(3, e.lastCommittedVersion);
+        }
+        assertEquals(Arrays.asList(3), worker.committedVersions);
+        assertEquals(1, worker.rollbacks);
+        assertEquals(3, storage.size());
+    }
+
+    @Test
+    public void rollbackOnError() {
+        final TestBatchWorker worker = new TestBatchWorker(10, -1);
+        worker.errorVersion = 5;
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> helper = new UpdateHelper<>(worker);
+        helper.setBatchPolicy(BatchPolicy.ofUpdates(3));
+        final IntegerStorage storage = new IntegerStorage();
+        try {
+            helper.onUpgrade(storage, 0, 10);
+            fail("No AssertionError thrown!");
+        } catch (AssertionError e) {
+            assertEquals("Update error: 5", e.getMessage());
+        }
+        assertEquals(Arrays.asList(3), worker.committedVersions);
+        assertEquals(1, worker.rollbacks);
+        assertEquals(3, storage.size());
+    }
+
+    @Test(expected = UpdateFailedException.class)
+    public void failureWithoutBatchWorker() {
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> helper = new UpdateHelper<>(new IntegerUpdateWorker(1));
+        helper.setBatchPolicy(BatchPolicy.ofUpdates(2));
+        helper.onUpgrade(new IntegerStorage(), 0, 1);
+    }
+
+    /**
+     * Adds the versions to a pending list, which is moved into the storage on commit.
+     */
+    private static class TestBatchWorker extends IntegerUpdateWorker implements BatchUpdateWorker<Update<IntegerStorage>, IntegerStorage> {
+
+        private final List<Integer> uncommitted       = new ArrayList<>();
+        private final List<Integer> committedVersions = new ArrayList<>();
+        private       int           rollbacks;
+        private       int           errorVersion      = -1;
+
+        private TestBatchWorker(int latestVersion, int failingVersion) {
+            super(latestVersion, failingVersion);
+        }
+
+        @Override
+        public void onBatchBegin(IntegerStorage integers) {
+            assertEquals(0, uncommitted.size());
+        }
+
+        @Override
+        public void onBatchCommit(IntegerStorage integers, Update<IntegerStorage> lastUpdate) {
+            integers.addAll(uncommitted);
+            uncommitted.clear();
+            committedVersions.add(lastUpdate.getUpdateVersion());
+        }
+
+        @Override
+        public void onBatchRollback(IntegerStorage integers) {
+            uncommitted.clear();
+            rollbacks++;
+        }
+
+        @Override
+        public long getUncommittedBytes(IntegerStorage integers) {
+            return uncommitted.size();
+        }
+
+        @Override
+        protected void executeUpdate(IntegerStorage integers, int version) throws Exception {
+            if (version == getFailingVersion()) {
+                throw new IllegalStateException("ExceptedCause, 'This is intended'");
+            }
+            if (version == errorVersion) {
+                throw new AssertionError("Update error: " + version);
+            }
+            uncommitted.add(version);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.cybc.updatehelper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.cybc.updatehelper.exceptions.UpdateStepFailedException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.concurrent.TimeUnit;
+
+@RunWith(JUnit4.class)
+public class ChunkedUpdateTest {
+
+    private static final int ITEMS = 100;
+
+    /**
+     * Tests that a failed chunk is rolled back and the next upgrade continues at the last committed checkpoint.
+     */
+    @Test
+    public void restartContinuesAtCheckpoint() {
+        final TestWorker worker = new TestWorker(55);
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> updateHelper = new UpdateHelper<>(worker);
+        updateHelper.setChunkPolicy(ChunkPolicy.ofSize(10));
+        final IntegerStorage storage = new IntegerStorage();
+        try {
+            updateHelper.onUpgrade(storage, 0, 1);
+            fail("Chunk didn't fail!");
+        } catch (UpdateStepFailedException expected) {
+            assertEquals(50, worker.committedCheckpoint);
+            assertEquals(50, storage.size());
+            assertEquals(1, worker.rollbacks);
+        }
+
+        updateHelper.onUpgrade(storage, 0, 1);
+        assertEquals(ChunkedUpdate.DONE, worker.committedCheckpoint);
+        assertEquals(ITEMS, storage.size());
+        for (int i = 0; i < ITEMS; i++) {
+            assertEquals(i, storage.get(i).intValue());
+        }
+        assertEquals(ITEMS / 10, worker.commits);
+    }
+
+    @Test
+    public void adaptiveChunkSize() {
+        final ChunkPolicy policy = ChunkPolicy.ofSize(100).withAdaptiveSize(10, 1000, 10, TimeUnit.MILLISECONDS);
+        assertEquals(50, policy.nextChunkSize(100, TimeUnit.MILLISECONDS.toNanos(20)));
+        assertEquals(200, policy.nextChunkSize(100, TimeUnit.MILLISECONDS.toNanos(1))); //grows at most by factor 2
+        assertEquals(125, policy.nextChunkSize(100, TimeUnit.MILLISECONDS.toNanos(8)));
+        assertEquals(10, policy.nextChunkSize(15, TimeUnit.SECONDS.toNanos(1)));
+        assertEquals(1000, policy.nextChunkSize(900, 1));
+        assertEquals(100, ChunkPolicy.ofSize(100).nextChunkSize(100, TimeUnit.SECONDS.toNanos(1)));
+    }
+
+    @Test
+    public void rateLimit() {
+        final ChunkPolicy policy = ChunkPolicy.ofSize(100).withRateLimit(1000);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), policy.pauseNanos(100, 0));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(60), policy.pauseNanos(100, TimeUnit.MILLISECONDS.toNanos(40)));
+        assertEquals(0, policy.pauseNanos(100, TimeUnit.MILLISECONDS.toNanos(200)));
+
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> updateHelper = new UpdateHelper<>(new TestWorker(-1));
+        updateHelper.setChunkPolicy(ChunkPolicy.ofSize(25).withRateLimit(500));
+        final long start = System.nanoTime();
+        updateHelper.onUpgrade(new IntegerStorage(), 0, 1);
+        //three pauses of 50ms, no pause after the last chunk
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(150));
+    }
+
+    private static class CopyUpdate extends ChunkedUpdate<IntegerStorage> {
+
+        private final TestWorker worker;
+
+        private CopyUpdate(TestWorker worker) {
+            this.worker = worker;
+        }
+
+        @Override
+        public long executeChunk(IntegerStorage integers, long checkpoint, int chunkSize) throws Exception {
+            final long end = Math.min(ITEMS, checkpoint + chunkSize);
+            for (long item = checkpoint; item < end; item++) {
+                if (item == worker.failingItem) {
+                    worker.failingItem = -1;
+                    throw new IllegalStateException("Failing item: " + item);
+                }
+                integers.add((int) item);
+            }
+            return end == ITEMS ? DONE : end;
+        }
+
+        @Override
+        public int getUpdateVersion() {
+            return 1;
+        }
+    }
+
+    private static class TestWorker extends IntegerUpdateWorker implements ChunkedUpdateWorker<Update<IntegerStorage>, IntegerStorage> {
+
+        private long failingItem;
+        private long committedCheckpoint = ChunkedUpdate.FIRST_CHECKPOINT;
+        private int  committedSize;
+        private int  commits;
+        private int  rollbacks;
+
+        private TestWorker(long failingItem) {
+            super(1);
+            this.failingItem = failingItem;
+        }
+
+        @Override
+        public long getCheckpoint(IntegerStorage integers, Update<IntegerStorage> update) {
+            return committedCheckpoint;
+        }
+
+        @Override
+        public void onChunkBegin(IntegerStorage integers, Update<IntegerStorage> update) {}
+
+        @Override
+        public void onChunkCommit(IntegerStorage integers, Update<IntegerStorage> update, long checkpoint) {
+            committedCheckpoint = checkpoint;
+            committedSize = integers.size();
+            commits++;
+        }
+
+        @Override
+        public void onChunkRollback(IntegerStorage integers, Update<IntegerStorage> update) {
+            while (integers.size() > committedSize) {
+                integers.remove(integers.size() - 1);
+            }
+            rollbacks++;
+        }
+
+        @Override
+        protected Update<IntegerStorage> createUpdate(int version) {
+            return new CopyUpdate(this);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.cybc.updatehelper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@RunWith(JUnit4.class)
+public class FleetUpgraderTest {
+
+    private static final int LATEST_VERSION = 10;
+
+    @Test
+    public void upgradesEveryStorage() {
+        final List<FleetUpgrader.Target<IntegerStorage>> targets = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            targets.add(new FleetUpgrader.Target<>(new IntegerStorage(), i % LATEST_VERSION));
+        }
+        final FleetUpgrader<Update<IntegerStorage>, IntegerStorage> upgrader = new FleetUpgrader<>(new UpdateHelper<>(new FleetWorker()));
+        upgrader.setMaxConcurrency(4);
+
+        final FleetUpgrader.Result<IntegerStorage> result = upgrader.upgrade(targets);
+
+        assertTrue(result.isSuccessful());
+        assertEquals(50, result.getSucceededCount());
+        for (FleetUpgrader.StorageResult<IntegerStorage> storageResult : result.getResults()) {
+            final IntegerStorage storage = storageResult.getTarget().getStorage();
+            assertEquals(LATEST_VERSION - storageResult.getTarget().getOldVersion(), storage.size());
+            assertEquals(LATEST_VERSION, storage.get(storage.size() - 1).intValue());
+            assertNull(storageResult.getFailure());
+        }
+    }
+
+    @Test
+    public void continueOnError() {
+        final List<FleetUpgrader.Target<IntegerStorage>> targets = createTargets(10, 3);
+        final FleetUpgrader<Update<IntegerStorage>, IntegerStorage> upgrader = new FleetUpgrader<>(new UpdateHelper<>(new FleetWorker()));
+
+        final FleetUpgrader.Result<IntegerStorage> result = upgrader.upgrade(targets);
+
+        assertFalse(result.isSuccessful());
+        assertEquals(9, result.getSucceededCount());
+        assertEquals(1, result.getFailedCount());
+        final FleetUpgrader.StorageResult<IntegerStorage> failed = result.getResults().get(3);
+        assertEquals(FleetUpgrader.Status.FAILED, failed.getStatus());
+        assertEquals(5, failed.getFailedUpdate().getUpdateVersion());
+    }
+
+    @Test
+    public void failFast() {
+        final List<FleetUpgrader.Target<IntegerStorage>> targets = createTargets(10, 3);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final FleetUpgrader<Update<IntegerStorage>, IntegerStorage> upgrader = new FleetUpgrader<>(new UpdateHelper<>(new FleetWorker()));
+            upgrader.setMaxConcurrency(1);
+            upgrader.setExecutor(executor);
+            upgrader.setFailurePolicy(FleetUpgrader.FailurePolicy.FAIL_FAST);
+
+            final FleetUpgrader.Result<IntegerStorage> result = upgrader.upgrade(targets);
+
+            assertEquals(3, result.getSucceededCount());
+            assertEquals(1, result.getFailedCount());
+            assertEquals(6, result.getSkippedCount());
+            assertEquals(FleetUpgrader.Status.SKIPPED, result.getResults().get(9).getStatus());
+            assertTrue(result.getResults().get(9).getTarget().getStorage().isEmpty());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * The storage at <code>failingPosition</code> fails with update 5.
+     */
+    private List<FleetUpgrader.Target<IntegerStorage>> createTargets(int count, int failingPosition) {
+        final List<FleetUpgrader.Target<IntegerStorage>> targets = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final IntegerStorage storage = new IntegerStorage();
+            if (i == failingPosition) {
+                storage.add(-1); //marker for a corrupt storage
+            }
+            targets.add(new FleetUpgrader.Target<>(storage, 0));
+        }
+        return targets;
+    }
+
+    private static class FleetWorker extends IntegerUpdateWorker {
+
+        private FleetWorker() {
+            super(LATEST_VERSION);
+        }
+
+        @Override
+        protected void executeUpdate(IntegerStorage integers, int version) throws Exception {
+            if (version == 5 && integers.contains(-1)) {
+                throw new IllegalStateException("ExceptedCause, 'This is intended'");
+            }
+            super.executeUpdate(integers, version);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.cybc.updatehelper;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The {@link UpdateWorker} of the tests, which creates the updates from version 1 to the latest version. Every update adds its version to the {@link IntegerStorage}, the
+ * update of the failing version throws an {@link IllegalStateException} instead.
+ * <p>The tests extend it to implement the optional worker interfaces, to create special updates via {@link #createUpdate(int)} or to execute them differently via {@link
+ * #executeUpdate(IntegerStorage, int)}.</p>
+ */
+public class IntegerUpdateWorker implements UpdateWorker<Update<IntegerStorage>, IntegerStorage> {
+
+    private volatile int latestVersion;
+    private volatile int failingVersion;
+
+    public IntegerUpdateWorker(int latestVersion) {
+        this(latestVersion, -1);
+    }
+
+    public IntegerUpdateWorker(int latestVersion, int failingVersion) {
+        this.latestVersion = latestVersion;
+        this.failingVersion = failingVersion;
+    }
+
+    public int getLatestVersion() {
+        return latestVersion;
+    }
+
+    public void setLatestVersion(int latestVersion) {
+        this.latestVersion = latestVersion;
+    }
+
+    public int getFailingVersion() {
+        return failingVersion;
+    }
+
+    /**
+     * @param failingVersion the version whose update fails, or -1 to let every update succeed
+     */
+    public void setFailingVersion(int failingVersion) {
+        this.failingVersion = failingVersion;
+    }
+
+    @Override
+    public int getLatestUpdateVersion(IntegerStorage storage) {
+        return latestVersion;
+    }
+
+    @Override
+    public Collection<Update<IntegerStorage>> createUpdates() {
+        final int latestVersion = this.latestVersion;
+        final List<Update<IntegerStorage>> updates = new ArrayList<>(latestVersion);
+        for (int version = 1; version <= latestVersion; version++) {
+            updates.add(createUpdate(version));
+        }
+        return updates;
+    }
+
+    /**
+     * @return the update of the version, which executes {@link #executeUpdate(IntegerStorage, int)}
+     */
+    protected Update<IntegerStorage> createUpdate(final int version) {
+        return new Update<IntegerStorage>() {
+            @Override
+            public void execute(IntegerStorage storage) throws Exception {
+                executeUpdate(storage, version);
+            }
+
+            @Override
+            public int getUpdateVersion() {
+                return version;
+            }
+        };
+    }
+
+    protected void executeUpdate(IntegerStorage storage, int version) throws Exception {
+        if (version == failingVersion) {
+            throw new IllegalStateException("Update failed: " + version);
+        }
+        storage.add(version);
+    }
+
+    @Override
+    public void onPreUpdate(IntegerStorage storage, Update<IntegerStorage> update) {}
+
+    @Override
+    public void onPostUpdate(IntegerStorage storage, Update<IntegerStorage> update) {}
+
+    @Override
+    public void onUpgradingDone(IntegerStorage storage) {}
+
+    @Override
+    public boolean isStorageClosed(IntegerStorage storage) {
+        return storage.isClosed();
+    }
+}
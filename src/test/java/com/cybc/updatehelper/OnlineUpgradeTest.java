@@ -0,0 +1,171 @@
+package com.cybc.updatehelper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.cybc.updatehelper.exceptions.UpdateStepFailedException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+@RunWith(JUnit4.class)
+public class OnlineUpgradeTest {
+
+    private static final int UPDATE_SIZE = 8;
+
+    /**
+     * Version 4 is non blocking but followed by the blocking version 5, so only 6 to 8 are executed in the background.
+     */
+    @Test
+    public void nonBlockingUpdatesRunInBackground() throws Exception {
+        final TestWorker worker = new TestWorker(-1);
+        final ManualExecutor executor = new ManualExecutor();
+        final IntegerStorage storage = new IntegerStorage();
+
+        final UpgradeFuture future = new UpdateHelper<>(worker).onUpgradeOnline(storage, 0, UPDATE_SIZE, executor, null);
+        assertEquals(5, storage.size());
+        assertEquals(5, worker.schemaVersion);
+        assertFalse(worker.fullyMigrated);
+        assertFalse(worker.upgradingDone);
+        assertFalse(future.isDone());
+
+        executor.runAll();
+        assertEquals(UPDATE_SIZE, future.get().intValue());
+        assertEquals(UPDATE_SIZE, storage.size());
+        for (int i = 0; i < UPDATE_SIZE; i++) {
+            assertEquals(i + 1, storage.get(i).intValue());
+        }
+        assertTrue(worker.upgradingDone);
+        assertTrue(worker.fullyMigrated);
+    }
+
+    @Test
+    public void backgroundFailure() throws Exception {
+        final TestWorker worker = new TestWorker(7);
+        final ManualExecutor executor = new ManualExecutor();
+        final UpgradeFuture future = new UpdateHelper<>(worker).onUpgradeOnline(new IntegerStorage(), 0, UPDATE_SIZE, executor, null);
+        executor.runAll();
+        try {
+            future.get();
+            fail("Background update didn't fail!");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof UpdateStepFailedException);
+        }
+        assertNotNull(worker.backgroundFailure);
+        assertFalse(worker.fullyMigrated);
+    }
+
+    /**
+     * Tests that the end of an online upgrade is reported after the background updates, also when they fail.
+     */
+    @Test
+    public void backgroundFailureIsReported() {
+        final UpdateEventStream eventStream = new UpdateEventStream();
+        final UpdateEventStream.Subscription subscription = eventStream.subscribe();
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> updateHelper = new UpdateHelper<>(new TestWorker(7));
+        updateHelper.setEventStream(eventStream);
+        final ManualExecutor executor = new ManualExecutor();
+        final UpgradeFuture future = updateHelper.onUpgradeOnline(new IntegerStorage(), 0, UPDATE_SIZE, executor, null);
+
+        final List<UpdateEvent> events = new ArrayList<>();
+        subscription.drainTo(events, Integer.MAX_VALUE);
+        for (UpdateEvent event : events) {
+            assertFalse(event.getType() == UpdateEvent.Type.UPGRADE_FINISHED || event.getType() == UpdateEvent.Type.UPGRADE_FAILED);
+        }
+
+        executor.runAll();
+        assertTrue(future.isDone());
+        events.clear();
+        subscription.drainTo(events, Integer.MAX_VALUE);
+        final UpdateEvent last = events.get(events.size() - 1);
+        assertEquals(UpdateEvent.Type.UPGRADE_FAILED, last.getType());
+        assertTrue(last.getFailure() instanceof UpdateStepFailedException);
+    }
+
+    @Test
+    public void upToDateStorage() throws Exception {
+        final TestWorker worker = new TestWorker(-1);
+        final ManualExecutor executor = new ManualExecutor();
+        final UpgradeFuture future = new UpdateHelper<>(worker).onUpgradeOnline(new IntegerStorage(), UPDATE_SIZE, UPDATE_SIZE, executor, null);
+        assertTrue(future.isDone());
+        assertEquals(UPDATE_SIZE, future.get().intValue());
+        assertEquals(UPDATE_SIZE, worker.schemaVersion);
+        assertTrue(worker.fullyMigrated);
+        assertTrue(executor.tasks.isEmpty());
+    }
+
+    private static class ManualExecutor implements Executor {
+
+        private final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        private void runAll() {
+            for (Runnable task : tasks) {
+                task.run();
+            }
+        }
+    }
+
+    private static class TestWorker extends IntegerUpdateWorker implements OnlineUpdateWorker<Update<IntegerStorage>, IntegerStorage> {
+
+        private int       schemaVersion = -1;
+        private boolean   upgradingDone;
+        private boolean   fullyMigrated;
+        private Throwable backgroundFailure;
+
+        private TestWorker(int failingVersion) {
+            super(UPDATE_SIZE, failingVersion);
+        }
+
+        @Override
+        protected Update<IntegerStorage> createUpdate(final int version) {
+            if (version != 4 && version <= 5) {
+                return super.createUpdate(version);
+            }
+            return new NonBlockingUpdate<IntegerStorage>() {
+                @Override
+                public void execute(IntegerStorage integers) throws Exception {
+                    executeUpdate(integers, version);
+                }
+
+                @Override
+                public int getUpdateVersion() {
+                    return version;
+                }
+            };
+        }
+
+        @Override
+        public void onSchemaReady(IntegerStorage integers, int version) {
+            schemaVersion = version;
+        }
+
+        @Override
+        public void onFullyMigrated(IntegerStorage integers) {
+            fullyMigrated = true;
+        }
+
+        @Override
+        public void onBackgroundUpgradeFailed(IntegerStorage integers, Throwable failure) {
+            backgroundFailure = failure;
+        }
+
+        @Override
+        public void onUpgradingDone(IntegerStorage integers) {
+            upgradingDone = true;
+        }
+    }
+}
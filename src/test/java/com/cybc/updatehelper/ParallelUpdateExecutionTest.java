@@ -0,0 +1,300 @@
+package com.cybc.updatehelper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.cybc.updatehelper.exceptions.UpdateFailedException;
+import com.cybc.updatehelper.exceptions.UpdateStepFailedException;
+import com.cybc.updatehelper.exceptions.UpdateValidationException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+@RunWith(JUnit4.class)
+public class ParallelUpdateExecutionTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Version 1 and 2 touch different resources and wait for each other, which only works when they run at the same time. Version 3 depends on both.
+     */
+    @Test
+    public void independentUpdatesRunInParallel() {
+        final CountDownLatch bothStarted = new CountDownLatch(2);
+        final IntegerStorage storage = new IntegerStorage();
+        final List<Update<IntegerStorage>> updates = new ArrayList<>();
+        updates.add(createUpdate(1, new int[0], "table_a", bothStarted));
+        updates.add(createUpdate(2, new int[0], "table_b", bothStarted));
+        updates.add(createUpdate(3, new int[]{1, 2}, "table_c", null));
+
+        final TestParallelWorker worker = new TestParallelWorker(3, updates);
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> helper = new UpdateHelper<>(worker);
+        helper.setParallelExecutor(executor);
+        helper.onUpgrade(storage, 0, 3);
+
+        assertEquals(3, storage.size());
+        assertEquals(3, storage.get(2).intValue());
+        assertEquals(Arrays.asList(1, 2, 3), worker.completedVersions);
+    }
+
+    /**
+     * Updates touching the same resource and plain updates keep their order.
+     */
+    @Test
+    public void conflictingUpdatesKeepOrder() {
+        final IntegerStorage storage = new IntegerStorage();
+        final List<Update<IntegerStorage>> updates = new ArrayList<>();
+        for (int version = 1; version <= 20; version++) {
+            if (version % 5 == 0) {
+                updates.add(createPlainUpdate(version));
+            } else {
+                updates.add(createUpdate(version, new int[0], "table", null));
+            }
+        }
+        final TestParallelWorker worker = new TestParallelWorker(20, updates);
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> helper = new UpdateHelper<>(worker);
+        helper.setParallelExecutor(executor);
+        helper.onUpgrade(storage, 2, 20);
+
+        assertEquals(18, storage.size());
+        for (int i = 0; i < storage.size(); i++) {
+            assertEquals(i + 3, storage.get(i).intValue());
+        }
+        assertEquals(18, worker.completedVersions.size());
+    }
+
+    @Test
+    public void failureCompletesOnlyPrefix() {
+        final IntegerStorage storage = new IntegerStorage();
+        final List<Update<IntegerStorage>> updates = new ArrayList<>();
+        updates.add(createUpdate(1, new int[0], "table_a", null));
+        updates.add(new TestDependentUpdate(2, new int[0], "table_b", null) {
+            @Override
+            public void execute(IntegerStorage integers) throws Exception {
+                throw new IllegalStateException("intended");
+            }
+        });
+        updates.add(createUpdate(3, new int[]{2}, "table_c", null));
+
+        final TestParallelWorker worker = new TestParallelWorker(3, updates);
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> helper = new UpdateHelper<>(worker);
+        helper.setParallelExecutor(executor);
+        try {
+            helper.onUpgrade(storage, 0, 3);
+            fail("No UpdateStepFailedException thrown!");
+        } catch (UpdateStepFailedException e) {
+            assertEquals(2, e.failedUpdate.getUpdateVersion());
+        }
+        assertEquals(Collections.singletonList(1), worker.completedVersions);
+        assertTrue(!storage.contains(3));
+    }
+
+    /**
+     * Tests that an update failing with an {@link UpdateFailedException} is wrapped like in the sequential execution.
+     */
+    @Test
+    public void updateFailureIsWrapped() {
+        final List<Update<IntegerStorage>> updates = new ArrayList<>();
+        updates.add(new TestDependentUpdate(1, new int[0], "table_a", null) {
+            @Override
+            public void execute(IntegerStorage integers) throws Exception {
+                throw new UpdateFailedException("intended");
+            }
+        });
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> helper = new UpdateHelper<>(new TestParallelWorker(1, updates));
+        helper.setParallelExecutor(executor);
+        try {
+            helper.onUpgrade(new IntegerStorage(), 0, 1);
+            fail("No UpdateStepFailedException thrown!");
+        } catch (UpdateStepFailedException e) {
+            assertTrue(e.getCause() instanceof UpdateFailedException);
+            assertEquals(1, e.failedUpdate.getUpdateVersion());
+        }
+    }
+
+    /**
+     * Tests that an interrupted upgrade interrupts and awaits the running update before it fails.
+     */
+    @Test
+    public void interruptAwaitsRunningUpdates() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicBoolean running = new AtomicBoolean();
+        final List<Update<IntegerStorage>> updates = new ArrayList<>();
+        updates.add(new TestDependentUpdate(1, new int[0], "table_a", null) {
+            @Override
+            public void execute(IntegerStorage integers) throws Exception {
+                running.set(true);
+                started.countDown();
+                try {
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+                } finally {
+                    running.set(false);
+                }
+            }
+        });
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> helper = new UpdateHelper<>(new TestParallelWorker(1, updates));
+        helper.setParallelExecutor(executor);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final AtomicBoolean runningAtFailure = new AtomicBoolean(true);
+        final Thread upgrade = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    helper.onUpgrade(new IntegerStorage(), 0, 1);
+                } catch (Throwable t) {
+                    runningAtFailure.set(running.get());
+                    failure.set(t);
+                }
+            }
+        });
+        upgrade.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        upgrade.interrupt();
+        upgrade.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertFalse(upgrade.isAlive());
+        assertTrue(failure.get() instanceof UpdateFailedException);
+        assertFalse(runningAtFailure.get());
+    }
+
+    @Test(expected = UpdateValidationException.class)
+    public void failureOnDependencyToLaterVersion() {
+        final List<Update<IntegerStorage>> updates = new ArrayList<>();
+        updates.add(createUpdate(1, new int[]{2}, "table_a", null));
+        updates.add(createUpdate(2, new int[0], "table_b", null));
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> helper = new UpdateHelper<>(new TestParallelWorker(2, updates));
+        helper.setParallelExecutor(executor);
+        helper.onUpgrade(new IntegerStorage(), 0, 2);
+    }
+
+    @Test
+    public void dependencyToAppliedVersion() {
+        final List<Update<IntegerStorage>> updates = new ArrayList<>();
+        updates.add(createUpdate(1, new int[0], "table_a", null));
+        updates.add(createUpdate(3, new int[]{1}, "table_b", null));
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> helper = new UpdateHelper<>(new TestParallelWorker(3, updates));
+        helper.setParallelExecutor(executor);
+        final IntegerStorage storage = new IntegerStorage();
+        helper.onUpgrade(storage, 2, 3);
+        assertEquals(Arrays.asList(3), storage);
+    }
+
+    @Test(expected = UpdateValidationException.class)
+    public void failureOnDependencyToUnknownVersion() {
+        final List<Update<IntegerStorage>> updates = new ArrayList<>();
+        updates.add(createUpdate(1, new int[0], "table_a", null));
+        updates.add(createUpdate(3, new int[]{2}, "table_b", null));
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> helper = new UpdateHelper<>(new TestParallelWorker(3, updates));
+        helper.setParallelExecutor(executor);
+        helper.onUpgrade(new IntegerStorage(), 2, 3);
+    }
+
+    private Update<IntegerStorage> createUpdate(int version, int[] dependencies, String resource, CountDownLatch startedLatch) {
+        return new TestDependentUpdate(version, dependencies, resource, startedLatch);
+    }
+
+    private Update<IntegerStorage> createPlainUpdate(final int version) {
+        return new Update<IntegerStorage>() {
+            @Override
+            public void execute(IntegerStorage integers) throws Exception {
+                synchronized (integers) {
+                    integers.add(version);
+                }
+            }
+
+            @Override
+            public int getUpdateVersion() {
+                return version;
+            }
+        };
+    }
+
+    private static class TestDependentUpdate implements DependentUpdate<IntegerStorage> {
+
+        private final int            version;
+        private final int[]          dependencies;
+        private final String         resource;
+        private final CountDownLatch startedLatch;
+
+        private TestDependentUpdate(int version, int[] dependencies, String resource, CountDownLatch startedLatch) {
+            this.version = version;
+            this.dependencies = dependencies;
+            this.resource = resource;
+            this.startedLatch = startedLatch;
+        }
+
+        @Override
+        public int[] getDependencies() {
+            return dependencies;
+        }
+
+        @Override
+        public Collection<String> getTouchedResources() {
+            return Collections.singleton(resource);
+        }
+
+        @Override
+        public void execute(IntegerStorage integers) throws Exception {
+            if (startedLatch != null) {
+                startedLatch.countDown();
+                assertTrue("Updates weren't executed in parallel", startedLatch.await(5, TimeUnit.SECONDS));
+            }
+            synchronized (integers) {
+                integers.add(version);
+            }
+        }
+
+        @Override
+        public int getUpdateVersion() {
+            return version;
+        }
+    }
+
+    private static class TestParallelWorker extends IntegerUpdateWorker implements ParallelUpdateWorker<Update<IntegerStorage>, IntegerStorage> {
+
+        private final Collection<Update<IntegerStorage>> updates;
+        private final List<Integer>                      completedVersions = new ArrayList<>();
+
+        private TestParallelWorker(int latestVersion, Collection<Update<IntegerStorage>> updates) {
+            super(latestVersion);
+            this.updates = updates;
+        }
+
+        @Override
+        public void onVersionCompleted(IntegerStorage integers, Update<IntegerStorage> update) {
+            completedVersions.add(update.getUpdateVersion());
+        }
+
+        @Override
+        public Collection<Update<IntegerStorage>> createUpdates() {
+            return updates;
+        }
+    }
+}
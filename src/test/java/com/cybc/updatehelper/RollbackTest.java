@@ -0,0 +1,187 @@
+package com.cybc.updatehelper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.cybc.updatehelper.exceptions.UpdateStepFailedException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(JUnit4.class)
+public class RollbackTest {
+
+    private static final int UPDATE_SIZE = 10;
+
+    @Test
+    public void snapshotIsRestoredOnFailure() {
+        final TestWorker worker = new TestWorker(true, true, 5);
+        final IntegerStorage storage = new IntegerStorage();
+        storage.add(0);
+        upgradeAndExpectFailure(worker, storage, 5);
+
+        assertEquals(1, storage.size());
+        assertEquals(0, worker.rolledBackVersion);
+        assertTrue(worker.discarded); //released after the restore
+    }
+
+    @Test
+    public void snapshotIsDiscardedOnSuccess() {
+        final TestWorker worker = new TestWorker(true, true, -1);
+        final IntegerStorage storage = new IntegerStorage();
+        new UpdateHelper<>(worker).onUpgrade(storage, 0, UPDATE_SIZE);
+
+        assertEquals(UPDATE_SIZE, storage.size());
+        assertTrue(worker.discarded);
+        assertEquals(-1, worker.rolledBackVersion);
+    }
+
+    @Test
+    public void downStepsRevertFinishedUpdates() {
+        final TestWorker worker = new TestWorker(false, true, 7);
+        final IntegerStorage storage = new IntegerStorage();
+        upgradeAndExpectFailure(worker, storage, 7);
+
+        assertEquals(0, storage.size());
+        assertEquals(0, worker.rolledBackVersion);
+    }
+
+    @Test
+    public void noRollbackWithoutDownSteps() {
+        final TestWorker worker = new TestWorker(false, false, 7);
+        final IntegerStorage storage = new IntegerStorage();
+        upgradeAndExpectFailure(worker, storage, 7);
+
+        assertEquals(6, storage.size());
+        assertEquals(-1, worker.rolledBackVersion);
+    }
+
+    /**
+     * Tests that an upgrade cancelled partway through is rolled back and its snapshot is released.
+     */
+    @Test
+    public void cancelledUpgradeIsRolledBack() throws Exception {
+        final TestWorker worker = new TestWorker(true, true, -1);
+        final IntegerStorage storage = new IntegerStorage();
+        storage.add(0);
+        assertEquals(1, cancelAt(worker, storage, 4).size());
+        assertEquals(0, worker.rolledBackVersion);
+        assertTrue(worker.discarded);
+    }
+
+    @Test
+    public void cancelledUpgradeIsRevertedByDownSteps() throws Exception {
+        final TestWorker worker = new TestWorker(false, true, -1);
+        assertEquals(0, cancelAt(worker, new IntegerStorage(), 4).size());
+        assertEquals(0, worker.rolledBackVersion);
+    }
+
+    /**
+     * Cancels the asynchronous upgrade after the update of the version.
+     */
+    private static IntegerStorage cancelAt(TestWorker worker, IntegerStorage storage, final int cancelVersion) throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final UpgradeFuture[] future = new UpgradeFuture[1];
+        synchronized (future) {
+            future[0] = new UpdateHelper<>(worker).onUpgradeAsync(storage, 0, UPDATE_SIZE, executor, new UpdateProgressListener() {
+                @Override
+                public void onProgress(UpdateProgress progress) {
+                    if (progress.getVersion() == cancelVersion) {
+                        synchronized (future) {
+                            future[0].cancel(false);
+                        }
+                    }
+                }
+            });
+        }
+        try {
+            future[0].get();
+            fail("Upgrade was not cancelled!");
+        } catch (CancellationException expected) {
+            assertTrue(future[0].isCancelled());
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        return storage;
+    }
+
+    private static void upgradeAndExpectFailure(TestWorker worker, IntegerStorage storage, int failingVersion) {
+        try {
+            new UpdateHelper<>(worker).onUpgrade(storage, 0, UPDATE_SIZE);
+            fail("Upgrade didn't fail!");
+        } catch (UpdateStepFailedException e) {
+            assertEquals(failingVersion, e.failedUpdate.getUpdateVersion());
+        }
+    }
+
+    private static class TestWorker extends IntegerUpdateWorker implements RollbackUpdateWorker<Update<IntegerStorage>, IntegerStorage> {
+
+        private final boolean snapshots;
+        private final boolean reversible;
+        private       int     rolledBackVersion = -1;
+        private       boolean discarded;
+
+        private TestWorker(boolean snapshots, boolean reversible, int failingVersion) {
+            super(UPDATE_SIZE, failingVersion);
+            this.snapshots = snapshots;
+            this.reversible = reversible;
+        }
+
+        @Override
+        public StorageSnapshot takeSnapshot(final IntegerStorage integers, int version) {
+            if (!snapshots) {
+                return null;
+            }
+            final List<Integer> copy = new ArrayList<>(integers);
+            return new StorageSnapshot() {
+                @Override
+                public void restore() {
+                    integers.clear();
+                    integers.addAll(copy);
+                }
+
+                @Override
+                public void discard() {
+                    discarded = true;
+                }
+            };
+        }
+
+        @Override
+        public void onRolledBack(IntegerStorage integers, int version) {
+            rolledBackVersion = version;
+        }
+
+        @Override
+        protected Update<IntegerStorage> createUpdate(final int version) {
+            if (!reversible) {
+                return super.createUpdate(version);
+            }
+            return new ReversibleUpdate<IntegerStorage>() {
+                @Override
+                public void down(IntegerStorage integers) {
+                    assertEquals(version, integers.remove(integers.size() - 1).intValue());
+                }
+
+                @Override
+                public void execute(IntegerStorage integers) throws Exception {
+                    executeUpdate(integers, version);
+                }
+
+                @Override
+                public int getUpdateVersion() {
+                    return version;
+                }
+            };
+        }
+    }
+}
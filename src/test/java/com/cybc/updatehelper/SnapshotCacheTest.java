@@ -0,0 +1,182 @@
+package com.cybc.updatehelper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.cybc.updatehelper.testing.FingerprintedUpdate;
+import com.cybc.updatehelper.testing.SnapshotCache;
+import com.cybc.updatehelper.testing.UpdateTest;
+import com.cybc.updatehelper.testing.UpdateTestRunner;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RunWith(JUnit4.class)
+public class SnapshotCacheTest {
+
+    private final Map<Integer, String> fingerprints = new HashMap<>();
+    private       SnapshotCache        cache;
+    private       List<Integer>        executedVersions;
+    private       List<Integer>        testedVersions;
+    private       boolean              keepMockData;
+
+    @Before
+    public void setUp() throws Exception {
+        final Path directory = File.createTempFile("snapshots", "").toPath();
+        Files.delete(directory);
+        cache = new SnapshotCache(directory);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        cache.clear();
+        Files.deleteIfExists(cache.getDirectory());
+    }
+
+    /**
+     * Tests that a run starts at the newest cached version and that a changed update invalidates its own and every later snapshot.
+     */
+    @Test
+    public void runStartsFromNewestValidSnapshot() {
+        IntegerStorage storage = run(10);
+        assertEquals(10, executedVersions.size());
+        assertEquals(10, testedVersions.size());
+        assertEquals(10, storage.size());
+
+        storage = run(12); //two new updates
+        assertEquals(2, executedVersions.size());
+        assertEquals(11, executedVersions.get(0).intValue());
+        assertEquals(2, testedVersions.size());
+        assertEquals(12, storage.size());
+
+        fingerprints.put(5, "changed");
+        storage = run(12);
+        assertEquals(8, executedVersions.size());
+        assertEquals(5, executedVersions.get(0).intValue());
+        assertEquals(12, storage.size());
+        for (int i = 0; i < storage.size(); i++) {
+            assertEquals(i + 1, storage.get(i).intValue());
+        }
+
+        storage = run(12); //fully cached
+        assertEquals(0, executedVersions.size());
+        assertTrue(storage.isClosed());
+    }
+
+    /**
+     * Tests that a run restored from the cache continues with the mock data of the earlier tests, like an uncached run.
+     */
+    @Test
+    public void snapshotContainsMockData() {
+        keepMockData = true;
+        final IntegerStorage uncached = run(6);
+        assertEquals(12, uncached.size());
+
+        final IntegerStorage partlyCached = run(8);
+        assertEquals(2, executedVersions.size());
+
+        final List<Integer> expected = new ArrayList<>(uncached);
+        for (int version = 7; version <= 8; version++) {
+            expected.add(version);
+            expected.add(-version);
+        }
+        assertEquals(expected, partlyCached);
+    }
+
+    private IntegerStorage run(int newVersion) {
+        executedVersions = new ArrayList<>();
+        testedVersions = new ArrayList<>();
+        final List<UpdateTest<IntegerStorage>> updateTests = new ArrayList<>();
+        for (int i = 1; i <= newVersion; i++) {
+            updateTests.add(createTestUpdate(i));
+        }
+        final IntegerStorage[] lastStorage = new IntegerStorage[1];
+        final UpdateTestRunner<IntegerStorage> testRunner = new UpdateTestRunner<>(new UpdateTestRunner.PersistentStorageProvider<IntegerStorage>() {
+            @Override
+            public void saveSnapshot(IntegerStorage integers, Path file) throws Exception {
+                final List<String> lines = new ArrayList<>();
+                for (Integer integer : integers) {
+                    lines.add(integer.toString());
+                }
+                Files.write(file, lines, StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public IntegerStorage restoreSnapshot(Path file, IntegerStorage integers) throws Exception {
+                final IntegerStorage restored = new IntegerStorage();
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    restored.add(Integer.parseInt(line));
+                }
+                return restored;
+            }
+
+            @Override
+            public void setVersionBy(Update<IntegerStorage> lastUpdate, IntegerStorage integers) {}
+
+            @Override
+            public boolean isStorageClosed(IntegerStorage integers) {
+                return integers.isClosed();
+            }
+
+            @Override
+            public void closeStorage(IntegerStorage integers) {
+                integers.setClosed(true);
+                lastStorage[0] = integers;
+            }
+        }, updateTests);
+        testRunner.setSnapshotCache(cache);
+        testRunner.runTestUpdates(new IntegerStorage(), 0, newVersion);
+        return lastStorage[0];
+    }
+
+    private UpdateTest<IntegerStorage> createTestUpdate(final int version) {
+        return new UpdateTest<IntegerStorage>() {
+            @Override
+            public void insertMockData(IntegerStorage integers) {
+                integers.add(-version);
+            }
+
+            @Override
+            public void testConsistency(IntegerStorage integers) {
+                assertEquals(version, integers.get(integers.size() - 2).intValue());
+                if (!keepMockData) {
+                    integers.remove(integers.size() - 1);
+                }
+                testedVersions.add(version);
+            }
+
+            @Override
+            public Update<IntegerStorage> getUpdateToTest() {
+                return new FingerprintedUpdate<IntegerStorage>() {
+                    @Override
+                    public String getFingerprint() {
+                        return fingerprints.containsKey(version) ? fingerprints.get(version) : "original";
+                    }
+
+                    @Override
+                    public void execute(IntegerStorage integers) throws Exception {
+                        executedVersions.add(version);
+                        integers.add(version);
+                    }
+
+                    @Override
+                    public int getUpdateVersion() {
+                        return version;
+                    }
+                };
+            }
+        };
+    }
+}
@@ -0,0 +1,106 @@
+package com.cybc.updatehelper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import com.cybc.updatehelper.exceptions.UpdateValidationException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@RunWith(JUnit4.class)
+public class UpdateBaselineTest {
+
+    private static final int BASELINE_MARKER = -100;
+
+    @Test
+    public void freshStorageStartsWithBaseline() {
+        final BaselineWorker worker = new BaselineWorker(60, 50);
+        final IntegerStorage storage = new IntegerStorage();
+
+        new UpdateHelper<>(worker).onUpgrade(storage, 0, 60);
+
+        assertEquals(11, storage.size());
+        assertEquals(BASELINE_MARKER, storage.get(0).intValue());
+        for (int i = 1; i < storage.size(); i++) {
+            assertEquals(50 + i, storage.get(i).intValue());
+        }
+        assertEquals(50, worker.appliedBaselineVersion);
+    }
+
+    @Test
+    public void newerStorageIgnoresBaseline() {
+        final BaselineWorker worker = new BaselineWorker(60, 50);
+        final IntegerStorage storage = new IntegerStorage();
+
+        new UpdateHelper<>(worker).onUpgrade(storage, 55, 60);
+
+        assertEquals(5, storage.size());
+        assertFalse(storage.contains(BASELINE_MARKER));
+        assertEquals(-1, worker.appliedBaselineVersion);
+    }
+
+    @Test(expected = UpdateValidationException.class)
+    public void failureOnBaselineAfterLatestVersion() {
+        new UpdateHelper<>(new BaselineWorker(60, 61)).onUpgrade(new IntegerStorage(), 0, 60);
+    }
+
+    @Test
+    public void copyFile() throws IOException {
+        final Path source = File.createTempFile("baseline", ".db").toPath();
+        final Path target = File.createTempFile("storage", ".db").toPath();
+        try {
+            final byte[] content = new byte[100000];
+            for (int i = 0; i < content.length; i++) {
+                content[i] = (byte) i;
+            }
+            Files.write(source, content);
+            Files.write(target, new byte[]{1, 2, 3});
+
+            FileBaseline.copy(source, target);
+
+            assertArrayEquals(content, Files.readAllBytes(target));
+        } finally {
+            Files.deleteIfExists(source);
+            Files.deleteIfExists(target);
+        }
+    }
+
+    private static class BaselineWorker extends IntegerUpdateWorker implements BaselineUpdateWorker<Update<IntegerStorage>, IntegerStorage> {
+
+        private final int baselineVersion;
+        private       int appliedBaselineVersion = -1;
+
+        private BaselineWorker(int latestVersion, int baselineVersion) {
+            super(latestVersion);
+            this.baselineVersion = baselineVersion;
+        }
+
+        @Override
+        public UpdateBaseline<IntegerStorage> getBaseline(IntegerStorage integers, int oldVersion) {
+            return new UpdateBaseline<IntegerStorage>() {
+                @Override
+                public int getBaselineVersion() {
+                    return baselineVersion;
+                }
+
+                @Override
+                public void apply(IntegerStorage integers) throws Exception {
+                    integers.add(BASELINE_MARKER);
+                }
+            };
+        }
+
+        @Override
+        public void onBaselineApplied(IntegerStorage integers, UpdateBaseline<IntegerStorage> baseline) {
+            appliedBaselineVersion = baseline.getBaselineVersion();
+        }
+    }
+}
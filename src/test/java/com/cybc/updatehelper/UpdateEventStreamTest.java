@@ -0,0 +1,124 @@
+package com.cybc.updatehelper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.cybc.updatehelper.exceptions.UpdateStepFailedException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@RunWith(JUnit4.class)
+public class UpdateEventStreamTest {
+
+    private static final int UPDATE_SIZE = 3;
+
+    @Test
+    public void upgradePublishesEvents() {
+        final UpdateEventStream eventStream = new UpdateEventStream();
+        final UpdateEventStream.Subscription subscription = eventStream.subscribe();
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> updateHelper = new UpdateHelper<>(new IntegerUpdateWorker(UPDATE_SIZE));
+        updateHelper.setEventStream(eventStream);
+        updateHelper.onUpgrade(new IntegerStorage(), 0, UPDATE_SIZE);
+
+        final List<UpdateEvent> events = new ArrayList<>();
+        assertEquals(2 + 2 * UPDATE_SIZE, subscription.drainTo(events, Integer.MAX_VALUE));
+        assertEquals(UpdateEvent.Type.VALIDATION_DONE, events.get(0).getType());
+        for (int version = 1; version <= UPDATE_SIZE; version++) {
+            final UpdateEvent started = events.get(version * 2 - 1);
+            final UpdateEvent finished = events.get(version * 2);
+            assertEquals(UpdateEvent.Type.STEP_STARTED, started.getType());
+            assertEquals(version, started.getVersion());
+            assertEquals(UpdateEvent.Type.STEP_FINISHED, finished.getType());
+            assertEquals(version, finished.getVersion());
+            assertTrue(finished.getDurationNanos() >= 0);
+        }
+        assertEquals(UpdateEvent.Type.UPGRADE_FINISHED, events.get(events.size() - 1).getType());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(i, events.get(i).getSequence());
+        }
+        assertNull(subscription.poll());
+    }
+
+    @Test
+    public void failuresArePublished() {
+        final UpdateEventStream eventStream = new UpdateEventStream();
+        final UpdateEventStream.Subscription subscription = eventStream.subscribe();
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> updateHelper = new UpdateHelper<>(new IntegerUpdateWorker(UPDATE_SIZE, 2));
+        updateHelper.setEventStream(eventStream);
+        try {
+            updateHelper.onUpgrade(new IntegerStorage(), 0, UPDATE_SIZE);
+            fail("Update 2 must fail!");
+        } catch (UpdateStepFailedException e) {
+            final List<UpdateEvent> events = new ArrayList<>();
+            subscription.drainTo(events, Integer.MAX_VALUE);
+            final UpdateEvent stepFailed = events.get(events.size() - 2);
+            assertEquals(UpdateEvent.Type.STEP_FAILED, stepFailed.getType());
+            assertEquals(2, stepFailed.getVersion());
+            assertTrue(stepFailed.getFailure() instanceof IllegalStateException);
+            final UpdateEvent upgradeFailed = events.get(events.size() - 1);
+            assertEquals(UpdateEvent.Type.UPGRADE_FAILED, upgradeFailed.getType());
+            assertSame(e, upgradeFailed.getFailure());
+        }
+    }
+
+    @Test
+    public void slowSubscriptionDropsOldestEvents() {
+        final UpdateEventStream eventStream = new UpdateEventStream(5);
+        assertEquals(8, eventStream.getCapacity());
+        final UpdateEventStream.Subscription subscription = eventStream.subscribe();
+        for (int version = 0; version < 20; version++) {
+            eventStream.publish(UpdateEvent.Type.STEP_STARTED, version, -1, null);
+        }
+        final List<UpdateEvent> events = new ArrayList<>();
+        assertEquals(8, subscription.drainTo(events, Integer.MAX_VALUE));
+        assertEquals(12, subscription.getDroppedCount());
+        assertEquals(12, events.get(0).getVersion());
+        assertEquals(19, events.get(7).getVersion());
+        assertEquals(20, eventStream.getPublishedCount());
+    }
+
+    /**
+     * Tests that a subscription draining on its own thread receives every event in order, or counts the missed ones as dropped.
+     */
+    @Test
+    public void concurrentSubscription() throws Exception {
+        final UpdateEventStream eventStream = new UpdateEventStream(64);
+        final UpdateEventStream.Subscription subscription = eventStream.subscribe();
+        final AtomicBoolean done = new AtomicBoolean();
+        final List<UpdateEvent> events = new ArrayList<>();
+        final Thread consumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!done.get()) {
+                    subscription.drainTo(events, 16);
+                }
+                subscription.drainTo(events, Integer.MAX_VALUE);
+            }
+        });
+        consumer.start();
+        final int count = 100000;
+        for (int version = 0; version < count; version++) {
+            eventStream.publish(UpdateEvent.Type.STEP_STARTED, version, -1, null);
+        }
+        done.set(true);
+        consumer.join();
+
+        assertEquals(count, events.size() + subscription.getDroppedCount());
+        long lastSequence = -1;
+        for (UpdateEvent event : events) {
+            assertTrue(event.getSequence() > lastSequence);
+            assertEquals(event.getSequence(), event.getVersion());
+            lastSequence = event.getSequence();
+        }
+        assertEquals(count - 1, lastSequence);
+    }
+}
@@ -0,0 +1,102 @@
+package com.cybc.updatehelper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.cybc.updatehelper.exceptions.UpdateNullException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class UpdateIndexTest {
+
+    @Test
+    public void firstPendingPositionRandomAccess() {
+        assertFirstPendingPositions(new ArrayList<Update>());
+    }
+
+    @Test
+    public void firstPendingPositionSequential() {
+        assertFirstPendingPositions(new LinkedList<Update>());
+    }
+
+    @Test
+    public void firstPendingPositionSet() {
+        assertFirstPendingPositions(new LinkedHashSet<Update>());
+    }
+
+    /**
+     * versions 2, 4, 6, 8
+     */
+    private void assertFirstPendingPositions(Collection<Update> updates) {
+        for (int version = 2; version <= 8; version += 2) {
+            updates.add(createUpdate(version));
+        }
+        final UpdateIndex<Update> index = UpdateIndex.forUpdates(updates, 8);
+        assertTrue(index.getValidationResult().isCorrect());
+        assertEquals(4, index.size());
+
+        assertEquals(0, index.firstPendingPosition(-1));
+        assertEquals(0, index.firstPendingPosition(1));
+        assertEquals(1, index.firstPendingPosition(2)); //version 2 is already applied
+        assertEquals(1, index.firstPendingPosition(3)); //gap between versions
+        assertEquals(3, index.firstPendingPosition(7));
+        assertEquals(4, index.firstPendingPosition(8)); //up to date
+        assertEquals(4, index.firstPendingPosition(10));
+
+        int position = 0;
+        for (Update update : updates) {
+            assertSame(update, index.getUpdate(position));
+            assertEquals(update.getUpdateVersion(), index.getVersion(position));
+            position++;
+        }
+    }
+
+    @Test
+    public void validation() {
+        final List<Update> updates = new ArrayList<>();
+        assertTrue(UpdateIndex.forUpdates(updates, 3).getValidationResult().isEmpty());
+
+        updates.add(createUpdate(1));
+        updates.add(createUpdate(3));
+        assertTrue(UpdateIndex.forUpdates(updates, 3).getValidationResult().isCorrect());
+        assertTrue(UpdateIndex.forUpdates(updates, 4).getValidationResult().isUnexpectedFinalVersion());
+
+        updates.add(createUpdate(2));
+        assertTrue(UpdateIndex.forUpdates(updates, 2).getValidationResult().isWrongOrder());
+
+        updates.set(2, createUpdate(3));
+        assertTrue(UpdateIndex.forUpdates(updates, 3).getValidationResult().hasEqualVersions());
+    }
+
+    @Test(expected = UpdateNullException.class)
+    public void failureOnNullUpdate() {
+        final List<Update> updates = new LinkedList<>();
+        updates.add(createUpdate(1));
+        updates.add(null);
+        UpdateIndex.forUpdates(updates, 1);
+    }
+
+    private Update createUpdate(final int version) {
+        return new Update() {
+            @Override
+            public void execute(Object o) throws Exception {
+
+            }
+
+            @Override
+            public int getUpdateVersion() {
+                return version;
+            }
+        };
+    }
+}
@@ -0,0 +1,136 @@
+package com.cybc.updatehelper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.cybc.updatehelper.exceptions.UpdateStepFailedException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+
+@RunWith(JUnit4.class)
+public class UpdateJournalTest {
+
+    private File          file;
+    private UpdateJournal journal;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("update", ".journal");
+        journal = UpdateJournal.open(file.toPath(), UpdateJournal.SyncMode.COMMITS);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        journal.close();
+        Files.deleteIfExists(file.toPath());
+    }
+
+    @Test
+    public void recoverProgress() throws IOException {
+        assertFalse(journal.recover().hasCommittedVersion());
+        journal.stepStarted(1);
+        journal.stepCommitted(1);
+        journal.stepStarted(2);
+        journal.stepCommitted(2);
+        journal.stepStarted(3);
+
+        final UpdateJournal.Recovery recovery = journal.recover();
+        assertTrue(recovery.hasCommittedVersion());
+        assertEquals(2, recovery.getLastCommittedVersion());
+        assertTrue(recovery.hasIncompleteVersion());
+        assertEquals(3, recovery.getIncompleteVersion());
+
+        journal.clear();
+        assertFalse(journal.recover().hasCommittedVersion());
+        assertFalse(journal.recover().hasIncompleteVersion());
+    }
+
+    @Test
+    public void ignoreTornRecord() throws IOException {
+        journal.stepStarted(1);
+        journal.stepCommitted(1);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length());
+            raf.write(new byte[]{2, 0, 0}); //crashed while writing the next record
+        }
+        assertEquals(1, journal.recover().getLastCommittedVersion());
+
+        //the torn record was removed, new records are readable again
+        journal.stepStarted(2);
+        journal.stepCommitted(2);
+        assertEquals(2, journal.recover().getLastCommittedVersion());
+    }
+
+    /**
+     * The first run dies at update 4, the second run gets the old version 0 again but resumes after version 3.
+     */
+    @Test
+    public void resumeAfterLastCommittedVersion() {
+        final IntegerStorage storage = new IntegerStorage();
+        final TestJournaledWorker worker = new TestJournaledWorker(6, 4, true);
+        try {
+            new UpdateHelper<>(worker).onUpgrade(storage, 0, 6);
+            fail("No UpdateStepFailedException thrown!");
+        } catch (UpdateStepFailedException e) {
+            assertEquals(4, e.failedUpdate.getUpdateVersion());
+        }
+
+        final TestJournaledWorker secondWorker = new TestJournaledWorker(6, -1, true);
+        new UpdateHelper<>(secondWorker).onUpgrade(storage, 0, 6);
+
+        assertEquals(4, secondWorker.incompleteVersion);
+        assertEquals(6, storage.size());
+        for (int i = 0; i < storage.size(); i++) {
+            assertEquals(i + 1, storage.get(i).intValue());
+        }
+    }
+
+    @Test
+    public void skipIncompleteUpdate() {
+        final IntegerStorage storage = new IntegerStorage();
+        try {
+            new UpdateHelper<>(new TestJournaledWorker(6, 4, true)).onUpgrade(storage, 0, 6);
+            fail("No UpdateStepFailedException thrown!");
+        } catch (UpdateStepFailedException e) {
+            assertEquals(4, e.failedUpdate.getUpdateVersion());
+        }
+
+        new UpdateHelper<>(new TestJournaledWorker(6, -1, false)).onUpgrade(storage, 0, 6);
+
+        assertEquals(5, storage.size());
+        assertFalse(storage.contains(4));
+    }
+
+    private class TestJournaledWorker extends IntegerUpdateWorker implements JournaledUpdateWorker<Update<IntegerStorage>, IntegerStorage> {
+
+        private final boolean executeIncomplete;
+        private       int     incompleteVersion = -1;
+
+        private TestJournaledWorker(int latestVersion, int failingVersion, boolean executeIncomplete) {
+            super(latestVersion, failingVersion);
+            this.executeIncomplete = executeIncomplete;
+        }
+
+        @Override
+        public UpdateJournal getJournal(IntegerStorage integers) {
+            return journal;
+        }
+
+        @Override
+        public boolean onIncompleteUpdate(IntegerStorage integers, Update<IntegerStorage> update) {
+            incompleteVersion = update.getUpdateVersion();
+            return executeIncomplete;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.cybc.updatehelper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.cybc.updatehelper.exceptions.UpdateStepFailedException;
+import com.cybc.updatehelper.metrics.LatencyHistogram;
+import com.cybc.updatehelper.metrics.UpdateCostHistory;
+import com.cybc.updatehelper.metrics.UpdateMetricsCollector;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class UpdateMetricsCollectorTest {
+
+    @Test
+    public void collectsEveryStep() {
+        final UpdateMetricsCollector collector = new UpdateMetricsCollector();
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> helper = new UpdateHelper<>(new IntegerUpdateWorker(20));
+        helper.setUpdateListener(collector);
+
+        helper.onUpgrade(new IntegerStorage(), 5, 20);
+
+        final List<UpdateStepTiming> steps = collector.getSteps();
+        assertEquals(15, steps.size());
+        for (int i = 0; i < steps.size(); i++) {
+            assertEquals(i + 6, steps.get(i).getVersion());
+            assertTrue(steps.get(i).isSuccessful());
+        }
+        for (UpdateStepTiming.Phase phase : UpdateStepTiming.Phase.values()) {
+            assertEquals(15, collector.getHistogram(phase).getCount());
+        }
+        assertTrue(collector.getTotalNanos() > 0);
+        assertTrue(collector.getTotalNanos() >= collector.getValidationNanos());
+
+        final String report = collector.createReport();
+        assertTrue(report.startsWith("Upgrade: successful"));
+        assertTrue(report.contains("EXECUTE"));
+    }
+
+    @Test
+    public void recordsFailedStep() {
+        final UpdateMetricsCollector collector = new UpdateMetricsCollector();
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> helper = new UpdateHelper<>(new IntegerUpdateWorker(5, 3));
+        helper.setUpdateListener(collector);
+        try {
+            helper.onUpgrade(new IntegerStorage(), 0, 5);
+            fail("No UpdateStepFailedException thrown!");
+        } catch (UpdateStepFailedException e) {
+            assertNotNull(e);
+        }
+
+        final List<UpdateStepTiming> steps = collector.getSteps();
+        assertEquals(3, steps.size());
+        final UpdateStepTiming failed = steps.get(2);
+        assertFalse(failed.isSuccessful());
+        assertEquals(UpdateStepTiming.Phase.EXECUTE, failed.getFailedPhase());
+        assertEquals(0, failed.getWallNanos(UpdateStepTiming.Phase.POST_UPDATE));
+        assertEquals(3, collector.getHistogram(UpdateStepTiming.Phase.EXECUTE).getCount());
+        assertEquals(2, collector.getHistogram(UpdateStepTiming.Phase.POST_UPDATE).getCount());
+        assertTrue(collector.createReport().startsWith("Upgrade: failed"));
+    }
+
+    @Test
+    public void keepsOnlyRecentSteps() {
+        final UpdateMetricsCollector collector = new UpdateMetricsCollector(4);
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> helper = new UpdateHelper<>(new IntegerUpdateWorker(20));
+        helper.setUpdateListener(collector);
+
+        helper.onUpgrade(new IntegerStorage(), 0, 20);
+
+        final List<UpdateStepTiming> steps = collector.getSteps();
+        assertEquals(4, steps.size());
+        for (int i = 0; i < steps.size(); i++) {
+            assertEquals(i + 17, steps.get(i).getVersion());
+        }
+        assertEquals(20, collector.getStepCount());
+        assertEquals(20, collector.getHistogram(UpdateStepTiming.Phase.EXECUTE).getCount());
+        final List<UpdateStepTiming> slowest = collector.getSlowestSteps();
+        assertEquals(10, slowest.size());
+        for (int i = 1; i < slowest.size(); i++) {
+            assertTrue(slowest.get(i - 1).getWallNanos() >= slowest.get(i).getWallNanos());
+        }
+        assertTrue(collector.createReport().contains(", 20 steps"));
+    }
+
+    @Test
+    public void compositeListenerInformsEveryListener() throws IOException {
+        final Path file = File.createTempFile("history", ".txt").toPath();
+        try {
+            final UpdateMetricsCollector collector = new UpdateMetricsCollector();
+            final UpdateCostHistory history = UpdateCostHistory.load(file);
+            final UpdateHelper<Update<IntegerStorage>, IntegerStorage> helper = new UpdateHelper<>(new IntegerUpdateWorker(5));
+            helper.setUpdateListener(new CompositeUpdateListener<Update<IntegerStorage>>(collector, history));
+
+            helper.onUpgrade(new IntegerStorage(), 0, 5);
+
+            assertEquals(5, collector.getStepCount());
+            assertTrue(collector.getTotalNanos() > 0);
+            for (int version = 1; version <= 5; version++) {
+                assertTrue(history.getMeanNanos(version) >= 0);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void histogramPercentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(10000, histogram.getCount());
+        assertEquals(10000000L, histogram.getMax());
+        assertEquals(5000500L, histogram.getMean());
+        assertWithinError(5000000L, histogram.getValueAtPercentile(50));
+        assertWithinError(9900000L, histogram.getValueAtPercentile(99));
+        assertEquals(10000000L, histogram.getValueAtPercentile(100));
+        assertEquals(0, new LatencyHistogram().getValueAtPercentile(50));
+    }
+
+    private static void assertWithinError(long expected, long actual) {
+        assertTrue("expected ~" + expected + " but was " + actual, Math.abs(expected - actual) <= expected * 0.07);
+    }
+}
@@ -0,0 +1,89 @@
+package com.cybc.updatehelper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.cybc.updatehelper.exceptions.UpdateValidationException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class UpdatePlanTest {
+
+    private static final int UPDATE_SIZE = 50;
+
+    /**
+     * Tests that a plan creates the updates once and can then be executed for many storages with different versions.
+     */
+    @Test
+    public void planIsReusedForManyStorages() {
+        final CountingWorker worker = new CountingWorker(UPDATE_SIZE);
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> updateHelper = new UpdateHelper<>(worker);
+        final UpdatePlan<Update<IntegerStorage>> plan = updateHelper.createPlan(UPDATE_SIZE);
+        assertEquals(UPDATE_SIZE, plan.size());
+        assertEquals(UPDATE_SIZE, plan.getLatestVersion());
+
+        for (int oldVersion = 0; oldVersion <= UPDATE_SIZE; oldVersion++) {
+            final IntegerStorage storage = new IntegerStorage();
+            assertEquals(UPDATE_SIZE - oldVersion, plan.getPendingCount(oldVersion));
+            updateHelper.onUpgrade(storage, oldVersion, plan);
+
+            assertEquals(UPDATE_SIZE - oldVersion, storage.size());
+            for (int i = 0; i < storage.size(); i++) {
+                assertEquals(oldVersion + 1 + i, storage.get(i).intValue());
+            }
+        }
+        assertEquals(1, worker.createUpdatesCalls);
+        assertEquals(UPDATE_SIZE, worker.upgradingDoneCalls);
+    }
+
+    @Test
+    public void fleetUsesPlan() {
+        final CountingWorker worker = new CountingWorker(UPDATE_SIZE);
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> updateHelper = new UpdateHelper<>(worker);
+        final FleetUpgrader<Update<IntegerStorage>, IntegerStorage> fleetUpgrader = new FleetUpgrader<>(updateHelper);
+        fleetUpgrader.setUpdatePlan(updateHelper.createPlan(UPDATE_SIZE));
+
+        final List<FleetUpgrader.Target<IntegerStorage>> targets = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            targets.add(new FleetUpgrader.Target<>(new IntegerStorage(), i));
+        }
+        assertTrue(fleetUpgrader.upgrade(targets).isSuccessful());
+        assertEquals(1, worker.createUpdatesCalls);
+        for (FleetUpgrader.Target<IntegerStorage> target : targets) {
+            assertEquals(UPDATE_SIZE - target.getOldVersion(), target.getStorage().size());
+        }
+    }
+
+    @Test(expected = UpdateValidationException.class)
+    public void failureOnWrongLatestVersion() {
+        new UpdateHelper<>(new CountingWorker(UPDATE_SIZE)).createPlan(UPDATE_SIZE + 1);
+    }
+
+    private static class CountingWorker extends IntegerUpdateWorker {
+
+        private int createUpdatesCalls;
+        private int upgradingDoneCalls;
+
+        private CountingWorker(int latestVersion) {
+            super(latestVersion);
+        }
+
+        @Override
+        public Collection<Update<IntegerStorage>> createUpdates() {
+            createUpdatesCalls++;
+            return super.createUpdates();
+        }
+
+        @Override
+        public synchronized void onUpgradingDone(IntegerStorage integers) {
+            upgradingDoneCalls++;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.cybc.updatehelper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.cybc.updatehelper.exceptions.UpdateNullException;
+import com.cybc.updatehelper.exceptions.UpdateValidationException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+@RunWith(JUnit4.class)
+public class UpdateRegistryTest {
+
+    private int createdUpdates;
+
+    /**
+     * Tests that only the updates newer than the old version get created and executed in correct order.
+     */
+    @Test
+    public void onlyPendingUpdatesAreCreated() {
+        final int updateSize = 100;
+        final int oldVersion = 97;
+        final UpdateRegistry<Update<IntegerStorage>> registry = new UpdateRegistry<>();
+        for (int i = updateSize; i > 0; i--) {//registration order doesn't matter
+            registry.register(i, createFactory(i));
+        }
+
+        final IntegerStorage storage = new IntegerStorage();
+        new UpdateHelper<>(new TestRegistryWorker(updateSize, registry)).onUpgrade(storage, oldVersion, updateSize);
+
+        assertEquals(updateSize - oldVersion, createdUpdates);
+        assertEquals(updateSize - oldVersion, storage.size());
+        for (int i = 0; i < storage.size(); i++) {
+            assertEquals(oldVersion + 1 + i, storage.get(i).intValue());
+        }
+    }
+
+    /**
+     * Tests that a lazy index creates every update once, so every caller sees the instance which is executed.
+     */
+    @Test
+    public void lazyIndexCreatesUpdatesOnce() {
+        final UpdateRegistry<Update<IntegerStorage>> registry = new UpdateRegistry<>();
+        for (int i = 1; i <= 3; i++) {
+            registry.register(i, createFactory(i));
+        }
+        final UpdateIndex<Update<IntegerStorage>> index = registry.toIndex(3);
+        final Update<IntegerStorage> update = index.getUpdate(1);
+        assertSame(update, index.getUpdate(1));
+        assertEquals(1, createdUpdates);
+
+        //an upgrade from a plan reuses the created update
+        final UpdatePlan<Update<IntegerStorage>> plan = new UpdateHelper<>(new TestRegistryWorker(3, registry)).createPlan(3);
+        plan.getIndex().getUpdate(0);
+        new UpdateHelper<>(new TestRegistryWorker(3, registry)).onUpgrade(new IntegerStorage(), 0, plan);
+        assertEquals(4, createdUpdates);
+    }
+
+    @Test(expected = UpdateValidationException.class)
+    public void failureOnEqualVersions() {
+        new UpdateRegistry<Update<IntegerStorage>>()
+                .register(1, createFactory(1))
+                .register(1, createFactory(1));
+    }
+
+    @Test(expected = UpdateValidationException.class)
+    public void failureOnWrongFactoryVersion() {
+        final UpdateRegistry<Update<IntegerStorage>> registry = new UpdateRegistry<>();
+        registry.register(1, createFactory(1));
+        registry.register(2, createFactory(3));
+        new UpdateHelper<>(new TestRegistryWorker(2, registry)).onUpgrade(new IntegerStorage(), 0, 2);
+    }
+
+    @Test(expected = UpdateValidationException.class)
+    public void failureOnWrongFinalVersion() {
+        final UpdateRegistry<Update<IntegerStorage>> registry = new UpdateRegistry<>();
+        registry.register(1, createFactory(1));
+        new UpdateHelper<>(new TestRegistryWorker(2, registry)).onUpgrade(new IntegerStorage(), 0, 2);
+    }
+
+    @Test(expected = UpdateValidationException.class)
+    public void failureOnEmptyRegistry() {
+        new UpdateHelper<>(new TestRegistryWorker(2, new UpdateRegistry<Update<IntegerStorage>>())).onUpgrade(new IntegerStorage(), 0, 2);
+    }
+
+    @Test(expected = UpdateNullException.class)
+    public void failureOnNullFactoryResult() {
+        final UpdateRegistry<Update<IntegerStorage>> registry = new UpdateRegistry<>();
+        registry.register(1, new UpdateFactory<Update<IntegerStorage>>() {
+            @Override
+            public Update<IntegerStorage> create() {
+                return null;
+            }
+        });
+        registry.createAll();
+    }
+
+    @Test
+    public void fromCollection() {
+        final List<Update<IntegerStorage>> updates = new ArrayList<>();
+        updates.add(createFactory(3).create());
+        updates.add(createFactory(1).create());
+        updates.add(createFactory(2).create());
+
+        final UpdateRegistry<Update<IntegerStorage>> registry = UpdateRegistry.fromCollection(updates);
+        assertEquals(3, registry.size());
+        assertEquals(3, registry.getLatestVersion());
+        assertTrue(registry.validate(3).isCorrect());
+
+        final List<Update<IntegerStorage>> pending = registry.createPendingUpdates(1);
+        assertEquals(2, pending.size());
+        assertEquals(2, pending.get(0).getUpdateVersion());
+        assertEquals(3, pending.get(1).getUpdateVersion());
+    }
+
+    private UpdateFactory<Update<IntegerStorage>> createFactory(final int version) {
+        return new UpdateFactory<Update<IntegerStorage>>() {
+            @Override
+            public Update<IntegerStorage> create() {
+                createdUpdates++;
+                return new Update<IntegerStorage>() {
+                    @Override
+                    public void execute(IntegerStorage integers) throws Exception {
+                        integers.add(version);
+                    }
+
+                    @Override
+                    public int getUpdateVersion() {
+                        return version;
+                    }
+                };
+            }
+        };
+    }
+
+    private static class TestRegistryWorker extends IntegerUpdateWorker implements UpdateRegistryWorker<Update<IntegerStorage>, IntegerStorage> {
+
+        private final UpdateRegistry<Update<IntegerStorage>> registry;
+
+        private TestRegistryWorker(int latestVersion, UpdateRegistry<Update<IntegerStorage>> registry) {
+            super(latestVersion);
+            this.registry = registry;
+        }
+
+        @Override
+        public UpdateRegistry<Update<IntegerStorage>> createUpdateRegistry() {
+            return registry;
+        }
+
+        @Override
+        public Collection<Update<IntegerStorage>> createUpdates() {
+            return registry.createAll();
+        }
+    }
+}
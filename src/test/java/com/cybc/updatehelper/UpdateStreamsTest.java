@@ -0,0 +1,226 @@
+package com.cybc.updatehelper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.cybc.updatehelper.exceptions.UpdateFailedException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@RunWith(JUnit4.class)
+public class UpdateStreamsTest {
+
+    @Test
+    public void streamsHaveOwnVersions() {
+        final StreamStorage storage = new StreamStorage();
+        storage.versions.put("core", 2);
+        final UpdateStreams<StreamStorage> streams = new UpdateStreams<>();
+        streams.addStream(new UpdateHelper<>(new StreamWorker("core", 5, 0)));
+        streams.addStream(new UpdateHelper<>(new StreamWorker("search", 3, 0)));
+        streams.addStream(new UpdateHelper<>(new StreamWorker("analytics", 0, 0)));
+
+        final UpdateStreams.Result result = streams.upgrade(storage);
+        assertTrue(result.isSuccessful());
+        assertEquals(5, storage.versions.get("core").intValue());
+        assertEquals(3, storage.versions.get("search").intValue());
+        assertEquals(2, result.getResult("core").getOldVersion());
+        assertEquals(5, result.getResult("core").getVersion());
+        assertEquals(0, result.getResult("analytics").getVersion());
+        assertEquals(6, storage.log.size()); //3 of core, 3 of search
+    }
+
+    @Test
+    public void barrierWaitsForRequiredStream() {
+        final StreamStorage storage = new StreamStorage();
+        final UpdateStreams<StreamStorage> streams = new UpdateStreams<>();
+        streams.addStream(new UpdateHelper<>(new StreamWorker("core", 4, 20)));
+        streams.addStream(new UpdateHelper<>(new StreamWorker("search", 3, 0)));
+        streams.addBarrier("search", 2, "core", 3);
+
+        assertTrue(streams.upgrade(storage).isSuccessful());
+        assertTrue(storage.log.indexOf("core:3") < storage.log.indexOf("search:2"));
+    }
+
+    /**
+     * Tests that a batch ends before a barrier and the next batch isn't opened before the barrier opens, so a waiting stream holds no open transaction.
+     */
+    @Test
+    public void batchEndsAtBarrier() {
+        final StreamStorage storage = new StreamStorage();
+        final BatchStreamWorker search = new BatchStreamWorker("search", 3);
+        final UpdateHelper<Update<StreamStorage>, StreamStorage> searchHelper = new UpdateHelper<>(search);
+        searchHelper.setBatchPolicy(BatchPolicy.unlimited());
+        final UpdateStreams<StreamStorage> streams = new UpdateStreams<>();
+        streams.addStream(new UpdateHelper<>(new StreamWorker("core", 4, 20)));
+        streams.addStream(searchHelper);
+        streams.addBarrier("search", 2, "core", 3);
+
+        assertTrue(streams.upgrade(storage).isSuccessful());
+        assertEquals(2, search.batchBeginCoreVersions.size());
+        assertTrue(search.batchBeginCoreVersions.get(1) >= 3);
+        assertEquals(3, storage.versions.get("search").intValue());
+    }
+
+    @Test
+    public void failedRequiredStreamFailsWaitingStream() {
+        final StreamStorage storage = new StreamStorage();
+        final StreamWorker core = new StreamWorker("core", 4, 0);
+        core.failingVersion = 2;
+        final UpdateStreams<StreamStorage> streams = new UpdateStreams<>();
+        streams.addStream(new UpdateHelper<>(core));
+        streams.addStream(new UpdateHelper<>(new StreamWorker("search", 3, 0)));
+        streams.addStream(new UpdateHelper<>(new StreamWorker("analytics", 2, 0)));
+        streams.addBarrier("search", 2, "core", 3);
+
+        final UpdateStreams.Result result = streams.upgrade(storage);
+        assertFalse(result.isSuccessful());
+        assertEquals(2, result.getFailedCount());
+        assertEquals(UpdateStreams.Status.FAILED, result.getResult("core").getStatus());
+        assertEquals(1, result.getResult("core").getVersion());
+        assertEquals(UpdateStreams.Status.FAILED, result.getResult("search").getStatus());
+        assertEquals(1, storage.versions.get("search").intValue());
+        assertEquals(UpdateStreams.Status.SUCCEEDED, result.getResult("analytics").getStatus());
+        assertEquals(2, storage.versions.get("analytics").intValue());
+    }
+
+    @Test
+    public void blockingBarriersAreRejected() {
+        final StreamStorage storage = new StreamStorage();
+        final UpdateStreams<StreamStorage> streams = new UpdateStreams<>();
+        streams.addStream(new UpdateHelper<>(new StreamWorker("core", 3, 0)));
+        streams.addStream(new UpdateHelper<>(new StreamWorker("search", 3, 0)));
+        streams.addBarrier("core", 2, "search", 2);
+        streams.addBarrier("search", 2, "core", 2);
+        try {
+            streams.upgrade(storage);
+            fail("Cyclic barriers must be rejected!");
+        } catch (UpdateFailedException e) {
+            assertTrue(storage.log.isEmpty());
+        }
+
+        final UpdateStreams<StreamStorage> unreachable = new UpdateStreams<>();
+        unreachable.addStream(new UpdateHelper<>(new StreamWorker("core", 3, 0)));
+        unreachable.addStream(new UpdateHelper<>(new StreamWorker("search", 3, 0)));
+        unreachable.addBarrier("search", 1, "core", 4);
+        try {
+            unreachable.upgrade(storage);
+            fail("A barrier of a version the stream never reaches must be rejected!");
+        } catch (UpdateFailedException e) {
+            assertTrue(storage.log.isEmpty());
+        }
+    }
+
+    private static class StreamStorage {
+
+        private final Map<String, Integer> versions = new ConcurrentHashMap<>();
+        private final List<String>         log      = Collections.synchronizedList(new ArrayList<String>());
+    }
+
+    private static class BatchStreamWorker extends StreamWorker implements BatchUpdateWorker<Update<StreamStorage>, StreamStorage> {
+
+        //the version of the core stream when a batch was opened
+        private final List<Integer> batchBeginCoreVersions = new ArrayList<>();
+
+        private BatchStreamWorker(String name, int latestVersion) {
+            super(name, latestVersion, 0);
+        }
+
+        @Override
+        public void onBatchBegin(StreamStorage storage) {
+            final Integer coreVersion = storage.versions.get("core");
+            batchBeginCoreVersions.add(coreVersion == null ? 0 : coreVersion);
+        }
+
+        @Override
+        public void onBatchCommit(StreamStorage storage, Update<StreamStorage> lastUpdate) {}
+
+        @Override
+        public void onBatchRollback(StreamStorage storage) {}
+
+        @Override
+        public long getUncommittedBytes(StreamStorage storage) {
+            return 0;
+        }
+    }
+
+    private static class StreamWorker implements StreamUpdateWorker<Update<StreamStorage>, StreamStorage> {
+
+        private final String name;
+        private final int    latestVersion;
+        private final long   sleepMillis;
+        private       int    failingVersion = -1;
+
+        private StreamWorker(String name, int latestVersion, long sleepMillis) {
+            this.name = name;
+            this.latestVersion = latestVersion;
+            this.sleepMillis = sleepMillis;
+        }
+
+        @Override
+        public String getStreamName() {
+            return name;
+        }
+
+        @Override
+        public int getStreamVersion(StreamStorage storage) {
+            final Integer version = storage.versions.get(name);
+            return version == null ? 0 : version;
+        }
+
+        @Override
+        public int getLatestUpdateVersion(StreamStorage storage) {
+            return latestVersion;
+        }
+
+        @Override
+        public Collection<Update<StreamStorage>> createUpdates() {
+            final List<Update<StreamStorage>> updates = new ArrayList<>();
+            for (int version = 1; version <= latestVersion; version++) {
+                final int updateVersion = version;
+                updates.add(new Update<StreamStorage>() {
+                    @Override
+                    public void execute(StreamStorage storage) throws Exception {
+                        Thread.sleep(sleepMillis);
+                        if (updateVersion == failingVersion) {
+                            throw new IllegalStateException("Update failed: " + name + ":" + updateVersion);
+                        }
+                        storage.log.add(name + ":" + updateVersion);
+                    }
+
+                    @Override
+                    public int getUpdateVersion() {
+                        return updateVersion;
+                    }
+                });
+            }
+            return updates;
+        }
+
+        @Override
+        public void onPreUpdate(StreamStorage storage, Update<StreamStorage> update) {}
+
+        @Override
+        public void onPostUpdate(StreamStorage storage, Update<StreamStorage> update) {
+            storage.versions.put(name, update.getUpdateVersion());
+        }
+
+        @Override
+        public void onUpgradingDone(StreamStorage storage) {}
+
+        @Override
+        public boolean isStorageClosed(StreamStorage storage) {
+            return false;
+        }
+    }
+}
@@ -7,6 +7,7 @@ import static junit.framework.TestCase.assertTrue;
 
 import com.cybc.updatehelper.testing.UpdateTest;
 import com.cybc.updatehelper.testing.UpdateTestRunner;
+import com.cybc.updatehelper.testing.UpgradePathTest;
 
 import org.junit.Ignore;
 import org.junit.Test;
@@ -15,6 +16,9 @@ import org.junit.runners.JUnit4;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @RunWith(JUnit4.class)
 public class UpdateTestRunnerTest {
@@ -78,6 +82,169 @@ public class UpdateTestRunnerTest {
 
     }
 
+    /**
+     * tests that with a SnapshotStorageProvider every updateTest runs on its own fork, which contains exactly the updates until its version
+     */
+    @Test
+    public void testForkedUpdateTests_TestRun() {
+        final int testCount = 50;
+        final List<UpdateTest<IntegerStorage>> updateTests = new ArrayList<>();
+        for (int i = 1; i <= testCount; i++) {
+            updateTests.add(createTestUpdate(i));
+        }
+        final IntegerStorage storage = new IntegerStorage();
+        final AtomicInteger closedForks = new AtomicInteger();
+
+        final UpdateTestRunner<IntegerStorage> testRunner = new UpdateTestRunner<>(new UpdateTestRunner.SnapshotStorageProvider<IntegerStorage>() {
+            @Override
+            public IntegerStorage fork(IntegerStorage integers) {
+                final IntegerStorage fork = new IntegerStorage();
+                fork.addAll(integers);
+                return fork;
+            }
+
+            @Override
+            public void setVersionBy(Update<IntegerStorage> lastUpdate, IntegerStorage integers) {}
+
+            @Override
+            public boolean isStorageClosed(IntegerStorage integers) {
+                return integers.isClosed();
+            }
+
+            @Override
+            public void closeStorage(IntegerStorage integers) {
+                if (integers != storage) {
+                    assertEquals(integers.get(integers.size() - 1).intValue(), integers.size()); //only the updates until the tested version
+                    closedForks.incrementAndGet();
+                }
+                integers.setClosed(true);
+            }
+        }, updateTests);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            testRunner.setTestExecutor(executor);
+            testRunner.runTestUpdates(storage, 0, testCount);
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(storage.isClosed());
+        assertEquals(testCount, storage.size()); //no mock data inside the storage itself
+        assertEquals(testCount, closedForks.get());
+    }
+
+    @Test(expected = AssertionError.class)
+    public void testForkedUpdateTestFailure() {
+        final List<UpdateTest<IntegerStorage>> updateTests = new ArrayList<>();
+        updateTests.add(createTestUpdate(1));
+        updateTests.add(new UpdateTest<IntegerStorage>() {
+            @Override
+            public void insertMockData(IntegerStorage integers) {}
+
+            @Override
+            public void testConsistency(IntegerStorage integers) {
+                throw new AssertionError("Inconsistent storage");
+            }
+
+            @Override
+            public Update<IntegerStorage> getUpdateToTest() {
+                return createTestUpdate(2).getUpdateToTest();
+            }
+        });
+
+        final UpdateTestRunner<IntegerStorage> testRunner = new UpdateTestRunner<>(new UpdateTestRunner.SnapshotStorageProvider<IntegerStorage>() {
+            @Override
+            public IntegerStorage fork(IntegerStorage integers) {
+                final IntegerStorage fork = new IntegerStorage();
+                fork.addAll(integers);
+                return fork;
+            }
+
+            @Override
+            public void setVersionBy(Update<IntegerStorage> lastUpdate, IntegerStorage integers) {}
+
+            @Override
+            public boolean isStorageClosed(IntegerStorage integers) {
+                return integers.isClosed();
+            }
+
+            @Override
+            public void closeStorage(IntegerStorage integers) {
+                integers.setClosed(true);
+            }
+        }, updateTests);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            testRunner.setTestExecutor(executor);
+            testRunner.runTestUpdates(new IntegerStorage(), 0, 2);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * tests that every upgrade path starts from the state of its start version and ends on the latest version
+     */
+    @Test
+    public void testUpgradePaths_TestRun() {
+        assertEquals(20, runUpgradePaths(20));
+        assertEquals(3, runUpgradePaths(20, 0, 7, 19));
+    }
+
+    private int runUpgradePaths(final int testCount, int... startVersions) {
+        final List<UpdateTest<IntegerStorage>> updateTests = new ArrayList<>();
+        for (int i = 1; i <= testCount; i++) {
+            updateTests.add(createTestUpdate(i));
+        }
+        final UpdateTestRunner<IntegerStorage> testRunner = new UpdateTestRunner<>(new UpdateTestRunner.SnapshotStorageProvider<IntegerStorage>() {
+            @Override
+            public IntegerStorage fork(IntegerStorage integers) {
+                final IntegerStorage fork = new IntegerStorage();
+                fork.addAll(integers);
+                return fork;
+            }
+
+            @Override
+            public void setVersionBy(Update<IntegerStorage> lastUpdate, IntegerStorage integers) {}
+
+            @Override
+            public boolean isStorageClosed(IntegerStorage integers) {
+                return integers.isClosed();
+            }
+
+            @Override
+            public void closeStorage(IntegerStorage integers) {
+                integers.setClosed(true);
+            }
+        }, updateTests);
+
+        final AtomicInteger verifiedPaths = new AtomicInteger();
+        testRunner.setUpgradePathTest(new UpgradePathTest<IntegerStorage>() {
+            @Override
+            public void prepare(int startVersion, IntegerStorage integers) {
+                assertEquals(startVersion, integers.size());
+                integers.add(-startVersion);
+            }
+
+            @Override
+            public void verify(int startVersion, IntegerStorage integers) {
+                assertEquals(testCount + 1, integers.size());
+                assertEquals(-startVersion, integers.get(startVersion).intValue());
+                assertEquals(testCount, integers.get(testCount).intValue());
+                verifiedPaths.incrementAndGet();
+            }
+        }, startVersions);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            testRunner.setTestExecutor(executor);
+            testRunner.runTestUpdates(new IntegerStorage(), 0, testCount);
+        } finally {
+            executor.shutdown();
+        }
+        return verifiedPaths.get();
+    }
+
     private UpdateTest<IntegerStorage> createTestUpdate(final int version) {
         final int testOffset = 10000;
 
@@ -0,0 +1,187 @@
+package com.cybc.updatehelper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.cybc.updatehelper.exceptions.UpdateBatchFailedException;
+import com.cybc.updatehelper.exceptions.UpdateTimeoutException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(JUnit4.class)
+public class UpdateTimeoutTest {
+
+    private static final int UPDATE_SIZE = 5;
+
+    /**
+     * Tests that a sleeping update gets interrupted and fails with a timeout.
+     */
+    @Test
+    public void stepTimeoutInterruptsUpdate() {
+        final TestWorker worker = new TestWorker(3, 0);
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> updateHelper = new UpdateHelper<>(worker);
+        updateHelper.setStepTimeout(100, TimeUnit.MILLISECONDS);
+        final IntegerStorage storage = new IntegerStorage();
+        try {
+            updateHelper.onUpgrade(storage, 0, UPDATE_SIZE);
+            fail("Update didn't time out!");
+        } catch (UpdateTimeoutException e) {
+            assertEquals(3, e.version);
+            assertFalse(e.upgradeTimeout);
+            assertTrue(e.elapsedNanos >= TimeUnit.MILLISECONDS.toNanos(100));
+            assertTrue(e.getCause() instanceof InterruptedException);
+        }
+        assertEquals(2, storage.size());
+        assertEquals(1, worker.abortedUpdates);
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    /**
+     * Tests that an update which ignores the interrupt is stopped by the abort hook.
+     */
+    @Test
+    public void abortHookStopsBusyUpdate() {
+        final TestWorker worker = new TestWorker(-1, 2);
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> updateHelper = new UpdateHelper<>(worker);
+        updateHelper.setStepTimeout(50, TimeUnit.MILLISECONDS);
+        try {
+            updateHelper.onUpgrade(new IntegerStorage(), 0, UPDATE_SIZE);
+            fail("Update didn't time out!");
+        } catch (UpdateTimeoutException e) {
+            assertEquals(2, e.version);
+        }
+        assertEquals(1, worker.abortedUpdates);
+    }
+
+    @Test
+    public void parallelStepTimeout() {
+        final TestWorker worker = new TestWorker(3, 0);
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> updateHelper = new UpdateHelper<>(worker);
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        updateHelper.setParallelExecutor(executor);
+        updateHelper.setStepTimeout(100, TimeUnit.MILLISECONDS);
+        try {
+            updateHelper.onUpgrade(new IntegerStorage(), 0, UPDATE_SIZE);
+            fail("Update didn't time out!");
+        } catch (UpdateTimeoutException e) {
+            assertEquals(3, e.version);
+            assertFalse(e.upgradeTimeout);
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1, worker.abortedUpdates);
+    }
+
+    /**
+     * Tests that the timeout is the cause of the failed batch, the batch is rolled back.
+     */
+    @Test
+    public void batchedStepTimeout() {
+        final BatchWorker worker = new BatchWorker(3);
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> updateHelper = new UpdateHelper<>(worker);
+        updateHelper.setBatchPolicy(BatchPolicy.ofUpdates(2));
+        updateHelper.setStepTimeout(100, TimeUnit.MILLISECONDS);
+        try {
+            updateHelper.onUpgrade(new IntegerStorage(), 0, UPDATE_SIZE);
+            fail("Update didn't time out!");
+        } catch (UpdateBatchFailedException e) {
+            assertTrue(e.getCause() instanceof UpdateTimeoutException);
+            assertEquals(3, ((UpdateTimeoutException) e.getCause()).version);
+            assertEquals(2, e.lastCommittedVersion);
+        }
+        assertEquals(1, worker.rollbacks);
+        assertEquals(1, ((TestWorker) worker).abortedUpdates);
+    }
+
+    @Test
+    public void upgradeTimeout() {
+        final TestWorker worker = new TestWorker(UPDATE_SIZE, 0);
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> updateHelper = new UpdateHelper<>(worker);
+        updateHelper.setStepTimeout(10, TimeUnit.SECONDS);
+        updateHelper.setUpgradeTimeout(100, TimeUnit.MILLISECONDS);
+        try {
+            updateHelper.onUpgrade(new IntegerStorage(), 0, UPDATE_SIZE);
+            fail("Upgrade didn't time out!");
+        } catch (UpdateTimeoutException e) {
+            assertEquals(UPDATE_SIZE, e.version);
+            assertTrue(e.upgradeTimeout);
+        }
+    }
+
+    @Test
+    public void fastUpdatesDontTimeOut() {
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> updateHelper = new UpdateHelper<>(new TestWorker(-1, 0));
+        updateHelper.setStepTimeout(10, TimeUnit.SECONDS);
+        updateHelper.setUpgradeTimeout(10, TimeUnit.SECONDS);
+        final IntegerStorage storage = new IntegerStorage();
+        updateHelper.onUpgrade(storage, 0, UPDATE_SIZE);
+        assertEquals(UPDATE_SIZE, storage.size());
+    }
+
+    private static class BatchWorker extends TestWorker implements BatchUpdateWorker<Update<IntegerStorage>, IntegerStorage> {
+
+        private int rollbacks;
+
+        private BatchWorker(int sleepingVersion) {
+            super(sleepingVersion, 0);
+        }
+
+        @Override
+        public void onBatchBegin(IntegerStorage integers) {}
+
+        @Override
+        public void onBatchCommit(IntegerStorage integers, Update<IntegerStorage> lastUpdate) {}
+
+        @Override
+        public void onBatchRollback(IntegerStorage integers) {
+            rollbacks++;
+        }
+
+        @Override
+        public long getUncommittedBytes(IntegerStorage integers) {
+            return 0;
+        }
+    }
+
+    private static class TestWorker extends IntegerUpdateWorker implements AbortableUpdateWorker<Update<IntegerStorage>, IntegerStorage> {
+
+        private final    int     sleepingVersion;
+        private final    int     busyVersion;
+        private volatile boolean aborted;
+        private volatile int     abortedUpdates;
+
+        private TestWorker(int sleepingVersion, int busyVersion) {
+            super(UPDATE_SIZE);
+            this.sleepingVersion = sleepingVersion;
+            this.busyVersion = busyVersion;
+        }
+
+        @Override
+        protected void executeUpdate(IntegerStorage integers, int version) throws Exception {
+            if (version == sleepingVersion) {
+                Thread.sleep(TimeUnit.SECONDS.toMillis(10));
+            }
+            if (version == busyVersion) {
+                //ignores interrupts, like a blocking native call
+                while (!aborted) {
+                    Thread.yield();
+                }
+            }
+            super.executeUpdate(integers, version);
+        }
+
+        @Override
+        public void onAbortUpdate(IntegerStorage integers, Update<IntegerStorage> update) {
+            abortedUpdates++;
+            aborted = true;
+        }
+    }
+}
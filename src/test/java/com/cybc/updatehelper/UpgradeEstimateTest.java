@@ -0,0 +1,149 @@
+package com.cybc.updatehelper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.cybc.updatehelper.metrics.UpdateCostHistory;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@RunWith(JUnit4.class)
+public class UpgradeEstimateTest {
+
+    private static final int  UPDATE_SIZE       = 6;
+    private static final long NANOS_PER_ELEMENT = 1000;
+
+    /**
+     * Even versions estimate themselves from the storage size, odd versions can't estimate themselves.
+     */
+    @Test
+    public void explainWithoutHistory() {
+        final IntegerStorage storage = createStorage(10);
+        final UpgradeEstimate estimate = new UpdateHelper<>(new TestWorker()).explain(storage, 2, UPDATE_SIZE, null);
+
+        assertEquals(10, storage.size()); //nothing executed
+        assertEquals(UPDATE_SIZE - 2, estimate.getSteps().size());
+        assertFalse(estimate.isComplete());
+        for (int i = 0; i < estimate.getSteps().size(); i++) {
+            final UpgradeEstimate.Step step = estimate.getSteps().get(i);
+            assertEquals(3 + i, step.getVersion());
+            if (step.getVersion() % 2 == 0) {
+                assertEquals(UpgradeEstimate.Source.ESTIMATED, step.getSource());
+                assertEquals(10 * NANOS_PER_ELEMENT, step.getEstimatedNanos());
+            } else {
+                assertEquals(UpgradeEstimate.Source.UNKNOWN, step.getSource());
+                assertEquals(-1, step.getEstimatedNanos());
+            }
+        }
+        assertEquals(2 * 10 * NANOS_PER_ELEMENT, estimate.getTotalNanos());
+    }
+
+    /**
+     * Tests that a saved history calibrates the estimates of the next explanation.
+     */
+    @Test
+    public void historyCalibratesEstimates() throws Exception {
+        final Path file = File.createTempFile("history", ".txt").toPath();
+        Files.delete(file);
+        try {
+            final UpdateHelper<Update<IntegerStorage>, IntegerStorage> updateHelper = new UpdateHelper<>(new TestWorker());
+            UpdateCostHistory history = UpdateCostHistory.load(file);
+            updateHelper.setUpdateListener(history);
+            updateHelper.explain(createStorage(10), 0, UPDATE_SIZE, history);
+            updateHelper.onUpgrade(createStorage(10), 0, UPDATE_SIZE);
+            history.save();
+
+            history = UpdateCostHistory.load(file);
+            final double calibrationFactor = history.getCalibrationFactor();
+            assertTrue(calibrationFactor > 0);
+            final UpgradeEstimate estimate = updateHelper.explain(createStorage(20), 0, UPDATE_SIZE, history);
+            assertTrue(estimate.isComplete());
+            for (UpgradeEstimate.Step step : estimate.getSteps()) {
+                if (step.getVersion() % 2 == 0) {
+                    assertEquals(UpgradeEstimate.Source.CALIBRATED, step.getSource());
+                    assertEquals((long) (20 * NANOS_PER_ELEMENT * calibrationFactor), step.getEstimatedNanos());
+                } else {
+                    assertEquals(UpgradeEstimate.Source.HISTORY, step.getSource());
+                    assertEquals(history.getMeanNanos(step.getVersion()), step.getEstimatedNanos());
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Tests that only the estimates of the latest explanation calibrate the next upgrade and that an upgrade drops the estimates it didn't measure.
+     */
+    @Test
+    public void explainDoesNotCalibrate() throws Exception {
+        final Path file = File.createTempFile("history", ".txt").toPath();
+        Files.delete(file);
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> updateHelper = new UpdateHelper<>(new TestWorker());
+        final UpdateCostHistory history = UpdateCostHistory.load(file);
+        updateHelper.explain(createStorage(10), 0, UPDATE_SIZE, history);
+        updateHelper.explain(createStorage(10), 4, UPDATE_SIZE, history);
+        assertTrue(Double.isNaN(history.getCalibrationFactor()));
+
+        history.recordStep(2, 5 * NANOS_PER_ELEMENT); //estimated by the first explanation only
+        assertTrue(Double.isNaN(history.getCalibrationFactor()));
+        history.recordStep(6, 5 * NANOS_PER_ELEMENT);
+        assertEquals(0.5, history.getCalibrationFactor(), 0.0001);
+
+        updateHelper.explain(createStorage(10), 0, UPDATE_SIZE, history);
+        history.onUpgradeDone(0, null);
+        history.recordStep(4, 20 * NANOS_PER_ELEMENT);
+        assertEquals(0.5, history.getCalibrationFactor(), 0.0001);
+    }
+
+    private static IntegerStorage createStorage(int size) {
+        final IntegerStorage storage = new IntegerStorage();
+        for (int i = 0; i < size; i++) {
+            storage.add(-i);
+        }
+        return storage;
+    }
+
+    private static class SizeEstimatedUpdate implements EstimatedUpdate<IntegerStorage> {
+
+        private final int version;
+
+        private SizeEstimatedUpdate(int version) {
+            this.version = version;
+        }
+
+        @Override
+        public long estimateNanos(IntegerStorage integers) {
+            return integers.size() * NANOS_PER_ELEMENT;
+        }
+
+        @Override
+        public void execute(IntegerStorage integers) throws Exception {
+            integers.add(version);
+        }
+
+        @Override
+        public int getUpdateVersion() {
+            return version;
+        }
+    }
+
+    private static class TestWorker extends IntegerUpdateWorker {
+
+        private TestWorker() {
+            super(UPDATE_SIZE);
+        }
+
+        @Override
+        protected Update<IntegerStorage> createUpdate(int version) {
+            return version % 2 == 0 ? new SizeEstimatedUpdate(version) : super.createUpdate(version);
+        }
+    }
+}
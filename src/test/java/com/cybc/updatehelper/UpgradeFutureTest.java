@@ -0,0 +1,107 @@
+package com.cybc.updatehelper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.cybc.updatehelper.exceptions.UpdateStepFailedException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(JUnit4.class)
+public class UpgradeFutureTest {
+
+    private static final int UPDATE_SIZE = 20;
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void asyncUpgradeReportsProgress() throws Exception {
+        final int oldVersion = 5;
+        final IntegerStorage storage = new IntegerStorage();
+        final List<UpdateProgress> progresses = new ArrayList<>();
+        final UpgradeFuture future = new UpdateHelper<>(new IntegerUpdateWorker(UPDATE_SIZE)).onUpgradeAsync(storage, oldVersion, UPDATE_SIZE, executor, new UpdateProgressListener() {
+            @Override
+            public void onProgress(UpdateProgress progress) {
+                progresses.add(progress);
+            }
+        });
+
+        assertEquals(UPDATE_SIZE, future.get().intValue());
+        assertEquals(UPDATE_SIZE - oldVersion, storage.size());
+        assertEquals(UPDATE_SIZE - oldVersion + 1, progresses.size());
+        for (int i = 0; i < progresses.size(); i++) {
+            final UpdateProgress progress = progresses.get(i);
+            assertEquals(oldVersion + i, progress.getVersion());
+            assertEquals(i, progress.getCompletedSteps());
+            assertEquals(UPDATE_SIZE - oldVersion - i, progress.getRemainingSteps());
+        }
+        assertEquals(0, future.getProgress().getRemainingSteps());
+    }
+
+    /**
+     * Tests that a cancelled upgrade finishes the running update, but doesn't start a further one.
+     */
+    @Test
+    public void cancellationBetweenSteps() throws Exception {
+        final int cancelVersion = 7;
+        final IntegerStorage storage = new IntegerStorage();
+        final UpgradeFuture[] future = new UpgradeFuture[1];
+        synchronized (future) {
+            future[0] = new UpdateHelper<>(new IntegerUpdateWorker(UPDATE_SIZE)).onUpgradeAsync(storage, 0, UPDATE_SIZE, executor, new UpdateProgressListener() {
+                @Override
+                public void onProgress(UpdateProgress progress) {
+                    if (progress.getVersion() == cancelVersion) {
+                        synchronized (future) {
+                            future[0].cancel(false);
+                        }
+                    }
+                }
+            });
+        }
+        try {
+            future[0].get();
+            fail("Upgrade was not cancelled!");
+        } catch (CancellationException expected) {
+            assertTrue(future[0].isCancelled());
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(cancelVersion, storage.size());
+        assertEquals(cancelVersion, storage.get(storage.size() - 1).intValue());
+    }
+
+    @Test
+    public void failureIsReportedByFuture() throws Exception {
+        final UpgradeFuture future = new UpdateHelper<>(new IntegerUpdateWorker(UPDATE_SIZE, 3)).onUpgradeAsync(new IntegerStorage(), 0, UPDATE_SIZE, executor, null);
+        try {
+            future.get();
+            fail("Upgrade didn't fail!");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof UpdateStepFailedException);
+            assertEquals(3, ((UpdateStepFailedException) e.getCause()).failedUpdate.getUpdateVersion());
+        }
+    }
+}
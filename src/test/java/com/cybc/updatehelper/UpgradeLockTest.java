@@ -0,0 +1,254 @@
+package com.cybc.updatehelper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.cybc.updatehelper.exceptions.UpdateFailedException;
+import com.cybc.updatehelper.exceptions.UpdateStepFailedException;
+import com.cybc.updatehelper.exceptions.UpgradeLockLostException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(JUnit4.class)
+public class UpgradeLockTest {
+
+    private static final int UPDATE_SIZE = 10;
+
+    /**
+     * Tests that concurrent upgrades of a shared storage execute every update once, the waiting upgrades skip the already executed updates.
+     */
+    @Test
+    public void onlyOneUpgradeExecutesTheUpdates() throws Exception {
+        final Path lockFile = Files.createTempFile("upgrade", ".lock");
+        final IntegerStorage storage = new IntegerStorage();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<?>> upgrades = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                //one helper and lock per simulated process
+                final UpdateHelper<Update<IntegerStorage>, IntegerStorage> updateHelper = new UpdateHelper<>(new LockingWorker(UPDATE_SIZE));
+                updateHelper.setUpgradeLock(new FileUpgradeLock(lockFile), 10, TimeUnit.SECONDS);
+                upgrades.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        updateHelper.onUpgrade(storage, 0, UPDATE_SIZE);
+                    }
+                }));
+            }
+            for (Future<?> upgrade : upgrades) {
+                upgrade.get();
+            }
+        } finally {
+            executor.shutdown();
+            Files.delete(lockFile);
+        }
+        assertEquals(UPDATE_SIZE, storage.size());
+        for (int i = 0; i < UPDATE_SIZE; i++) {
+            assertEquals(i + 1, storage.get(i).intValue());
+        }
+    }
+
+    @Test
+    public void waitingForLockTimesOut() throws Exception {
+        final Path lockFile = Files.createTempFile("upgrade", ".lock");
+        try {
+            final FileUpgradeLock lock = new FileUpgradeLock(lockFile);
+            final UpgradeLock.Lease otherProcess = lock.tryAcquire(null);
+            assertNotNull(otherProcess);
+            assertNull(lock.tryAcquire(null));
+
+            final IntegerStorage storage = new IntegerStorage();
+            final UpdateHelper<Update<IntegerStorage>, IntegerStorage> updateHelper = new UpdateHelper<>(new LockingWorker(UPDATE_SIZE));
+            updateHelper.setUpgradeLock(lock, 50, TimeUnit.MILLISECONDS);
+            try {
+                updateHelper.onUpgrade(storage, 0, UPDATE_SIZE);
+                fail("Upgrade must time out while the lock is held!");
+            } catch (UpdateFailedException e) {
+                assertTrue(storage.isEmpty());
+            }
+
+            otherProcess.release();
+            updateHelper.onUpgrade(storage, 0, UPDATE_SIZE);
+            assertEquals(UPDATE_SIZE, storage.size());
+        } finally {
+            Files.delete(lockFile);
+        }
+    }
+
+    /**
+     * Tests that the lease of a crashed process can be taken over and that the former owner notices the takeover with its next heartbeat.
+     */
+    @Test
+    public void expiredLeaseIsTakenOver() throws Exception {
+        final Path lockFile = Files.createTempFile("upgrade", ".lock");
+        try {
+            Files.write(lockFile, ("crashed " + (System.currentTimeMillis() - 1)).getBytes(StandardCharsets.UTF_8));
+            //long enough that neither the scheduled heartbeat nor the expiry interferes, the heartbeat is run directly
+            final FileUpgradeLock lock = new FileUpgradeLock(lockFile, 10, TimeUnit.MINUTES);
+            final UpgradeLock.Lease lease = lock.tryAcquire(null);
+            assertNotNull(lease);
+            assertNull(lock.tryAcquire(null));
+
+            ((FileUpgradeLock.FileLease) lease).run();
+            assertTrue("The heartbeat must renew the lease", lease.isValid());
+
+            Files.write(lockFile, ("other " + (System.currentTimeMillis() + 60000)).getBytes(StandardCharsets.UTF_8));
+            ((FileUpgradeLock.FileLease) lease).run();
+            assertFalse(lease.isValid());
+            lease.release();
+            assertNull(lock.tryAcquire(null));
+        } finally {
+            Files.delete(lockFile);
+        }
+    }
+
+    @Test
+    public void heartbeatRenewsLease() throws Exception {
+        final Path lockFile = Files.createTempFile("upgrade", ".lock");
+        try {
+            final FileUpgradeLock lock = new FileUpgradeLock(lockFile, 300, TimeUnit.MILLISECONDS);
+            final UpgradeLock.Lease lease = lock.tryAcquire(null);
+            final String acquired = new String(Files.readAllBytes(lockFile), StandardCharsets.UTF_8);
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (acquired.equals(new String(Files.readAllBytes(lockFile), StandardCharsets.UTF_8))) {
+                assertTrue("The heartbeat didn't renew the lease", System.nanoTime() < deadline);
+                Thread.sleep(10);
+            }
+            lease.release();
+        } finally {
+            Files.delete(lockFile);
+        }
+    }
+
+    @Test
+    public void lostLeaseStopsUpgrade() {
+        final IntegerStorage storage = new IntegerStorage();
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> updateHelper = new UpdateHelper<>(new LockingWorker(UPDATE_SIZE));
+        final LosingLock lock = new LosingLock(storage, 2);
+        updateHelper.setUpgradeLock(lock, 0, TimeUnit.MILLISECONDS);
+        try {
+            updateHelper.onUpgrade(storage, 0, UPDATE_SIZE);
+            fail("Upgrade must fail when the lease is lost!");
+        } catch (UpgradeLockLostException e) {
+            assertEquals(2, e.lastCompletedVersion);
+        }
+        assertEquals(2, storage.size());
+        assertTrue(lock.released);
+    }
+
+    /**
+     * Tests that a storage isn't rolled back when the lease was lost during the failed update, it belongs to the new owner.
+     */
+    @Test
+    public void lostLeaseSkipsRollback() {
+        final IntegerStorage storage = new IntegerStorage();
+        final RollbackWorker worker = new RollbackWorker(3);
+        final UpdateHelper<Update<IntegerStorage>, IntegerStorage> updateHelper = new UpdateHelper<>(worker);
+        updateHelper.setUpgradeLock(new LosingLock(storage, 3), 0, TimeUnit.MILLISECONDS);
+        try {
+            updateHelper.onUpgrade(storage, 0, UPDATE_SIZE);
+            fail("Update 3 must fail!");
+        } catch (UpdateStepFailedException e) {
+            assertEquals(3, e.failedUpdate.getUpdateVersion());
+            assertTrue(e.getSuppressed()[0] instanceof UpgradeLockLostException);
+        }
+        assertFalse(worker.restored);
+        assertEquals(3, storage.size());
+    }
+
+    /**
+     * Loses its lease when the storage reached a size.
+     */
+    private static class LosingLock implements UpgradeLock<IntegerStorage> {
+
+        private final IntegerStorage storage;
+        private final int            lostAtSize;
+        private       boolean        released;
+
+        private LosingLock(IntegerStorage storage, int lostAtSize) {
+            this.storage = storage;
+            this.lostAtSize = lostAtSize;
+        }
+
+        @Override
+        public Lease tryAcquire(IntegerStorage storageToUpdate) {
+            return new Lease() {
+                @Override
+                public boolean isValid() {
+                    return storage.size() < lostAtSize;
+                }
+
+                @Override
+                public void release() {
+                    released = true;
+                }
+            };
+        }
+    }
+
+    private static class RollbackWorker extends LockingWorker implements RollbackUpdateWorker<Update<IntegerStorage>, IntegerStorage> {
+
+        private boolean restored;
+
+        private RollbackWorker(int failingVersion) {
+            super(UPDATE_SIZE, failingVersion);
+        }
+
+        @Override
+        public StorageSnapshot takeSnapshot(IntegerStorage storage, int version) {
+            return new StorageSnapshot() {
+                @Override
+                public void restore() {
+                    restored = true;
+                }
+
+                @Override
+                public void discard() {}
+            };
+        }
+
+        @Override
+        public void onRolledBack(IntegerStorage storage, int version) {}
+    }
+
+    private static class LockingWorker extends IntegerUpdateWorker implements LockingUpdateWorker<Update<IntegerStorage>, IntegerStorage> {
+
+        private LockingWorker(int latestVersion) {
+            super(latestVersion);
+        }
+
+        private LockingWorker(int latestVersion, int failingVersion) {
+            super(latestVersion, failingVersion);
+        }
+
+        @Override
+        public int getStorageVersion(IntegerStorage storage) {
+            return storage.size();
+        }
+
+        @Override
+        protected void executeUpdate(IntegerStorage storage, int version) throws Exception {
+            Thread.sleep(2);
+            storage.add(version); //the failing update changes the storage before it fails
+            if (version == getFailingVersion()) {
+                throw new IllegalStateException("Update failed: " + version);
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.cybc.updatehelper;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+@RunWith(JUnit4.class)
+public class VersionMapTest {
+
+    @Test
+    public void versionsAreSorted() {
+        final VersionMap<String> map = new VersionMap<>(0);
+        for (int version : new int[]{5, 1, 9, 3, 7}) {
+            assertNull(map.put(version, "v" + version));
+        }
+        assertEquals(5, map.size());
+        assertArrayEquals(new int[]{1, 3, 5, 7, 9}, map.toVersionArray());
+        assertEquals(Arrays.asList("v1", "v3", "v5", "v7", "v9"), map.values());
+        assertEquals(1, map.firstVersion());
+        assertEquals(9, map.lastVersion());
+
+        assertEquals("v5", map.put(5, "five"));
+        assertEquals("five", map.get(5));
+        assertEquals(5, map.size());
+        assertNull(map.get(4));
+        assertTrue(map.containsVersion(7));
+        assertFalse(map.containsVersion(8));
+    }
+
+    @Test
+    public void growsBeyondCapacity() {
+        final VersionMap<Integer> map = new VersionMap<>(1);
+        for (int version = 1000; version > 0; version--) {
+            map.put(version, version);
+        }
+        assertEquals(1000, map.size());
+        for (int position = 0; position < map.size(); position++) {
+            assertEquals(position + 1, map.versionAt(position));
+            assertEquals(position + 1, map.valueAt(position).intValue());
+        }
+    }
+
+    /**
+     * versions 2, 4, 6, 8
+     */
+    @Test
+    public void range() {
+        final VersionMap<String> map = new VersionMap<>();
+        for (int version = 2; version <= 8; version += 2) {
+            map.put(version, "v" + version);
+        }
+        assertEquals(Arrays.asList("v2", "v4", "v6", "v8"), map.range(0, 8));
+        assertEquals(Arrays.asList("v4", "v6"), map.range(2, 6));
+        assertEquals(Arrays.asList("v4", "v6"), map.range(3, 7));
+        assertEquals(Collections.<String>emptyList(), map.range(8, 10));
+        assertEquals(Collections.<String>emptyList(), map.range(6, 2));
+
+        assertEquals(0, map.firstPositionAfter(1));
+        assertEquals(1, map.firstPositionAfter(2));
+        assertEquals(4, map.firstPositionAfter(8));
+    }
+
+    @Test
+    public void remove() {
+        final VersionMap<String> map = new VersionMap<>();
+        map.put(1, "a");
+        map.put(2, "b");
+        map.put(3, "c");
+        assertEquals("b", map.remove(2));
+        assertNull(map.remove(2));
+        assertArrayEquals(new int[]{1, 3}, map.toVersionArray());
+        assertEquals("c", map.get(3));
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void lastVersionOfEmptyMap() {
+        new VersionMap<String>().lastVersion();
+    }
+}